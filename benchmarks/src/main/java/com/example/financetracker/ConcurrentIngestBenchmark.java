@@ -0,0 +1,65 @@
+package com.example.financetracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts from several threads into one journaled storage preloaded with the data set.
+ * Compare runs with -t 1, 2, 4 and so on to see how throughput scales with writers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentIngestBenchmark {
+    private File dir;
+    private FinanceDataStorage storage;
+
+    /**
+     * Every writer thread draws from its own generator.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        SyntheticData generator;
+
+        @Setup(Level.Trial)
+        public void open() {
+            generator = new SyntheticData(Thread.currentThread().getId(), 5);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void open(DataSet data) throws IOException {
+        dir = data.copyToTempDirectory();
+        storage = DataSet.open(dir, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        storage.close();
+        DataSet.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public void addExpense(Writer writer) {
+        storage.addExpense(writer.generator.nextExpense());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.financetracker;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Synthetic expenses.json/incomes.json pair shared by the benchmarks of one trial,
+ * along with the same data exported to expenses.seg/incomes.seg segment files.
+ * Pass -p size=10000000 to run at the largest scale.
+ */
+@State(Scope.Benchmark)
+public class DataSet {
+    @Param({"10000", "1000000"})
+    public int size;
+
+    File dir;
+    File expensesFile;
+    File incomesFile;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        dir = Files.createTempDirectory("finance-bench").toFile();
+        expensesFile = new File(dir, "expenses.json");
+        incomesFile = new File(dir, "incomes.json");
+        new SyntheticData(42, 5).writeFiles(expensesFile, incomesFile, size);
+        open(dir, false).exportTo(new File(dir, "expenses.seg").getPath(), new File(dir, "incomes.seg").getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        deleteDirectory(dir);
+    }
+
+    /**
+     * Copies the data files into a fresh directory, for benchmarks that write a journal next to them.
+     */
+    File copyToTempDirectory() throws IOException {
+        File copy = Files.createTempDirectory("finance-bench").toFile();
+        Files.copy(expensesFile.toPath(), new File(copy, "expenses.json").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(incomesFile.toPath(), new File(copy, "incomes.json").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    static FinanceDataStorage open(File dir, boolean journaled) {
+        FinanceDataStorage storage = new FinanceDataStorage(new File(dir, "expenses.json").getPath(),
+                new File(dir, "incomes.json").getPath(), journaled);
+        storage.load();
+        return storage;
+    }
+
+    static FinanceDataStorage openSegments(File dir) {
+        FinanceDataStorage storage = new FinanceDataStorage(new File(dir, "expenses.seg").getPath(),
+                new File(dir, "incomes.seg").getPath(), false);
+        storage.load();
+        return storage;
+    }
+
+    static void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
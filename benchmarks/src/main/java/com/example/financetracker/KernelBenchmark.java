@@ -0,0 +1,110 @@
+package com.example.financetracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AmountKernels against the stream over Expense objects the console front end sums
+ * with, on the same synthetic expenses. kernel=vector uses the Vector API, kernel=scalar
+ * the plain loops; stream* ignore the parameter. The masked benchmarks total one category
+ * over one year, the way a filtered report does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class KernelBenchmark {
+    private static final LocalDate FROM = LocalDate.of(2023, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2023, 12, 31);
+    private static final String CATEGORY = "gas";
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private AmountKernel amountKernel;
+    private List<Expense> expenses;
+    private long[] cents;
+    private int[] days;
+    private int[] categoryIds;
+    private int categoryId;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        amountKernel = kernel.equals("vector") ? AmountKernel.INSTANCE : new ScalarAmountKernel();
+        if (kernel.equals("vector") && !amountKernel.isVectorized()) {
+            throw new IllegalStateException("The Vector API module is not enabled");
+        }
+        SyntheticData data = new SyntheticData(42, 5);
+        CategoryDictionary categories = new CategoryDictionary();
+        expenses = new ArrayList<>(size);
+        cents = new long[size];
+        days = new int[size];
+        categoryIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            Expense expense = data.nextExpense();
+            expenses.add(expense);
+            cents[i] = TransactionColumns.toCents(expense.getAmount());
+            days[i] = expense.getEpochDay();
+            categoryIds[i] = categories.idOf(expense.getCategory());
+        }
+        categoryId = categories.idOf(CATEGORY);
+    }
+
+    @Benchmark
+    public double streamSum() {
+        return expenses.stream().mapToDouble(Expense::getAmount).sum();
+    }
+
+    @Benchmark
+    public long kernelSum() {
+        return amountKernel.sum(cents, 0, size);
+    }
+
+    @Benchmark
+    public double streamMinMax() {
+        return expenses.stream().mapToDouble(Expense::getAmount).min().orElse(0)
+                + expenses.stream().mapToDouble(Expense::getAmount).max().orElse(0);
+    }
+
+    @Benchmark
+    public long kernelMinMax() {
+        return amountKernel.min(cents, 0, size) + amountKernel.max(cents, 0, size);
+    }
+
+    @Benchmark
+    public double streamMaskedCategory() {
+        return expenses.stream()
+                .filter(expense -> CATEGORY.equals(expense.getCategory())
+                        && !expense.getDate().isBefore(FROM) && !expense.getDate().isAfter(TO))
+                .mapToDouble(Expense::getAmount)
+                .sum();
+    }
+
+    @Benchmark
+    public long kernelMaskedCategory() {
+        AmountKernel.Totals totals = new AmountKernel.Totals();
+        amountKernel.aggregate(cents, days, categoryIds, 0, size, (int) FROM.toEpochDay(), (int) TO.toEpochDay(),
+                categoryId, totals);
+        return totals.cents + totals.count;
+    }
+}
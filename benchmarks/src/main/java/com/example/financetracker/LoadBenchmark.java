@@ -0,0 +1,32 @@
+package com.example.financetracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold load of the data files into a new storage, parsing and indexing included,
+ * from the JSON files and from the binary segment files.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class LoadBenchmark {
+    @Benchmark
+    public FinanceDataStorage coldLoad(DataSet data) {
+        return DataSet.open(data.dir, false);
+    }
+
+    @Benchmark
+    public FinanceDataStorage coldLoadSegment(DataSet data) {
+        return DataSet.openSegments(data.dir);
+    }
+}
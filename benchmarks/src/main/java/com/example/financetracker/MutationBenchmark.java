@@ -0,0 +1,77 @@
+package com.example.financetracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts and deletes against a journaled storage preloaded with the data set.
+ * Sample mode reports latency percentiles next to the average.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+@State(Scope.Thread)
+public class MutationBenchmark {
+    private static final int BULK_SIZE = 1000;
+
+    private File dir;
+    private FinanceDataStorage storage;
+    private SyntheticData generator;
+    private int nextRemovalId;
+
+    @Setup(Level.Trial)
+    public void open(DataSet data) throws IOException {
+        dir = data.copyToTempDirectory();
+        storage = DataSet.open(dir, true);
+        generator = new SyntheticData(7, 5);
+        nextRemovalId = 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        storage.close();
+        DataSet.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public void addExpense() {
+        storage.addExpense(generator.nextExpense());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public void addExpenseBulk() {
+        for (int i = 0; i < BULK_SIZE; i++) {
+            storage.addExpense(generator.nextExpense());
+        }
+    }
+
+    /**
+     * Removes the oldest remaining expense and inserts it again under a new id,
+     * so the storage keeps its size however many invocations run.
+     */
+    @Benchmark
+    public boolean removeExpense() {
+        Expense expense = storage.getExpense(nextRemovalId);
+        boolean removed = storage.removeExpense(nextRemovalId++);
+        storage.addExpense(new Expense(expense.getAmount(), expense.getCategory(), expense.getDate()));
+        return removed;
+    }
+}
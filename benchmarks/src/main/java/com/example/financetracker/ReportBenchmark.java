@@ -0,0 +1,58 @@
+package com.example.financetracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report generation over a loaded storage. The report's console output is discarded.
+ * With cached=false the report cache is turned off, so every report is computed.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+@State(Scope.Thread)
+public class ReportBenchmark {
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private FinanceDataStorage storage;
+    private ReportGenerator reportGenerator;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void open(DataSet data) {
+        storage = DataSet.open(data.dir, false);
+        storage.setReportCacheCapacity(cached ? ReportCache.DEFAULT_CAPACITY : 0);
+        reportGenerator = new ReportGenerator(storage);
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        System.setOut(stdout);
+        storage.close();
+    }
+
+    @Benchmark
+    public void generateReport() {
+        reportGenerator.generateReport();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.financetracker;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Generates reproducible transaction histories for the benchmarks.
+ * Categories follow a Zipf distribution over a fixed vocabulary, so a handful of categories
+ * dominate as in real spending; dates are spread over several years with more activity on
+ * weekends and around the start of the month; amounts are log-normal around a per-category median.
+ */
+public class SyntheticData {
+    private static final String[] CATEGORIES = {
+        "groceries", "restaurants", "gas", "rent", "utilities", "coffee", "transit", "pharmacy",
+        "clothing", "electronics", "subscriptions", "insurance", "gifts", "travel", "books",
+        "pets", "gym", "home improvement", "parking", "phone", "internet", "entertainment",
+        "charity", "education", "childcare", "furniture", "hobbies", "taxi", "alcohol", "snacks",
+        "haircut", "dentist", "doctor", "car repair", "laundry", "postage", "office supplies",
+        "music", "games", "garden"
+    };
+    private static final LocalDate END = LocalDate.of(2024, 12, 31);
+
+    private final Random random;
+    private final double[] cumulativeWeights = new double[CATEGORIES.length];
+    private final double[] medians = new double[CATEGORIES.length];
+    private final int days;
+
+    /**
+     * @param seed  Seed for the random source, so runs are comparable.
+     * @param years How many years of history the dates span.
+     */
+    public SyntheticData(long seed, int years) {
+        this.random = new Random(seed);
+        this.days = years * 365;
+        double sum = 0;
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            sum += 1.0 / Math.pow(i + 1, 1.1);
+            cumulativeWeights[i] = sum;
+            medians[i] = 5 + random.nextInt(120);
+        }
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            cumulativeWeights[i] /= sum;
+        }
+    }
+
+    public String nextCategory() {
+        double u = random.nextDouble();
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (u <= cumulativeWeights[i]) {
+                return CATEGORIES[i];
+            }
+        }
+        return CATEGORIES[CATEGORIES.length - 1];
+    }
+
+    public LocalDate nextDate() {
+        while (true) {
+            LocalDate date = END.minusDays(random.nextInt(days));
+            double weight = 0.6;
+            if (date.getDayOfWeek().getValue() >= 6) {
+                weight += 0.3;
+            }
+            if (date.getDayOfMonth() <= 5) {
+                weight += 0.1;
+            }
+            if (random.nextDouble() < weight) {
+                return date;
+            }
+        }
+    }
+
+    public Expense nextExpense() {
+        String category = nextCategory();
+        double median = medians[indexOf(category)];
+        double amount = median * Math.exp(random.nextGaussian() * 0.6);
+        return new Expense(Math.round(amount * 100) / 100.0, category, nextDate());
+    }
+
+    public Income nextIncome() {
+        double amount = 1500 + random.nextGaussian() * 200;
+        return new Income(Math.round(amount * 100) / 100.0, nextDate());
+    }
+
+    private static int indexOf(String category) {
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (CATEGORIES[i].equals(category)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes data files in the format FinanceDataStorage reads, with one income per twenty expenses.
+     */
+    public void writeFiles(File expensesFile, File incomesFile, int expenseCount) throws IOException {
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(new FileWriter(expensesFile, StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (int i = 0; i < expenseCount; i++) {
+                Expense expense = nextExpense();
+                writer.beginObject();
+                writer.name("id").value(i + 1);
+                writer.name("amount").value(expense.getAmount());
+                writer.name("category").value(expense.getCategory());
+                writer.name("date").value(expense.getDate().toString());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(new FileWriter(incomesFile, StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (int i = 0; i < Math.max(1, expenseCount / 20); i++) {
+                Income income = nextIncome();
+                writer.beginObject();
+                writer.name("id").value(i + 1);
+                writer.name("amount").value(income.getAmount());
+                writer.name("date").value(income.getDate().toString());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+    }
+}
@@ -57,6 +57,12 @@ class Expense {
     public LocalDate getDateAsLocalDate() {
         return LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
     }
+    /**
+     * ISO-8601 dates order the same as strings as they do as dates, so sorting by this needs no parsing.
+     */
+    public String getIsoDate() {
+        return date;
+    }
 }
 
 /**
@@ -81,6 +87,9 @@ class Income {
      public LocalDate getDateAsLocalDate() {
         return LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
     }
+    public String getIsoDate() {
+        return date;
+    }
 }
 
 /**
@@ -92,6 +101,9 @@ class FinanceDataStorage {
     private static final String EXPENSES_FILE = "expenses.json";
     private static final String INCOME_FILE = "incomes.json";
     private Gson gson = new Gson();
+    // Running totals so reports do not rescan the lists
+    private double totalExpenses;
+    private double totalIncome;
 
     // Add getter methods for expenses and incomes
     public List<Expense> getExpenses() {
@@ -102,12 +114,21 @@ class FinanceDataStorage {
         return incomes;
     }
 
+    public double getTotalExpenses() {
+        return totalExpenses;
+    }
+
+    public double getTotalIncome() {
+        return totalIncome;
+    }
+
     /**
      * Adds an expense to the storage and saves it.
      * @param expense The expense to be added.
      */
     public void addExpense(Expense expense) {
         expenses.add(expense);
+        totalExpenses += expense.getAmount();
         // JSON save
         saveExpenses();
     }
@@ -118,6 +139,7 @@ class FinanceDataStorage {
      */
     public void addIncome(Income income) {
         incomes.add(income);
+        totalIncome += income.getAmount();
         // JSON save
         saveIncomes();
     }
@@ -155,19 +177,19 @@ class FinanceDataStorage {
         System.out.println("\nCurrent Expenses:");
         System.out.printf("%-16s %-20s %-10s%n", "Amount", "Category", "Date");
         expenses.stream()
-            .sorted(Comparator.comparing(Expense::getDateAsLocalDate))
+            .sorted(Comparator.comparing(Expense::getIsoDate))
             .forEach(expense -> System.out.printf("$%-15.2f %-20s %-10s%n",
                 expense.getAmount(),
                 expense.getCategory(),
-                expense.getDateAsLocalDate().format(DateTimeFormatter.ISO_LOCAL_DATE)));
+                expense.getIsoDate()));
 
         System.out.println("\nCurrent Incomes:");
         System.out.printf("%-16s %-10s%n", "Amount", "Date");
         incomes.stream()
-            .sorted(Comparator.comparing(Income::getDateAsLocalDate))
+            .sorted(Comparator.comparing(Income::getIsoDate))
             .forEach(income -> System.out.printf("$%-15.2f %-10s%n",
                 income.getAmount(),
-                income.getDateAsLocalDate().format(DateTimeFormatter.ISO_LOCAL_DATE)));
+                income.getIsoDate()));
     }
     
     /**
@@ -180,6 +202,7 @@ class FinanceDataStorage {
         if (file.exists() && file.length() > 0) {
         try (FileReader reader = new FileReader(file)) {
             expenses = gson.fromJson(reader, new com.google.gson.reflect.TypeToken<List<Expense>>() {}.getType());
+            totalExpenses = expenses.stream().mapToDouble(Expense::getAmount).sum();
         } catch (IOException e) {
             e.printStackTrace(); 
         } catch (Exception e) {
@@ -201,6 +224,7 @@ class FinanceDataStorage {
         if (file.exists() && file.length() > 0) {
             try (FileReader reader = new FileReader(file)) {
                 incomes = gson.fromJson(reader, new com.google.gson.reflect.TypeToken<List<Income>>() {}.getType());
+                totalIncome = incomes.stream().mapToDouble(Income::getAmount).sum();
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -229,11 +253,11 @@ class ReportGenerator {
     }
 
     private double calculateTotalIncome() {
-        return storage.getIncomes().stream().mapToDouble(Income::getAmount).sum();
+        return storage.getTotalIncome();
     }
 
     private double calculateTotalExpenses() {
-        return storage.getExpenses().stream().mapToDouble(Expense::getAmount).sum();
+        return storage.getTotalExpenses();
     }
 }
 
@@ -0,0 +1,238 @@
+package com.example.financetracker;
+
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals maintained incrementally from the storage's mutations.
+ * Keeps overall, per category, per month and per category-month sums so reports
+ * are answered from these aggregates instead of scanning the transactions.
+ * Sums are kept in whole cents, which keeps them exact under add and remove.
+ */
+public class AggregateEngine implements TransactionListener {
+    /**
+     * A sum and a count that can be added to and subtracted from.
+     */
+    static class Total {
+        long cents;
+        int count;
+
+        void add(long amount) {
+            cents += amount;
+            count++;
+        }
+
+        void subtract(long amount) {
+            cents -= amount;
+            count--;
+        }
+
+        void add(long amount, int times) {
+            cents += amount;
+            count += times;
+        }
+    }
+
+    private final Total expenses = new Total();
+    private final Total incomes = new Total();
+    private final Map<String, Total> expensesByCategory = new HashMap<>();
+    private final Map<YearMonth, Total> expensesByMonth = new HashMap<>();
+    private final Map<YearMonth, Total> incomesByMonth = new HashMap<>();
+    private final Map<String, Map<YearMonth, Total>> expensesByCategoryMonth = new HashMap<>();
+    private final CategoryDictionary categories;
+
+    public AggregateEngine() {
+        this(null);
+    }
+
+    /**
+     * @param categories Resolves the categories asked for to their canonical names, so
+     *                   "Gas " finds the totals of "gas"; null takes them as they are.
+     */
+    AggregateEngine(CategoryDictionary categories) {
+        this.categories = categories;
+    }
+
+    @Override
+    public synchronized void expenseAdded(Expense expense) {
+        long cents = TransactionColumns.toCents(expense.getAmount());
+        YearMonth month = YearMonth.from(expense.getDate());
+        String category = expense.getCategory();
+        expenses.add(cents);
+        expensesByCategory.computeIfAbsent(category, key -> new Total()).add(cents);
+        expensesByMonth.computeIfAbsent(month, key -> new Total()).add(cents);
+        expensesByCategoryMonth.computeIfAbsent(category, key -> new HashMap<>())
+                .computeIfAbsent(month, key -> new Total()).add(cents);
+    }
+
+    @Override
+    public synchronized void expenseRemoved(Expense expense) {
+        long cents = TransactionColumns.toCents(expense.getAmount());
+        YearMonth month = YearMonth.from(expense.getDate());
+        String category = expense.getCategory();
+        expenses.subtract(cents);
+        subtract(expensesByCategory, category, cents);
+        subtract(expensesByMonth, month, cents);
+        Map<YearMonth, Total> months = expensesByCategoryMonth.get(category);
+        if (months != null) {
+            subtract(months, month, cents);
+            if (months.isEmpty()) {
+                expensesByCategoryMonth.remove(category);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void incomeAdded(Income income) {
+        long cents = TransactionColumns.toCents(income.getAmount());
+        incomes.add(cents);
+        incomesByMonth.computeIfAbsent(YearMonth.from(income.getDate()), key -> new Total()).add(cents);
+    }
+
+    @Override
+    public synchronized void incomeRemoved(Income income) {
+        long cents = TransactionColumns.toCents(income.getAmount());
+        incomes.subtract(cents);
+        subtract(incomesByMonth, YearMonth.from(income.getDate()), cents);
+    }
+
+    /**
+     * Adds precomputed totals for rows that are not held in memory, such as an archived year.
+     * Negative cents and count take them out again.
+     */
+    synchronized void addExpenseTotals(String category, YearMonth month, long cents, int count) {
+        expenses.add(cents, count);
+        add(expensesByCategory, category, cents, count);
+        add(expensesByMonth, month, cents, count);
+        Map<YearMonth, Total> months = expensesByCategoryMonth.computeIfAbsent(category, key -> new HashMap<>());
+        add(months, month, cents, count);
+        if (months.isEmpty()) {
+            expensesByCategoryMonth.remove(category);
+        }
+    }
+
+    synchronized void addIncomeTotals(YearMonth month, long cents, int count) {
+        incomes.add(cents, count);
+        add(incomesByMonth, month, cents, count);
+    }
+
+    private static <K> void add(Map<K, Total> totals, K key, long cents, int count) {
+        Total total = totals.computeIfAbsent(key, k -> new Total());
+        total.add(cents, count);
+        if (total.count == 0) {
+            totals.remove(key);
+        }
+    }
+
+    /**
+     * Subtracts from a keyed total and drops the key once nothing is left under it.
+     */
+    private static <K> void subtract(Map<K, Total> totals, K key, long cents) {
+        Total total = totals.get(key);
+        if (total == null) {
+            return;
+        }
+        total.subtract(cents);
+        if (total.count == 0) {
+            totals.remove(key);
+        }
+    }
+
+    public synchronized double getTotalExpenses() {
+        return TransactionColumns.toAmount(expenses.cents);
+    }
+
+    public synchronized double getTotalIncome() {
+        return TransactionColumns.toAmount(incomes.cents);
+    }
+
+    public synchronized int getExpenseCount() {
+        return expenses.count;
+    }
+
+    public synchronized int getIncomeCount() {
+        return incomes.count;
+    }
+
+    public synchronized double getExpenses(String category) {
+        Total total = expensesByCategory.get(canonical(category));
+        return total == null ? 0 : TransactionColumns.toAmount(total.cents);
+    }
+
+    public synchronized double getExpenses(YearMonth month) {
+        Total total = expensesByMonth.get(month);
+        return total == null ? 0 : TransactionColumns.toAmount(total.cents);
+    }
+
+    public synchronized double getIncome(YearMonth month) {
+        Total total = incomesByMonth.get(month);
+        return total == null ? 0 : TransactionColumns.toAmount(total.cents);
+    }
+
+    public synchronized double getExpenses(String category, YearMonth month) {
+        Map<YearMonth, Total> months = expensesByCategoryMonth.get(canonical(category));
+        Total total = months == null ? null : months.get(month);
+        return total == null ? 0 : TransactionColumns.toAmount(total.cents);
+    }
+
+    private String canonical(String category) {
+        return categories == null ? category : categories.lookup(category);
+    }
+
+    /**
+     * @return Expense totals per category, sorted by category name.
+     */
+    public synchronized Map<String, Double> getExpensesByCategory() {
+        return toAmounts(expensesByCategory);
+    }
+
+    /**
+     * @return Expense totals per month, in month order.
+     */
+    public synchronized Map<YearMonth, Double> getExpensesByMonth() {
+        return toAmounts(expensesByMonth);
+    }
+
+    /**
+     * @return Income totals per month, in month order.
+     */
+    public synchronized Map<YearMonth, Double> getIncomeByMonth() {
+        return toAmounts(incomesByMonth);
+    }
+
+    synchronized long expenseCents() {
+        return expenses.cents;
+    }
+
+    synchronized long incomeCents() {
+        return incomes.cents;
+    }
+
+    synchronized Map<String, Long> expenseCentsByCategory() {
+        return toCents(expensesByCategory);
+    }
+
+    synchronized Map<YearMonth, Long> expenseCentsByMonth() {
+        return toCents(expensesByMonth);
+    }
+
+    synchronized Map<YearMonth, Long> incomeCentsByMonth() {
+        return toCents(incomesByMonth);
+    }
+
+    private static <K> Map<K, Long> toCents(Map<K, Total> totals) {
+        Map<K, Long> cents = new HashMap<>();
+        totals.forEach((key, total) -> cents.put(key, total.cents));
+        return cents;
+    }
+
+    private static <K extends Comparable<K>> Map<K, Double> toAmounts(Map<K, Total> totals) {
+        // Expenses without a category total under a null key, sorted first
+        Map<K, Double> amounts = new TreeMap<>(Comparator.nullsFirst(Comparator.<K>naturalOrder()));
+        totals.forEach((key, total) -> amounts.put(key, TransactionColumns.toAmount(total.cents)));
+        return amounts;
+    }
+}
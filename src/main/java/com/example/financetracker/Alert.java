@@ -0,0 +1,70 @@
+package com.example.financetracker;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * A budget or unusual-spend alert raised by the AlertEngine for one expense.
+ */
+public final class Alert {
+    public enum Kind {
+        /** The expense took its category's spending for the month over the budget. */
+        BUDGET,
+        /** The expense is far above what its category usually costs. */
+        ANOMALY
+    }
+
+    private final Kind kind;
+    private final String category;
+    private final LocalDate date;
+    private final double amount;
+    private final String message;
+
+    Alert(Kind kind, String category, LocalDate date, double amount, String message) {
+        this.kind = kind;
+        this.category = category;
+        this.date = date;
+        this.amount = amount;
+        this.message = message;
+    }
+
+    static Alert budget(Expense expense, double spent, double budget) {
+        return new Alert(Kind.BUDGET, expense.getCategory(), expense.getDate(), expense.getAmount(),
+                String.format("Budget exceeded: %s spending in %s is %.2f of %.2f", expense.getCategory(),
+                        YearMonth.from(expense.getDate()), spent, budget));
+    }
+
+    static Alert anomaly(Expense expense, double usual, double score) {
+        return new Alert(Kind.ANOMALY, expense.getCategory(), expense.getDate(), expense.getAmount(),
+                String.format("Unusual spend: %.2f on %s on %s, usually about %.2f (%.1f standard deviations)",
+                        expense.getAmount(), expense.getCategory(), expense.getDate(), usual, score));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * @return The amount of the expense that raised the alert.
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.financetracker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Budget and unusual-spend alerts, evaluated as each expense arrives from the storage's
+ * mutation stream instead of by recomputing reports. Per category it keeps the spending of
+ * every month touched so far, and an exponentially weighted mean and variance of its
+ * amounts. A new expense costs one month total update, one budget comparison and one
+ * weighted update, all O(1), and no history is scanned.
+ * <p>
+ * A budget alert is raised when an expense takes its category's spending for the expense's
+ * month over the monthly budget. An anomaly alert is raised when an expense lies more than
+ * the anomaly score of standard deviations above its category's weighted mean, once the
+ * category has seen {@link #MIN_SAMPLES} expenses. Records restored while loading build up
+ * the state without raising alerts. Removed expenses come off the month totals; the
+ * weighted statistics cannot be unwound exactly and keep them.
+ */
+public class AlertEngine implements TransactionListener {
+    static final double ALPHA = 0.1;
+    static final int MIN_SAMPLES = 10;
+    static final double DEFAULT_ANOMALY_SCORE = 3.0;
+    static final int RECENT_ALERTS = 100;
+
+    private static final class CategoryState {
+        long budgetCents;
+        // Month index (see ReportEngine.monthIndex) to the spending of that month
+        final Map<Integer, long[]> monthCents = new HashMap<>();
+        double mean;
+        double variance;
+        int samples;
+    }
+
+    // Keyed by CategoryDictionary.key, so budgets set for "Gas " apply to "gas"
+    private final Map<String, CategoryState> categories = new HashMap<>();
+    private final List<Consumer<Alert>> listeners = new CopyOnWriteArrayList<>();
+    private final Deque<Alert> recent = new ArrayDeque<>();
+    private final BooleanSupplier armed;
+    private double anomalyScore = DEFAULT_ANOMALY_SCORE;
+
+    /**
+     * @param armed Whether mutations raise alerts yet; false while the storage loads.
+     */
+    AlertEngine(BooleanSupplier armed) {
+        this.armed = armed;
+    }
+
+    /**
+     * Registers a listener for every subsequent alert. Listeners are called on the thread
+     * applying the change, with the storage locked, so they should hand the alert off.
+     */
+    public void addAlertListener(Consumer<Alert> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeAlertListener(Consumer<Alert> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets the monthly budget of a category; zero or less removes it. Spending already
+     * recorded for a month counts, but only later expenses raise alerts.
+     */
+    public synchronized void setMonthlyBudget(String category, double amount) {
+        categories.computeIfAbsent(CategoryDictionary.key(category), key -> new CategoryState()).budgetCents =
+                Math.max(0, TransactionColumns.toCents(amount));
+    }
+
+    /**
+     * @return The category's monthly budget, or 0 if it has none.
+     */
+    public synchronized double getMonthlyBudget(String category) {
+        CategoryState state = categories.get(CategoryDictionary.key(category));
+        return state == null ? 0 : TransactionColumns.toAmount(state.budgetCents);
+    }
+
+    /**
+     * Sets how many standard deviations above its category's mean an expense must lie to
+     * be reported as unusual.
+     */
+    public synchronized void setAnomalyScore(double deviations) {
+        this.anomalyScore = deviations;
+    }
+
+    /**
+     * @return The last alerts raised, oldest first, at most RECENT_ALERTS of them.
+     */
+    public synchronized List<Alert> getRecentAlerts() {
+        return new ArrayList<>(recent);
+    }
+
+    @Override
+    public void expenseAdded(Expense expense) {
+        List<Alert> raised = evaluate(expense);
+        if (raised != null) {
+            for (Alert alert : raised) {
+                for (Consumer<Alert> listener : listeners) {
+                    listener.accept(alert);
+                }
+            }
+        }
+    }
+
+    private synchronized List<Alert> evaluate(Expense expense) {
+        CategoryState state = categories.computeIfAbsent(CategoryDictionary.key(expense.getCategory()),
+                key -> new CategoryState());
+        long cents = TransactionColumns.toCents(expense.getAmount());
+        long[] month = state.monthCents.computeIfAbsent(ReportEngine.monthIndex(expense.getEpochDay()),
+                key -> new long[1]);
+        long before = month[0];
+        month[0] += cents;
+
+        double mean = state.mean;
+        double deviation = Math.sqrt(state.variance);
+        boolean seasoned = state.samples >= MIN_SAMPLES;
+        // Exponentially weighted mean and variance, updated in place
+        if (state.samples++ == 0) {
+            state.mean = cents;
+        } else {
+            double difference = cents - state.mean;
+            double increment = ALPHA * difference;
+            state.mean += increment;
+            state.variance = (1 - ALPHA) * (state.variance + difference * increment);
+        }
+
+        if (!armed.getAsBoolean()) {
+            return null;
+        }
+        List<Alert> raised = null;
+        if (state.budgetCents > 0 && before <= state.budgetCents && month[0] > state.budgetCents) {
+            raised = new ArrayList<>(2);
+            raised.add(Alert.budget(expense, TransactionColumns.toAmount(month[0]),
+                    TransactionColumns.toAmount(state.budgetCents)));
+        }
+        if (seasoned && deviation > 0 && (cents - mean) / deviation > anomalyScore) {
+            if (raised == null) {
+                raised = new ArrayList<>(1);
+            }
+            raised.add(Alert.anomaly(expense, TransactionColumns.toAmount(Math.round(mean)), (cents - mean) / deviation));
+        }
+        if (raised != null) {
+            for (Alert alert : raised) {
+                if (recent.size() == RECENT_ALERTS) {
+                    recent.removeFirst();
+                }
+                recent.addLast(alert);
+            }
+        }
+        return raised;
+    }
+
+    @Override
+    public synchronized void expenseRemoved(Expense expense) {
+        CategoryState state = categories.get(CategoryDictionary.key(expense.getCategory()));
+        if (state == null) {
+            return;
+        }
+        int month = ReportEngine.monthIndex(expense.getEpochDay());
+        long[] spent = state.monthCents.get(month);
+        if (spent != null) {
+            spent[0] -= TransactionColumns.toCents(expense.getAmount());
+            if (spent[0] == 0) {
+                state.monthCents.remove(month);
+            }
+        }
+    }
+
+    @Override
+    public void incomeAdded(Income income) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.financetracker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fixed-size histogram of amounts in cents, for percentiles over more amounts than could be
+ * kept and sorted. Buckets are log-linear like LatencyHistogram's, but every power of two is
+ * split into 1024 sub-buckets: amounts below 10.24 get a bucket each, and any other bucket is
+ * less than 0.1% of its amounts wide. Each bucket also keeps the smallest and largest amount
+ * it received, so a percentile that lands in a bucket holding a single distinct amount is
+ * exact, and any other is interpolated between that bucket's own extremes.
+ */
+class AmountHistogram {
+    private static final int SUB_BITS = 10;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    // Count, smallest and largest amount of each bucket side by side, so a record touches one cache line
+    private final long[] buckets = new long[BUCKETS * 3];
+    private long count;
+
+    void record(long cents) {
+        int at = bucket(Math.max(0, cents)) * 3;
+        if (buckets[at]++ == 0) {
+            buckets[at + 1] = cents;
+            buckets[at + 2] = cents;
+        } else if (cents < buckets[at + 1]) {
+            buckets[at + 1] = cents;
+        } else if (cents > buckets[at + 2]) {
+            buckets[at + 2] = cents;
+        }
+        count++;
+    }
+
+    long count() {
+        return count;
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return The nearest-rank percentile, at the precision described above.
+     */
+    long percentile(int percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int at = 0; at < buckets.length; at += 3) {
+            long inBucket = buckets[at];
+            if (seen + inBucket >= rank) {
+                long min = buckets[at + 1];
+                long max = buckets[at + 2];
+                if (min == max) {
+                    return min;
+                }
+                return min + Math.round((double) (max - min) * (rank - seen - 1) / (inBucket - 1));
+            }
+            seen += inBucket;
+        }
+        throw new IllegalStateException("No amounts recorded");
+    }
+
+    /**
+     * @return The report's percentiles, keyed like ReportEngine's; empty when nothing was recorded.
+     */
+    Map<Integer, Long> percentiles() {
+        Map<Integer, Long> percentiles = new LinkedHashMap<>();
+        if (count > 0) {
+            for (int percentile : FinancialReport.PERCENTILES) {
+                percentiles.put(percentile, percentile(percentile));
+            }
+        }
+        return percentiles;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.financetracker;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Amount-ordered index over column slots.
+ * Slots are bucketed per amount in cents, so walking the map yields the slots sorted by
+ * amount, and by insertion within an amount, without comparing any rows.
+ */
+class AmountIndex {
+    private final NavigableMap<Long, SlotBucket> amounts = new TreeMap<>();
+
+    void add(long cents, int slot) {
+        amounts.computeIfAbsent(cents, key -> new SlotBucket()).add(slot);
+    }
+
+    void remove(long cents, int slot) {
+        SlotBucket bucket = amounts.get(cents);
+        if (bucket != null && bucket.remove(slot) && bucket.size == 0) {
+            amounts.remove(cents);
+        }
+    }
+
+    /**
+     * Passes every slot to the action in ascending amount order.
+     */
+    void forEachSlot(IntConsumer action) {
+        for (SlotBucket bucket : amounts.values()) {
+            for (int i = 0; i < bucket.size; i++) {
+                action.accept(bucket.slots[i]);
+            }
+        }
+    }
+}
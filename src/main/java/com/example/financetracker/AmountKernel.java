@@ -0,0 +1,98 @@
+package com.example.financetracker;
+
+/**
+ * Aggregation kernels over contiguous column arrays: amounts in whole cents, dates as epoch
+ * days and category ids, as TransactionColumns keeps them in its chunks. Each kernel works
+ * on the indexes [from, to) of the arrays it is given.
+ * {@link #INSTANCE} runs on the incubating Vector API when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and on plain loops otherwise; both give the
+ * same results, since sums of cents are exact in any order.
+ * Start with {@code -Dfinancetracker.vector=false} to use the plain loops anyway.
+ */
+abstract class AmountKernel {
+    static final AmountKernel INSTANCE = create();
+
+    /**
+     * Sum, count and extremes of the amounts a masked kernel matched.
+     */
+    static final class Totals {
+        long cents;
+        int count;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        void reset() {
+            cents = 0;
+            count = 0;
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+        }
+    }
+
+    private static AmountKernel create() {
+        if (Boolean.parseBoolean(System.getProperty("financetracker.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded by name so the scalar kernels never link against the incubator module
+                return (AmountKernel) Class.forName("com.example.financetracker.VectorAmountKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                e.printStackTrace();
+            }
+        }
+        return new ScalarAmountKernel();
+    }
+
+    /**
+     * @return Whether the kernels run on the Vector API.
+     */
+    abstract boolean isVectorized();
+
+    abstract long sum(long[] cents, int from, int to);
+
+    /**
+     * @return The smallest amount, or Long.MAX_VALUE if the range is empty.
+     */
+    abstract long min(long[] cents, int from, int to);
+
+    /**
+     * @return The largest amount, or Long.MIN_VALUE if the range is empty.
+     */
+    abstract long max(long[] cents, int from, int to);
+
+    /**
+     * @return The earliest day, or Integer.MAX_VALUE if the range is empty.
+     */
+    abstract int min(int[] days, int from, int to);
+
+    /**
+     * @return The latest day, or Integer.MIN_VALUE if the range is empty.
+     */
+    abstract int max(int[] days, int from, int to);
+
+    /**
+     * Adds the amounts dated between fromDay and toDay, both inclusive, to the totals.
+     * @param categoryIds The rows' category ids, or null to match any category.
+     * @param category The category id to match when categoryIds is given.
+     */
+    abstract void aggregate(long[] cents, int[] days, int[] categoryIds, int from, int to,
+                            int fromDay, int toDay, int category, Totals totals);
+
+    /**
+     * Adds the amounts dated between fromDay and toDay, both inclusive, to the total and
+     * count of their category. Category ids must index the two arrays; rows without a
+     * category are skipped. Lanes cannot add into the same array slot at once, so this is a
+     * plain loop in either implementation.
+     */
+    void sumByCategory(long[] cents, int[] days, int[] categoryIds, int from, int to, int fromDay, int toDay,
+                       long[] categoryCents, int[] categoryCounts) {
+        for (int i = from; i < to; i++) {
+            int day = days[i];
+            int category = categoryIds[i];
+            if (day >= fromDay && day <= toDay && category >= 0) {
+                categoryCents[category] += cents[i];
+                categoryCounts[category]++;
+            }
+        }
+    }
+}
@@ -1,29 +1,114 @@
 package com.example.financetracker;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
 public class App extends Application {
+    /**
+     * System property with the period in seconds at which metrics are printed; off when unset.
+     */
+    static final String METRICS_DUMP_PROPERTY = "financetracker.metrics.dumpSeconds";
+    /**
+     * System property naming a directory to keep the data files in instead of the default ones.
+     */
+    static final String DATA_DIR_PROPERTY = "financetracker.dataDir";
+    /**
+     * System property that closes the application once the window is up and the data loaded,
+     * for timing startup and for the class data sharing training run.
+     */
+    static final String EXIT_AFTER_STARTUP_PROPERTY = "financetracker.exitAfterStartup";
+
     private FinanceDataStorage storage;
+    private boolean firstFrameShown;
+    private boolean loaded;
 
     @Override
     public void start(Stage primaryStage) throws Exception {
-        storage = new FinanceDataStorage();
-        storage.loadExpenses();
-        storage.loadIncomes();
-        
+        storage = createStorage();
+        storage.setListExecutor(FinanceDataStorage.FX_APPLICATION_THREAD);
+        storage.getMetrics().register();
+        storage.getMetrics().startDump(Long.getLong(METRICS_DUMP_PROPERTY, 0));
+
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/financetracker/finance_tracker.fxml"));
         Parent root = loader.load();
-        
+
         FinanceTrackerController controller = loader.getController();
         controller.setFinanceDataStorage(storage);
 
+        Scene scene = new Scene(root, 600, 400);
+        // The first pulse after the stage is shown lays out and renders the first frame
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                if (!firstFrameShown) {
+                    firstFrameShown = true;
+                    storage.getMetrics().recordFirstFrame(uptimeMillis());
+                    Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                    startupStepDone();
+                }
+            }
+        });
         primaryStage.setTitle("Finance Tracker");
-        primaryStage.setScene(new Scene(root, 600, 400));
+        primaryStage.setScene(scene);
         primaryStage.show();
+
+        // Load after the window is up, exactly once; the table fills in as chunks arrive
+        StorageLoadTask loadTask = new StorageLoadTask(storage);
+        controller.bindLoadTask(loadTask);
+        loadTask.setOnSucceeded(event -> {
+            loaded = true;
+            storage.getMetrics().recordLoaded(uptimeMillis());
+            startupStepDone();
+        });
+        Thread loadThread = new Thread(loadTask, "storage-loader");
+        loadThread.setDaemon(true);
+        loadThread.start();
+    }
+
+    private static FinanceDataStorage createStorage() {
+        String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+        if (dataDir == null) {
+            return new FinanceDataStorage();
+        }
+        new File(dataDir).mkdirs();
+        FinanceDataStorage storage = new FinanceDataStorage(new File(dataDir, "expenses.json").getPath(),
+                new File(dataDir, "incomes.json").getPath(), true);
+        storage.setHotYears(FinanceDataStorage.DEFAULT_HOT_YEARS);
+        return storage;
+    }
+
+    /**
+     * Reports the startup times once the first frame is shown and the data loaded, and
+     * closes the application then if asked to.
+     */
+    private void startupStepDone() {
+        if (!firstFrameShown || !loaded) {
+            return;
+        }
+        StorageMetrics metrics = storage.getMetrics();
+        System.out.println("Started: first frame after " + metrics.getFirstFrameMillis() + " ms, "
+                + metrics.getRecordsLoaded() + " records loaded after " + metrics.getLoadedMillis() + " ms");
+        if (Boolean.getBoolean(EXIT_AFTER_STARTUP_PROPERTY)) {
+            Platform.exit();
+        }
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    @Override
+    public void stop() {
+        if (storage != null) {
+            storage.close();
+        }
     }
 
     public static void main(String[] args) {
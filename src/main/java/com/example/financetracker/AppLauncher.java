@@ -0,0 +1,17 @@
+package com.example.financetracker;
+
+import javafx.application.Application;
+
+/**
+ * Starts the application from a plain class path of jars, which is what a class data
+ * sharing archive is built for. The java launcher refuses a main class that extends
+ * Application unless JavaFX is on the module path, so this one does not.
+ */
+public final class AppLauncher {
+    private AppLauncher() {
+    }
+
+    public static void main(String[] args) {
+        Application.launch(App.class, args);
+    }
+}
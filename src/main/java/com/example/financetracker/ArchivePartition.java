@@ -0,0 +1,99 @@
+package com.example.financetracker;
+
+/**
+ * One archived year of expenses or incomes, decompressed into memory and read in place.
+ * Records are sorted by date, so a date range is found by binary search. Category ids are
+ * translated to the storage's dictionary when the partition is loaded, so scans can treat
+ * the partition like the live columns.
+ */
+class ArchivePartition extends TransactionRows {
+    private final int year;
+    private final SegmentFile segment;
+    private final CategoryDictionary categories;
+    private final int[] categoryIds;
+    private final long bytes;
+
+    ArchivePartition(int year, SegmentFile segment, CategoryDictionary categories, long bytes) {
+        this.year = year;
+        this.segment = segment;
+        this.categories = categories;
+        this.categoryIds = segment.mapCategories(categories);
+        this.bytes = bytes;
+    }
+
+    int year() {
+        return year;
+    }
+
+    /**
+     * @return The memory held by the decompressed partition.
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return The index of the first record dated on or after the given day.
+     */
+    int lowerBound(int epochDay) {
+        int low = 0;
+        int high = segment.count();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (segment.epochDay(middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    int id(int index) {
+        return segment.id(index);
+    }
+
+    /**
+     * @return A detached copy of the record; archived records are read-only.
+     */
+    Expense expense(int index) {
+        return new Expense(segment.id(index), TransactionColumns.toAmount(segment.cents(index)),
+                categories == null ? null : categories.nameOf(categoryId(index)), segment.epochDay(index));
+    }
+
+    Income income(int index) {
+        return new Income(segment.id(index), TransactionColumns.toAmount(segment.cents(index)), segment.epochDay(index));
+    }
+
+    @Override
+    int size() {
+        return segment.count();
+    }
+
+    @Override
+    boolean isLive(int slot) {
+        return true;
+    }
+
+    @Override
+    long cents(int slot) {
+        return segment.cents(slot);
+    }
+
+    @Override
+    int epochDay(int slot) {
+        return segment.epochDay(slot);
+    }
+
+    @Override
+    int categoryId(int slot) {
+        int categoryId = segment.categoryId(slot);
+        return categoryId == CategoryDictionary.NO_CATEGORY ? categoryId : categoryIds[categoryId];
+    }
+
+    @Override
+    CategoryDictionary categories() {
+        return categories;
+    }
+}
@@ -0,0 +1,442 @@
+package com.example.financetracker;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Yearly archives of old expenses and incomes.
+ * Each archived year is a gzip-compressed SegmentFile with its records sorted by date,
+ * e.g. archive/expenses-2019.seg.gz. A manifest keeps per category and month totals of
+ * every archived year, so the storage's aggregates cover the archive without reading it.
+ * Partitions are decompressed on first use and kept in memory in least recently used
+ * order until their combined size exceeds the memory budget.
+ */
+class ArchiveStore {
+    static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    // Not a category id, so between() takes every record
+    private static final int ANY_CATEGORY = -2;
+
+    enum Kind {
+        EXPENSES, INCOMES;
+
+        String prefix() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Total of one category in one month of an archived year.
+     */
+    static final class Cell {
+        final String category;
+        final int month;
+        final long cents;
+        final int count;
+
+        Cell(String category, int month, long cents, int count) {
+            this.category = category;
+            this.month = month;
+            this.cents = cents;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Creates the value handed out for a record of a partition.
+     */
+    interface RecordView<T> {
+        T get(ArchivePartition partition, int index);
+    }
+
+    private final File dir;
+    private final File manifestFile;
+    private final CategoryDictionary categories;
+    private final Map<Kind, NavigableMap<Integer, List<Cell>>> summaries = new EnumMap<>(Kind.class);
+    private final Map<Kind, Integer> maxIds = new EnumMap<>(Kind.class);
+    private final LinkedHashMap<String, ArchivePartition> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private long loadedBytes;
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    ArchiveStore(File dir, CategoryDictionary categories) {
+        this.dir = dir;
+        this.manifestFile = new File(dir, "manifest.json");
+        this.categories = categories;
+        for (Kind kind : Kind.values()) {
+            summaries.put(kind, new TreeMap<>());
+            maxIds.put(kind, 0);
+        }
+    }
+
+    /**
+     * Reads the manifest, if there is one.
+     */
+    synchronized void open() throws IOException {
+        if (!manifestFile.exists()) {
+            return;
+        }
+        try (JsonReader reader = new JsonReader(new BufferedReader(new FileReader(manifestFile, StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("maxExpenseId")) {
+                    maxIds.put(Kind.EXPENSES, reader.nextInt());
+                    continue;
+                }
+                if (name.equals("maxIncomeId")) {
+                    maxIds.put(Kind.INCOMES, reader.nextInt());
+                    continue;
+                }
+                Kind kind = name.equals("expenses") ? Kind.EXPENSES : name.equals("incomes") ? Kind.INCOMES : null;
+                if (kind == null) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readYear(reader, summaries.get(kind));
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+    }
+
+    private static void readYear(JsonReader reader, NavigableMap<Integer, List<Cell>> years) throws IOException {
+        int year = 0;
+        List<Cell> cells = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("year")) {
+                year = reader.nextInt();
+            } else if (name.equals("cells")) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String category = null;
+                    int month = 0;
+                    long cents = 0;
+                    int count = 0;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "category":
+                                category = reader.nextString();
+                                break;
+                            case "month":
+                                month = reader.nextInt();
+                                break;
+                            case "cents":
+                                cents = reader.nextLong();
+                                break;
+                            case "count":
+                                count = reader.nextInt();
+                                break;
+                            default:
+                                reader.skipValue();
+                                break;
+                        }
+                    }
+                    reader.endObject();
+                    cells.add(new Cell(category, month, cents, count));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        years.put(year, cells);
+    }
+
+    private void writeManifest() throws IOException {
+        File tmp = new File(manifestFile.getPath() + ".tmp");
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(new FileWriter(tmp, StandardCharsets.UTF_8)))) {
+            writer.beginObject();
+            writer.name("maxExpenseId").value(maxIds.get(Kind.EXPENSES));
+            writer.name("maxIncomeId").value(maxIds.get(Kind.INCOMES));
+            for (Kind kind : Kind.values()) {
+                writer.name(kind.prefix()).beginArray();
+                for (Map.Entry<Integer, List<Cell>> year : summaries.get(kind).entrySet()) {
+                    writer.beginObject();
+                    writer.name("year").value(year.getKey());
+                    writer.name("cells").beginArray();
+                    for (Cell cell : year.getValue()) {
+                        writer.beginObject();
+                        if (cell.category != null) {
+                            writer.name("category").value(cell.category);
+                        }
+                        writer.name("month").value(cell.month);
+                        writer.name("cents").value(cell.cents);
+                        writer.name("count").value(cell.count);
+                        writer.endObject();
+                    }
+                    writer.endArray();
+                    writer.endObject();
+                }
+                writer.endArray();
+            }
+            writer.endObject();
+        }
+        Files.move(tmp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The totals of every archived year, by year.
+     */
+    synchronized NavigableMap<Integer, List<Cell>> summaries(Kind kind) {
+        return new TreeMap<>(summaries.get(kind));
+    }
+
+    /**
+     * @return The highest id ever archived, so the live columns never hand it out again.
+     */
+    synchronized int maxId(Kind kind) {
+        return maxIds.get(kind);
+    }
+
+    /**
+     * @return The archived years that overlap the given days, both inclusive, in order.
+     */
+    synchronized List<Integer> years(Kind kind, int fromDay, int toDay) {
+        List<Integer> years = new ArrayList<>();
+        for (int year : summaries.get(kind).keySet()) {
+            if (LocalDate.of(year, 1, 1).toEpochDay() <= toDay && LocalDate.of(year, 12, 31).toEpochDay() >= fromDay) {
+                years.add(year);
+            }
+        }
+        return years;
+    }
+
+    synchronized void setMemoryBudget(long bytes) {
+        memoryBudget = bytes;
+        evict(null);
+    }
+
+    /**
+     * @return The memory held by the partitions currently loaded.
+     */
+    synchronized long loadedBytes() {
+        return loadedBytes;
+    }
+
+    /**
+     * @return The partition of the given year, decompressing it if it is not loaded.
+     */
+    synchronized ArchivePartition partition(Kind kind, int year) throws IOException {
+        String key = kind.prefix() + "-" + year;
+        ArchivePartition partition = loaded.get(key);
+        if (partition == null) {
+            partition = read(kind, year);
+            loaded.put(key, partition);
+            loadedBytes += partition.bytes();
+            evict(key);
+        }
+        return partition;
+    }
+
+    /**
+     * Drops least recently used partitions until the loaded ones fit the budget.
+     * @param keep A partition to keep even if it alone exceeds the budget, or null.
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, ArchivePartition>> entries = loaded.entrySet().iterator();
+        while (loadedBytes > memoryBudget && entries.hasNext()) {
+            Map.Entry<String, ArchivePartition> entry = entries.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            loadedBytes -= entry.getValue().bytes();
+            entries.remove();
+        }
+    }
+
+    File file(Kind kind, int year) {
+        return new File(dir, kind.prefix() + "-" + year + SegmentFile.EXTENSION + ".gz");
+    }
+
+    private ArchivePartition read(Kind kind, int year) throws IOException {
+        File file = file(kind, year);
+        byte[] bytes;
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file), 64 * 1024)) {
+            bytes = in.readAllBytes();
+        }
+        SegmentFile segment = SegmentFile.wrap(ByteBuffer.wrap(bytes), file.toString());
+        return new ArchivePartition(year, segment, kind == Kind.EXPENSES ? categories : null, bytes.length);
+    }
+
+    /**
+     * Adds rows to the archive of a year, merging them with what is already archived.
+     * Rows whose id is already archived replace the archived record, so writing the same
+     * rows twice, e.g. after a crash before the hot snapshot was updated, leaves one copy.
+     * @param rows The rows to archive, all dated in the given year.
+     */
+    synchronized void write(Kind kind, int year, TransactionColumns rows) throws IOException {
+        Files.createDirectories(dir.toPath());
+        Set<Integer> ids = new HashSet<>();
+        for (int slot = 0; slot < rows.size(); slot++) {
+            if (rows.isLive(slot)) {
+                ids.add(rows.id(slot));
+            }
+        }
+        ArchivePartition existing = file(kind, year).exists() ? read(kind, year) : null;
+        TransactionColumns merged = new TransactionColumns(kind == Kind.EXPENSES ? categories : null);
+        int existingCount = existing == null ? 0 : existing.size();
+        long[] order = new long[existingCount + rows.size()];
+        int count = 0;
+        for (int i = 0; i < existingCount; i++) {
+            if (!ids.contains(existing.id(i))) {
+                order[count++] = sortKey(existing.epochDay(i), i);
+            }
+        }
+        for (int slot = 0; slot < rows.size(); slot++) {
+            if (rows.isLive(slot)) {
+                order[count++] = sortKey(rows.epochDay(slot), existingCount + slot);
+            }
+        }
+        Arrays.sort(order, 0, count);
+        Map<Long, long[]> totals = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int index = (int) order[i];
+            TransactionRows source = index < existingCount ? existing : rows;
+            int slot = index < existingCount ? index : index - existingCount;
+            int id = index < existingCount ? existing.id(slot) : rows.id(slot);
+            long cents = source.cents(slot);
+            int day = source.epochDay(slot);
+            int categoryId = source.categoryId(slot);
+            merged.append(id, cents, day, categoryId);
+            maxIds.put(kind, Math.max(maxIds.get(kind), id));
+            long key = ((long) categoryId << 32) | (ReportEngine.monthIndex(day) & 0xFFFFFFFFL);
+            long[] total = totals.computeIfAbsent(key, k -> new long[2]);
+            total[0] += cents;
+            total[1]++;
+        }
+
+        File file = file(kind, year);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (GZIPOutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)), 64 * 1024)) {
+            SegmentFile.write(Channels.newChannel(out), merged);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Cell> cells = new ArrayList<>();
+        totals.forEach((key, total) -> {
+            int categoryId = (int) (key >> 32);
+            String category = kind == Kind.EXPENSES ? categories.nameOf(categoryId) : null;
+            cells.add(new Cell(category, (int) (long) key, total[0], (int) total[1]));
+        });
+        summaries.get(kind).put(year, Collections.unmodifiableList(cells));
+        writeManifest();
+        ArchivePartition stale = loaded.remove(kind.prefix() + "-" + year);
+        if (stale != null) {
+            loadedBytes -= stale.bytes();
+        }
+    }
+
+    private static long sortKey(int epochDay, int index) {
+        return ((long) epochDay << 32) | index;
+    }
+
+    /**
+     * @return The archived record with the given id, or null if no archived year holds it.
+     *         Ids say nothing about dates, so every archived year may have to be read.
+     */
+    <T> T find(Kind kind, int id, RecordView<T> view) throws IOException {
+        if (id <= 0 || id > maxId(kind)) {
+            return null;
+        }
+        for (int year : years(kind, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            ArchivePartition partition = partition(kind, year);
+            for (int i = 0; i < partition.size(); i++) {
+                if (partition.id(i) == id) {
+                    return view.get(partition, i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return A lazy, date-ordered view of the archived records between the two days,
+     *         decompressing partitions as the iteration reaches them.
+     */
+    <T> Iterable<T> between(Kind kind, int fromDay, int toDay, RecordView<T> view) {
+        return between(kind, fromDay, toDay, ANY_CATEGORY, view);
+    }
+
+    /**
+     * @return The archived records between the two days that are filed under the category,
+     *         like {@link #between(Kind, int, int, RecordView)}. Records are matched on the
+     *         category id, so the views are only created for the ones that are handed out.
+     */
+    <T> Iterable<T> between(Kind kind, int fromDay, int toDay, int categoryId, RecordView<T> view) {
+        return () -> new Iterator<T>() {
+            private final Iterator<Integer> years = years(kind, fromDay, toDay).iterator();
+            private ArchivePartition partition;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (true) {
+                    if (partition == null || index >= partition.size() || partition.epochDay(index) > toDay) {
+                        if (!years.hasNext()) {
+                            return false;
+                        }
+                        try {
+                            partition = partition(kind, years.next());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        index = partition.lowerBound(fromDay);
+                    } else if (categoryId != ANY_CATEGORY && partition.categoryId(index) != categoryId) {
+                        index++;
+                    } else {
+                        return true;
+                    }
+                }
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return view.get(partition, index++);
+            }
+        };
+    }
+}
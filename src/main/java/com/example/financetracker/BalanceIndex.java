@@ -0,0 +1,113 @@
+package com.example.financetracker;
+
+import java.time.YearMonth;
+
+/**
+ * Net cash flow per day, incomes minus expenses in whole cents, in a FenwickTree keyed by
+ * epoch day. Kept up to date from the storage's mutations like the aggregates, so the
+ * balance on a date is one prefix sum and the net flow between two dates two, O(log n) in
+ * the number of days covered, and a balance chart costs O(points log n) instead of a pass
+ * over the transactions per point.
+ * Archived years only have monthly totals; each month's flow is booked on its last day,
+ * so balances in archived years are exact at month ends.
+ */
+class BalanceIndex implements TransactionListener {
+    private FenwickTree days;
+    // Epoch day of tree index 0; moved back when an earlier day comes in
+    private int origin;
+    private int firstDay = Integer.MAX_VALUE;
+    private int lastDay = Integer.MIN_VALUE;
+
+    @Override
+    public synchronized void expenseAdded(Expense expense) {
+        add(expense.getEpochDay(), -TransactionColumns.toCents(expense.getAmount()));
+    }
+
+    @Override
+    public synchronized void expenseRemoved(Expense expense) {
+        add(expense.getEpochDay(), TransactionColumns.toCents(expense.getAmount()));
+    }
+
+    @Override
+    public synchronized void incomeAdded(Income income) {
+        add(income.getEpochDay(), TransactionColumns.toCents(income.getAmount()));
+    }
+
+    @Override
+    public synchronized void incomeRemoved(Income income) {
+        add(income.getEpochDay(), -TransactionColumns.toCents(income.getAmount()));
+    }
+
+    /**
+     * Adds the net flow of a month that is not held in memory, such as an archived one.
+     * @param month Month index, see ReportEngine.monthIndex.
+     */
+    synchronized void addMonth(int month, long cents) {
+        add((int) YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1).atEndOfMonth().toEpochDay(),
+                cents);
+    }
+
+    private void add(int epochDay, long cents) {
+        if (days == null) {
+            days = new FenwickTree();
+            origin = epochDay;
+        } else if (epochDay < origin) {
+            rebase(epochDay);
+        }
+        days.add(epochDay - origin, cents);
+        firstDay = Math.min(firstDay, epochDay);
+        lastDay = Math.max(lastDay, epochDay);
+    }
+
+    /**
+     * Moves the origin back to at least the given day, by as many days again as the tree
+     * covers, so a run of ever earlier days rebuilds it only a logarithmic number of times.
+     */
+    private void rebase(int epochDay) {
+        int newOrigin = Math.min(epochDay, origin - days.capacity());
+        FenwickTree moved = new FenwickTree();
+        for (int index = 0; index < days.capacity(); index++) {
+            long cents = days.rangeSum(index, index + 1);
+            if (cents != 0) {
+                moved.add(index + origin - newOrigin, cents);
+            }
+        }
+        days = moved;
+        origin = newOrigin;
+    }
+
+    /**
+     * @return The net flow of every day up to and including the given one.
+     */
+    synchronized long balanceCents(int epochDay) {
+        if (days == null || epochDay < origin) {
+            return 0;
+        }
+        // Past the end of the tree the prefix sum is the total
+        return days.prefixSum((int) Math.min((long) epochDay - origin + 1, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return The net flow of the days from one to the other, both included.
+     */
+    synchronized long netFlowCents(int fromDay, int toDay) {
+        if (toDay < fromDay) {
+            return 0;
+        }
+        return balanceCents(toDay) - balanceCents(fromDay - 1);
+    }
+
+    /**
+     * @return The earliest day that ever had a flow, or Integer.MAX_VALUE if none did.
+     */
+    synchronized int firstDay() {
+        return firstDay;
+    }
+
+    /**
+     * @return The latest day that ever had a flow, or Integer.MIN_VALUE if none did.
+     */
+    synchronized int lastDay() {
+        return lastDay;
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.financetracker;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Computes a FinancialReport straight from a storage's data files in one sequential pass,
+ * for nightly jobs and scripts, without loading a FinanceDataStorage or starting JavaFX.
+ * Records are streamed from the snapshot files (JSON or segment), the archived years the
+ * date range reaches and the journal tail, and folded into running totals as they are read.
+ * Memory does not grow with the number of records: totals are kept per category and month,
+ * and expense percentiles come from an AmountHistogram instead of a sorted copy of every
+ * amount. Only the journal tail is held, which compaction keeps small. Expenses and
+ * incomes are read on two threads, so the pass runs at the speed of the larger file.
+ * <pre>
+ * BatchReport [--from 2024-01-01] [--to 2024-12-31] [--category Food] [--json] [expenses.json incomes.json]
+ * </pre>
+ */
+public final class BatchReport {
+    private BatchReport() {
+    }
+
+    /**
+     * Streams the data files of a storage. The storage may be open in another process, as
+     * long as it does not compact its journal meanwhile, which swaps the snapshot files.
+     * @param expensesFile The expenses snapshot, with the journal and archive next to it.
+     */
+    public static FinancialReport generate(File expensesFile, File incomesFile, ReportQuery query) throws IOException {
+        JournalTail tail = new JournalTail(expensesFile, incomesFile);
+        File archiveDir = new File(expensesFile.getAbsoluteFile().getParentFile(), "archive");
+        ArchiveStore archive = new ArchiveStore(archiveDir, null);
+        archive.open();
+
+        FutureTask<Totals> incomeScan = new FutureTask<>(() -> {
+            Totals incomes = new Totals(query, false);
+            scanSnapshot(incomesFile, tail.removedIncomes, incomes);
+            scanArchive(archive, ArchiveStore.Kind.INCOMES, query, incomes);
+            for (Income income : tail.addedIncomes.values()) {
+                incomes.add(TransactionColumns.toCents(income.getAmount()), income.getEpochDay(), null);
+            }
+            return incomes;
+        });
+        Thread incomeThread = new Thread(incomeScan, "batch-report-incomes");
+        incomeThread.setDaemon(true);
+        incomeThread.start();
+
+        Totals expenses = new Totals(query, true);
+        scanSnapshot(expensesFile, tail.removedExpenses, expenses);
+        scanArchive(archive, ArchiveStore.Kind.EXPENSES, query, expenses);
+        for (Expense expense : tail.addedExpenses.values()) {
+            expenses.add(TransactionColumns.toCents(expense.getAmount()), expense.getEpochDay(), expense.getCategory());
+        }
+
+        Totals incomes;
+        try {
+            incomes = incomeScan.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + incomesFile, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+
+        Map<String, Long> byCategory = new HashMap<>();
+        expenses.categoryCents.forEach((category, cents) -> byCategory.put(category, cents[0]));
+        return new FinancialReport(query, incomes.cents, incomes.count, expenses.cents, expenses.count,
+                byCategory, expenses.months(), incomes.months(), expenses.amounts.percentiles());
+    }
+
+    /**
+     * Streams a snapshot file, skipping the records the journal tail has removed since.
+     */
+    private static void scanSnapshot(File file, Set<Integer> removed, Totals totals) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        if (SnapshotFormat.of(file) == SnapshotFormat.SEGMENT) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+                SegmentFile.stream(in, file.toString(), (id, cents, epochDay, category) -> {
+                    if (removed.isEmpty() || !removed.contains(id)) {
+                        totals.add(cents, epochDay, category);
+                    }
+                });
+            }
+        } else {
+            TransactionReader.scan(file, (id, cents, epochDay, category) -> {
+                if (removed.isEmpty() || !removed.contains(id)) {
+                    totals.add(cents, epochDay, category);
+                }
+            });
+        }
+    }
+
+    /**
+     * Streams every archived year the query's date range reaches, decompressing as it reads.
+     */
+    private static void scanArchive(ArchiveStore archive, ArchiveStore.Kind kind, ReportQuery query, Totals totals)
+            throws IOException {
+        for (int year : archive.years(kind, query.fromDay(), query.toDay())) {
+            File file = archive.file(kind, year);
+            try (InputStream in = new GZIPInputStream(new FileInputStream(file), 1 << 16)) {
+                SegmentFile.stream(in, file.toString(), (id, cents, epochDay, category) ->
+                        totals.add(cents, epochDay, category));
+            }
+        }
+    }
+
+    /**
+     * The changes logged since the snapshot files were written: the records added since,
+     * minus those removed again, and the ids of snapshot records removed since.
+     */
+    private static final class JournalTail {
+        final Map<Integer, Expense> addedExpenses = new LinkedHashMap<>();
+        final Map<Integer, Income> addedIncomes = new LinkedHashMap<>();
+        final Set<Integer> removedExpenses = new HashSet<>();
+        final Set<Integer> removedIncomes = new HashSet<>();
+
+        JournalTail(File expensesFile, File incomesFile) {
+            new TransactionJournal(expensesFile, incomesFile, new StorageMetrics()).readTail(entry -> {
+                switch (entry.op) {
+                    case ADD_EXPENSE:
+                        addedExpenses.put(entry.expense.getId(), entry.expense);
+                        break;
+                    case REMOVE_EXPENSE:
+                        if (addedExpenses.remove(entry.expense.getId()) == null) {
+                            removedExpenses.add(entry.expense.getId());
+                        }
+                        break;
+                    case ADD_INCOME:
+                        addedIncomes.put(entry.income.getId(), entry.income);
+                        break;
+                    case REMOVE_INCOME:
+                        if (addedIncomes.remove(entry.income.getId()) == null) {
+                            removedIncomes.add(entry.income.getId());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            });
+        }
+    }
+
+    /**
+     * Running totals of the records that match the query, in whole cents like ReportEngine's.
+     */
+    private static final class Totals {
+        private final int fromDay;
+        private final int toDay;
+        private final String category;
+        final AmountHistogram amounts = new AmountHistogram();
+        final boolean collect;
+        long cents;
+        int count;
+        // Files written before names were made canonical can spell one category several ways
+        private final CategoryDictionary names = new CategoryDictionary();
+        private int categoryId = CategoryDictionary.NO_CATEGORY;
+        final Map<String, long[]> categoryCents = new HashMap<>();
+        final Map<Integer, long[]> monthCents = new HashMap<>();
+        private int lastDay = Integer.MIN_VALUE;
+        private long[] lastMonth;
+        private String lastCategory;
+        private boolean lastMatches;
+        private long[] lastCategoryCents;
+
+        Totals(ReportQuery query, boolean expenses) {
+            this.fromDay = query.fromDay();
+            this.toDay = query.toDay();
+            // The category filter applies to expenses only, as in ReportEngine
+            this.category = expenses ? query.getCategory() : null;
+            this.collect = expenses;
+            // As add would work it out for a first record without a category
+            this.lastMatches = this.category == null;
+        }
+
+        void add(long cents, int epochDay, String category) {
+            if (epochDay < fromDay || epochDay > toDay) {
+                return;
+            }
+            // Readers hand out the same String for repeated names, so runs of one category skip the maps
+            if (category != lastCategory) {
+                lastCategory = category;
+                int id = names.idOf(category);
+                if (this.category != null && categoryId == CategoryDictionary.NO_CATEGORY) {
+                    categoryId = names.find(this.category);
+                }
+                lastMatches = this.category == null || id != CategoryDictionary.NO_CATEGORY && id == categoryId;
+                lastCategoryCents = category == null || !lastMatches ? null
+                        : categoryCents.computeIfAbsent(names.nameOf(id), name -> new long[1]);
+            }
+            if (!lastMatches) {
+                return;
+            }
+            this.cents += cents;
+            count++;
+            if (collect) {
+                amounts.record(cents);
+            }
+            if (lastCategoryCents != null) {
+                lastCategoryCents[0] += cents;
+            }
+            if (epochDay != lastDay) {
+                lastDay = epochDay;
+                lastMonth = monthCents.computeIfAbsent(ReportEngine.monthIndex(epochDay), month -> new long[1]);
+            }
+            lastMonth[0] += cents;
+        }
+
+        Map<YearMonth, Long> months() {
+            Map<YearMonth, Long> months = new HashMap<>();
+            monthCents.forEach((index, total) ->
+                    months.put(YearMonth.of(Math.floorDiv(index, 12), Math.floorMod(index, 12) + 1), total[0]));
+            return months;
+        }
+    }
+
+    /**
+     * Prints the report for the default data files, or the two files given, to standard output.
+     * Anything the readers print on the way goes to standard error, so JSON output stays clean.
+     */
+    public static void main(String[] args) {
+        LocalDate from = null;
+        LocalDate to = null;
+        String category = null;
+        boolean json = false;
+        String expensesFile = FinanceDataStorage.EXPENSES_FILE;
+        String incomesFile = FinanceDataStorage.INCOME_FILE;
+        int files = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--from":
+                        from = LocalDate.parse(args[++i]);
+                        break;
+                    case "--to":
+                        to = LocalDate.parse(args[++i]);
+                        break;
+                    case "--category":
+                        category = args[++i];
+                        break;
+                    case "--json":
+                        json = true;
+                        break;
+                    default:
+                        if (args[i].startsWith("--") || files == 2) {
+                            throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                        }
+                        if (files++ == 0) {
+                            expensesFile = args[i];
+                        } else {
+                            incomesFile = args[i];
+                        }
+                        break;
+                }
+            }
+            if (files == 1) {
+                throw new IllegalArgumentException("Give both the expenses and the incomes file");
+            }
+        } catch (ArrayIndexOutOfBoundsException | DateTimeParseException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing value for " + args[args.length - 1]
+                    : e.getMessage());
+            System.err.println("Usage: BatchReport [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--category name] [--json]"
+                    + " [expensesFile incomesFile]");
+            System.exit(2);
+            return;
+        }
+
+        ReportQuery query = from == null && to == null && category == null ? ReportQuery.all()
+                : ReportQuery.between(from, to).withCategory(category);
+        PrintStream out = System.out;
+        System.setOut(System.err);
+        FinancialReport report;
+        try {
+            report = generate(new File(expensesFile), new File(incomesFile), query);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        } finally {
+            System.setOut(out);
+        }
+        if (json) {
+            out.println(report.toJson());
+        } else {
+            out.print(report.toText());
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.financetracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Dictionary encoding for category names.
+ * Each distinct name is stored once and transactions refer to it by a small int id.
+ * Ids are handed out in first-seen order and never reused.
+ * <p>
+ * Names that differ only in case and spacing ("gas", "Gas", "gas ") are one category: they
+ * share the id and the canonical name, which is the first spelling seen with the spacing
+ * tidied (see {@link #key}). The dictionary also serves typeahead: it keeps the keys sorted,
+ * once whole and once from each later word, so the names starting with a prefix, or with a
+ * word starting with it, are one range scan of an ordered map away.
+ */
+class CategoryDictionary {
+    static final int NO_CATEGORY = -1;
+
+    // Exact spellings seen so far, so repeated names skip the normalization
+    private final Map<String, Integer> spellings = new HashMap<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    // Keys of the names, then the keys from their second, third... word on, each to the id
+    private final NavigableMap<String, Integer> byPrefix = new TreeMap<>();
+    private final NavigableMap<String, Integer> byWord = new TreeMap<>();
+
+    /**
+     * @return The name trimmed and with inner runs of whitespace made one space.
+     */
+    static String tidy(String name) {
+        if (isTidy(name)) {
+            return name;
+        }
+        StringBuilder tidied = new StringBuilder(name.length());
+        for (String word : name.trim().split("\\s+")) {
+            if (tidied.length() > 0) {
+                tidied.append(' ');
+            }
+            tidied.append(word);
+        }
+        return tidied.toString();
+    }
+
+    private static boolean isTidy(String name) {
+        boolean space = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (space || c != ' ') {
+                    return false;
+                }
+                space = true;
+            } else {
+                space = false;
+            }
+        }
+        return !space || name.isEmpty();
+    }
+
+    /**
+     * @return What names of one category have in common: the tidied name in lower case,
+     *         or null for no category.
+     */
+    static String key(String name) {
+        return name == null ? null : tidy(name).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The id of the given category, registering it if it has not been seen before.
+     */
+    synchronized int idOf(String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        Integer id = spellings.get(category);
+        if (id == null) {
+            String key = key(category);
+            id = ids.get(key);
+            if (id == null) {
+                id = names.size();
+                names.add(tidy(category));
+                ids.put(key, id);
+                index(key, id);
+            }
+            spellings.put(category, id);
+        }
+        return id;
+    }
+
+    private void index(String key, int id) {
+        byPrefix.put(key, id);
+        for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+            // Names can end in the same words ("gas station", "bus station"), so the id keeps them apart
+            byWord.put(key.substring(i + 1) + '\0' + id, id);
+        }
+    }
+
+    /**
+     * @return The id of the given category, or NO_CATEGORY if it is unknown.
+     */
+    synchronized int find(String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        Integer id = spellings.get(category);
+        if (id == null) {
+            id = ids.get(key(category));
+        }
+        return id == null ? NO_CATEGORY : id;
+    }
+
+    /**
+     * @return The canonical name of the given category, registering it if it is new.
+     */
+    String canonical(String category) {
+        return nameOf(idOf(category));
+    }
+
+    /**
+     * @return The canonical name of the given category if it is known, otherwise the name itself.
+     */
+    synchronized String lookup(String category) {
+        int id = find(category);
+        return id == NO_CATEGORY ? category : names.get(id);
+    }
+
+    synchronized String nameOf(int id) {
+        return id == NO_CATEGORY ? null : names.get(id);
+    }
+
+    synchronized int size() {
+        return names.size();
+    }
+
+    /**
+     * @return Up to limit canonical names matching what has been typed: first those starting
+     * with it, then those with a later word starting with it, each in alphabetical order.
+     * Case and spacing are ignored. Costs a map lookup and a walk over the returned names.
+     */
+    synchronized List<String> suggest(String typed, int limit) {
+        String prefix = key(typed);
+        if (prefix == null || prefix.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Set<Integer> found = new LinkedHashSet<>();
+        collect(byPrefix, prefix, found, limit);
+        collect(byWord, prefix, found, limit);
+        List<String> suggestions = new ArrayList<>(found.size());
+        for (int id : found) {
+            suggestions.add(names.get(id));
+        }
+        return suggestions;
+    }
+
+    private static void collect(NavigableMap<String, Integer> index, String prefix, Set<Integer> found, int limit) {
+        for (Map.Entry<String, Integer> entry : index.tailMap(prefix, true).entrySet()) {
+            if (found.size() >= limit || !entry.getKey().startsWith(prefix)) {
+                return;
+            }
+            found.add(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.financetracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index from category id to the slots filed under it.
+ * Each slot remembers its position in its category's bucket, so removal swaps the last
+ * slot into the hole and is O(1). Order within a category is therefore not preserved.
+ * Rows without a category (NO_CATEGORY, such as old records that never had one) are not
+ * filed under any.
+ */
+class CategoryIndex {
+    /**
+     * Growable int array holding the slots of one category.
+     */
+    private static class Bucket {
+        int[] slots = new int[4];
+        int size;
+    }
+
+    private final List<Bucket> buckets = new ArrayList<>();
+    private final IntColumn positions = new IntColumn();
+
+    void add(int categoryId, int slot) {
+        if (categoryId == CategoryDictionary.NO_CATEGORY) {
+            return;
+        }
+        while (buckets.size() <= categoryId) {
+            buckets.add(new Bucket());
+        }
+        Bucket bucket = buckets.get(categoryId);
+        if (bucket.size == bucket.slots.length) {
+            bucket.slots = Arrays.copyOf(bucket.slots, bucket.size * 2);
+        }
+        positions.set(slot, bucket.size);
+        bucket.slots[bucket.size++] = slot;
+    }
+
+    void remove(int categoryId, int slot) {
+        if (categoryId == CategoryDictionary.NO_CATEGORY) {
+            return;
+        }
+        Bucket bucket = buckets.get(categoryId);
+        int position = positions.get(slot);
+        int moved = bucket.slots[--bucket.size];
+        bucket.slots[position] = moved;
+        positions.set(moved, position);
+    }
+
+    int count(int categoryId) {
+        return categoryId >= 0 && categoryId < buckets.size() ? buckets.get(categoryId).size : 0;
+    }
+
+    /**
+     * @return A copy of the slots in the category, in no particular order.
+     */
+    int[] slots(int categoryId) {
+        if (count(categoryId) == 0) {
+            return new int[0];
+        }
+        Bucket bucket = buckets.get(categoryId);
+        return Arrays.copyOf(bucket.slots, bucket.size);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.financetracker;
+
+/**
+ * Multiset of transaction content hashes: how many transactions share a date, amount and,
+ * for expenses, category. Used to make imports idempotent: a line is only imported when the
+ * file holds more copies of it than the storage already does.
+ * Open addressing over parallel long/int arrays, so a million rows cost no boxed keys.
+ */
+class ContentHashIndex {
+    private static final long EMPTY = 0;
+
+    private long[] keys = new long[1024];
+    private int[] counts = new int[1024];
+    private int size;
+
+    static long hash(Expense expense) {
+        return expense(expense.getEpochDay(), TransactionColumns.toCents(expense.getAmount()), expense.getCategory());
+    }
+
+    static long hash(Income income) {
+        return income(income.getEpochDay(), TransactionColumns.toCents(income.getAmount()));
+    }
+
+    /**
+     * Spellings of one category ("gas", "Gas ") hash alike, as the storage files them under one name.
+     */
+    static long expense(int epochDay, long cents, String category) {
+        return mix(mix(mix(0x45, epochDay), cents), category == null ? 0 : CategoryDictionary.key(category).hashCode());
+    }
+
+    static long income(int epochDay, long cents) {
+        return mix(mix(0x49, epochDay), cents);
+    }
+
+    private static long mix(long hash, long value) {
+        // Variant of the splitmix64 finalizer, folded over each field in turn
+        long z = (hash ^ value) * 0x9E3779B97F4A7C15L + value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        // Zero marks an empty bucket
+        return z == EMPTY ? 1 : z;
+    }
+
+    int count(long hash) {
+        int index = find(hash);
+        return keys[index] == hash ? counts[index] : 0;
+    }
+
+    /**
+     * @return The count after adding one.
+     */
+    int add(long hash) {
+        int index = find(hash);
+        if (keys[index] != hash) {
+            keys[index] = hash;
+            if (++size * 2 > keys.length) {
+                counts[index] = 1;
+                grow();
+                return 1;
+            }
+        }
+        return ++counts[index];
+    }
+
+    void remove(long hash) {
+        int index = find(hash);
+        // Keys stay behind with a zero count, so probe chains are never broken
+        if (keys[index] == hash && counts[index] > 0) {
+            counts[index]--;
+        }
+    }
+
+    private int find(long hash) {
+        int mask = keys.length - 1;
+        int index = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[index] != EMPTY && keys[index] != hash) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.financetracker;
+
+import javafx.concurrent.Task;
+
+import java.io.File;
+
+/**
+ * Runs a {@link CsvImporter} off the JavaFX application thread. Lines are read, parsed and
+ * committed in the background; bound lists grow batch by batch on the application thread
+ * through the storage's list executor while the progress bar follows the file.
+ */
+public class CsvImportTask extends Task<ImportResult> {
+    private final FinanceDataStorage storage;
+    private final File file;
+
+    public CsvImportTask(FinanceDataStorage storage, File file) {
+        this.storage = storage;
+        this.file = file;
+    }
+
+    @Override
+    protected ImportResult call() throws Exception {
+        long total = Math.max(1, file.length());
+        updateMessage("Importing " + file.getName() + "...");
+        ImportResult result = new CsvImporter(storage).importFile(file, Runnable::run,
+                read -> updateProgress(read, total));
+        for (ImportResult.LineError error : result.getErrors()) {
+            System.out.println("Skipped " + error);
+        }
+        System.out.println(result);
+        updateProgress(total, total);
+        updateMessage(result.toString());
+        return result;
+    }
+}
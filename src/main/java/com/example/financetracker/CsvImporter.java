@@ -0,0 +1,297 @@
+package com.example.financetracker;
+
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Bulk import of bank exports and other CSV files.
+ * The file is read as a stream on the calling thread and cut into batches of lines, which
+ * a pool of workers parses and validates in parallel. Parsed batches are committed in file
+ * order, each as a single {@link FinanceDataStorage#addAll} call, so a batch costs one journal
+ * write rather than one per line. Only a few batches are in flight at once, so memory stays
+ * bounded however long the file is.
+ * <p>
+ * The first line may be a header naming the columns {@code date}, {@code amount},
+ * {@code category} (or {@code description}) and {@code type}, in any order; without one the
+ * columns are date, amount, category. Negative amounts are expenses and positive ones incomes,
+ * unless a type column says {@code expense}/{@code debit} or {@code income}/{@code credit}.
+ * <p>
+ * Re-importing a file is a no-op: a line is skipped when the storage already holds as many
+ * transactions with the same date, amount and category as the file has up to that line.
+ */
+public class CsvImporter {
+    public static final int DEFAULT_BATCH_SIZE = 5000;
+
+    private final FinanceDataStorage storage;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private DateTimeFormatter dateFormat;
+
+    /**
+     * Which field of a record holds which value; -1 when the file has no such column.
+     */
+    private static class Layout {
+        int date = 0;
+        int amount = 1;
+        int category = 2;
+        int type = -1;
+    }
+
+    /**
+     * The transactions and errors of one batch of lines.
+     */
+    private static class ParsedBatch {
+        final List<Expense> expenses = new ArrayList<>();
+        final List<Income> incomes = new ArrayList<>();
+        final List<ImportResult.LineError> errors = new ArrayList<>();
+    }
+
+    public CsvImporter(FinanceDataStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Sets how many lines are parsed and committed together.
+     */
+    public void setBatchSize(int lines) {
+        this.batchSize = Math.max(1, lines);
+    }
+
+    /**
+     * Sets how many worker threads parse and validate batches.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the date pattern of the file, such as {@code MM/dd/yyyy}. ISO dates are expected otherwise.
+     */
+    public void setDatePattern(String pattern) {
+        this.dateFormat = pattern == null ? null : DateTimeFormatter.ofPattern(pattern, Locale.ROOT);
+    }
+
+    /**
+     * Imports a file, committing on the calling thread.
+     */
+    public ImportResult importFile(File file) throws IOException {
+        return importFile(file, Runnable::run, read -> { });
+    }
+
+    /**
+     * Imports a file.
+     * @param commits  Runs each batch commit, on the calling thread with {@code Runnable::run}
+     *                 or handed to another one. The import waits for every commit.
+     * @param progress Receives the number of characters read so far.
+     */
+    public ImportResult importFile(File file, Consumer<Runnable> commits, LongConsumer progress) throws IOException {
+        ImportResult result = new ImportResult();
+        ContentHashIndex seen = new ContentHashIndex();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<ParsedBatch>> inFlight = new ArrayDeque<>();
+        try (TransactionReader.CountingReader counter = new TransactionReader.CountingReader(
+                new FileReader(file, StandardCharsets.UTF_8));
+             CsvReader reader = new CsvReader(counter)) {
+            Layout layout = new Layout();
+            List<CsvReader.Record> batch = new ArrayList<>(batchSize);
+            CsvReader.Record first = reader.next();
+            if (first != null && !readHeader(first, layout)) {
+                batch.add(first);
+            }
+            for (CsvReader.Record record = reader.next(); record != null; record = reader.next()) {
+                batch.add(record);
+                if (batch.size() == batchSize) {
+                    inFlight.add(submit(workers, batch, layout));
+                    batch = new ArrayList<>(batchSize);
+                    progress.accept(counter.count);
+                    if (inFlight.size() > threads * 2) {
+                        commit(inFlight.poll(), seen, result, commits);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight.add(submit(workers, batch, layout));
+            }
+            while (!inFlight.isEmpty()) {
+                commit(inFlight.poll(), seen, result, commits);
+            }
+            progress.accept(counter.count);
+        } finally {
+            workers.shutdownNow();
+        }
+        return result;
+    }
+
+    private Future<ParsedBatch> submit(ExecutorService workers, List<CsvReader.Record> records, Layout layout) {
+        return workers.submit(() -> parse(records, layout));
+    }
+
+    /**
+     * Waits for a parsed batch and commits it, skipping lines the storage already holds.
+     */
+    private void commit(Future<ParsedBatch> parsed, ContentHashIndex seen, ImportResult result,
+                        Consumer<Runnable> commits) throws IOException {
+        try {
+            ParsedBatch batch = parsed.get();
+            // Checking for duplicates and adding must not interleave with other writers
+            FutureTask<Void> commit = new FutureTask<>(() -> storage.exclusively(() -> {
+                List<Expense> expenses = new ArrayList<>(batch.expenses.size());
+                for (Expense expense : batch.expenses) {
+                    if (seen.add(ContentHashIndex.hash(expense)) > storage.countIdentical(expense)) {
+                        expenses.add(expense);
+                    } else {
+                        result.addDuplicate();
+                    }
+                }
+                List<Income> incomes = new ArrayList<>(batch.incomes.size());
+                for (Income income : batch.incomes) {
+                    if (seen.add(ContentHashIndex.hash(income)) > storage.countIdentical(income)) {
+                        incomes.add(income);
+                    } else {
+                        result.addDuplicate();
+                    }
+                }
+                storage.addAll(expenses, incomes);
+                result.addImported(expenses.size(), incomes.size());
+                batch.errors.forEach(result::addError);
+            }), null);
+            commits.accept(commit);
+            commit.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed", e.getCause());
+        }
+    }
+
+    /**
+     * Maps the columns named in a header line.
+     * @return Whether the record was a header.
+     */
+    private static boolean readHeader(CsvReader.Record record, Layout layout) {
+        Layout named = new Layout();
+        named.date = named.amount = named.category = -1;
+        for (int i = 0; i < record.fields.length; i++) {
+            String name = record.fields[i].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("date")) {
+                named.date = i;
+            } else if (name.equals("amount")) {
+                named.amount = i;
+            } else if (name.equals("category") || (name.equals("description") && named.category < 0)) {
+                named.category = i;
+            } else if (name.equals("type")) {
+                named.type = i;
+            }
+        }
+        if (named.date < 0 && named.amount < 0) {
+            return false;
+        }
+        layout.date = named.date;
+        layout.amount = named.amount;
+        layout.category = named.category;
+        layout.type = named.type;
+        return true;
+    }
+
+    private ParsedBatch parse(List<CsvReader.Record> records, Layout layout) {
+        ParsedBatch batch = new ParsedBatch();
+        for (CsvReader.Record record : records) {
+            try {
+                int epochDay = parseDate(field(record, layout.date, "date"));
+                double amount = parseAmount(field(record, layout.amount, "amount"));
+                boolean expense = amount < 0;
+                if (layout.type >= 0) {
+                    String type = field(record, layout.type, "type").trim().toLowerCase(Locale.ROOT);
+                    if (type.equals("expense") || type.equals("debit")) {
+                        expense = true;
+                    } else if (type.equals("income") || type.equals("credit")) {
+                        expense = false;
+                    } else {
+                        throw new IllegalArgumentException("Unknown type: " + type);
+                    }
+                }
+                if (expense) {
+                    String category = layout.category < 0 ? "" : field(record, layout.category, "category").trim();
+                    if (category.isEmpty()) {
+                        throw new IllegalArgumentException("Category cannot be empty");
+                    }
+                    batch.expenses.add(new Expense(0, Math.abs(amount), category, epochDay));
+                } else {
+                    batch.incomes.add(new Income(0, Math.abs(amount), epochDay));
+                }
+            } catch (IllegalArgumentException e) {
+                batch.errors.add(new ImportResult.LineError(record.line, e.getMessage()));
+            }
+        }
+        return batch;
+    }
+
+    private static String field(CsvReader.Record record, int index, String name) {
+        if (index < 0 || index >= record.fields.length) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return record.fields[index];
+    }
+
+    private int parseDate(String text) {
+        text = text.trim();
+        try {
+            if (dateFormat == null) {
+                return TransactionCodec.parseEpochDay(text);
+            }
+            return (int) LocalDate.parse(text, dateFormat).toEpochDay();
+        } catch (JsonParseException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + text);
+        }
+    }
+
+    /**
+     * Reads amounts as banks write them: currency signs and thousands separators are
+     * ignored and parentheses mean a negative amount.
+     */
+    private static double parseAmount(String text) {
+        String cleaned = text.trim().replace("$", "").replace(",", "").replace(" ", "");
+        boolean negative = cleaned.startsWith("(") && cleaned.endsWith(")");
+        if (negative) {
+            cleaned = cleaned.substring(1, cleaned.length() - 1);
+        }
+        double amount;
+        try {
+            amount = Double.parseDouble(cleaned);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + text.trim());
+        }
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Invalid amount: " + text.trim());
+        }
+        if (amount == 0) {
+            throw new IllegalArgumentException("Amount cannot be zero");
+        }
+        return negative ? -amount : amount;
+    }
+}
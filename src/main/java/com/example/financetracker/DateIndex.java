@@ -0,0 +1,104 @@
+package com.example.financetracker;
+
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Date-ordered index over column slots.
+ * Slots are bucketed per epoch day in a navigable map, so a date range is a sub-map walk
+ * and results come out in date order without sorting or parsing any dates.
+ * Within a day, slots keep insertion order.
+ */
+class DateIndex {
+    private final NavigableMap<Integer, SlotBucket> days = new TreeMap<>();
+
+    void add(int epochDay, int slot) {
+        days.computeIfAbsent(epochDay, day -> new SlotBucket()).add(slot);
+    }
+
+    void remove(int epochDay, int slot) {
+        SlotBucket bucket = days.get(epochDay);
+        if (bucket != null && bucket.remove(slot) && bucket.size == 0) {
+            days.remove(epochDay);
+        }
+    }
+
+    /**
+     * @return A copy of the slots between the two days, both inclusive, in date order.
+     */
+    int[] slots(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return new int[0];
+        }
+        NavigableMap<Integer, SlotBucket> range = days.subMap(fromDay, true, toDay, true);
+        int count = 0;
+        for (SlotBucket bucket : range.values()) {
+            count += bucket.size;
+        }
+        int[] slots = new int[count];
+        int filled = 0;
+        for (SlotBucket bucket : range.values()) {
+            System.arraycopy(bucket.slots, 0, slots, filled, bucket.size);
+            filled += bucket.size;
+        }
+        return slots;
+    }
+
+    /**
+     * Passes the slots between the two days, both inclusive, to the action in date order.
+     * The action must not mutate the index.
+     */
+    void forEachSlot(int fromDay, int toDay, IntConsumer action) {
+        if (fromDay > toDay) {
+            return;
+        }
+        for (SlotBucket bucket : days.subMap(fromDay, true, toDay, true).values()) {
+            for (int i = 0; i < bucket.size; i++) {
+                action.accept(bucket.slots[i]);
+            }
+        }
+    }
+
+    /**
+     * @return A lazy view merging two date-ordered views into one, taking from the first on equal days.
+     */
+    static <T> Iterable<T> merge(Iterable<T> first, Iterable<T> second, ToIntFunction<T> day) {
+        return () -> new Iterator<T>() {
+            private final Iterator<T> left = first.iterator();
+            private final Iterator<T> right = second.iterator();
+            private T nextLeft;
+            private T nextRight;
+
+            @Override
+            public boolean hasNext() {
+                if (nextLeft == null && left.hasNext()) {
+                    nextLeft = left.next();
+                }
+                if (nextRight == null && right.hasNext()) {
+                    nextRight = right.next();
+                }
+                return nextLeft != null || nextRight != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T result;
+                if (nextRight == null || (nextLeft != null && day.applyAsInt(nextLeft) <= day.applyAsInt(nextRight))) {
+                    result = nextLeft;
+                    nextLeft = null;
+                } else {
+                    result = nextRight;
+                    nextRight = null;
+                }
+                return result;
+            }
+        };
+    }
+}
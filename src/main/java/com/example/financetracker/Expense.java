@@ -1,15 +1,20 @@
 package com.example.financetracker;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 
 /**
  * Represents an expense with an amount, category, and date.
+ * A newly constructed expense holds its own values. Once added to a FinanceDataStorage it
+ * becomes a flyweight view over a row of the storage's columns and drops its own copies.
  */
 public class Expense {
+    private int id;
     private double amount;
     private String category;
-    private String date; //Gson does not support LocalDate
+    private int epochDay;
+    private transient TransactionColumns columns;
+    private transient int slot;
 
     /**
      * Constructs an Expense object.
@@ -20,18 +25,97 @@ public class Expense {
     public Expense(double amount, String category, LocalDate date) {
         this.amount = amount;
         this.category = category;
-        this.date = date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+        this.epochDay = (int) date.toEpochDay();
+    }
+
+    /**
+     * Constructs an Expense from values read from storage.
+     */
+    Expense(int id, double amount, String category, int epochDay) {
+        this.id = id;
+        this.amount = amount;
+        this.category = category;
+        this.epochDay = epochDay;
+    }
+
+    /**
+     * Constructs a view over a stored row.
+     */
+    Expense(TransactionColumns columns, int slot) {
+        bind(columns, slot);
+    }
+
+    /**
+     * Turns this expense into a view over the given row.
+     */
+    void bind(TransactionColumns columns, int slot) {
+        this.columns = columns;
+        this.slot = slot;
+        this.id = 0;
+        this.amount = 0;
+        this.category = null;
+        this.epochDay = 0;
+    }
+
+    boolean isBound() {
+        return columns != null;
+    }
+
+    TransactionColumns getColumns() {
+        return columns;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * @return The stable id assigned when the expense was first stored, or 0 if it never was.
+     */
+    public int getId() {
+        return columns != null ? columns.id(slot) : id;
     }
 
     public double getAmount() {
-        return amount;
+        return columns != null ? columns.amount(slot) : amount;
     }
 
     public String getCategory() {
-        return category;
+        return columns != null ? columns.category(slot) : category;
     }
 
     public LocalDate getDate() {
-        return LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
+        return LocalDate.ofEpochDay(getEpochDay());
+    }
+
+    int getEpochDay() {
+        return columns != null ? columns.epochDay(slot) : epochDay;
+    }
+
+    /**
+     * Stored expenses are equal when they have the same id, so an index lookup or an archived
+     * copy can stand in for the instance held by the storage. Ones never stored compare by identity.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Expense)) {
+            return false;
+        }
+        int id = getId();
+        return id != 0 && id == ((Expense) o).getId();
+    }
+
+    /**
+     * Hashes the values as stored, which bind() keeps, so the hash does not change when the
+     * expense is added to a storage.
+     */
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(TransactionColumns.toCents(getAmount()));
+        result = 31 * result + Objects.hashCode(CategoryDictionary.key(getCategory()));
+        return 31 * result + getEpochDay();
     }
 }
@@ -0,0 +1,77 @@
+package com.example.financetracker;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed tree over a growable array of longs.
+ * Point updates and prefix sums are O(log n); growing doubles the capacity in O(n)
+ * without rebuilding, because the new upper half starts out as zeros.
+ */
+class FenwickTree {
+    private long[] tree = new long[1 + 16];
+    private int capacity = 16;
+
+    /**
+     * Adds delta to the value at index.
+     */
+    void add(int index, long delta) {
+        while (index >= capacity) {
+            grow();
+        }
+        for (int i = index + 1; i <= capacity; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return The sum of the values at indexes [0, end).
+     */
+    long prefixSum(int end) {
+        long sum = 0;
+        for (int i = Math.min(end, capacity); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return The sum of the values at indexes [from, to).
+     */
+    long rangeSum(int from, int to) {
+        return prefixSum(to) - prefixSum(from);
+    }
+
+    long total() {
+        return tree[capacity];
+    }
+
+    /**
+     * For non-negative values, finds the smallest index whose inclusive prefix sum exceeds k.
+     * With 0/1 values this is the index of the k-th set position, counting from zero.
+     * @return That index, or -1 if the total does not exceed k.
+     */
+    int select(long k) {
+        if (k < 0 || k >= total()) {
+            return -1;
+        }
+        int position = 0;
+        for (int step = capacity; step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= capacity && tree[next] <= k) {
+                position = next;
+                k -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private void grow() {
+        tree = Arrays.copyOf(tree, capacity * 2 + 1);
+        tree[capacity * 2] = tree[capacity];
+        capacity *= 2;
+    }
+}
@@ -1,30 +1,152 @@
 package com.example.financetracker;
 
-import com.google.gson.Gson;
-import javafx.collections.FXCollections;
+import com.google.gson.JsonParseException;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.time.format.DateTimeFormatter;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
 
+/**
+ * Holds the expenses and incomes and persists them.
+ * Transactions dated before the hot years can be moved to compressed yearly archives
+ * (see {@link #setHotYears}). The observable lists and the category index cover the hot
+ * years only; date range queries, id lookups, the aggregates and reports also cover archived
+ * years, which are loaded on demand and evicted again under a memory budget. Archived
+ * transactions are read-only: removing one throws IllegalArgumentException rather than
+ * rewriting its year.
+ * <p>
+ * The storage is safe for concurrent writers and readers. Adds and removes go into a striped
+ * buffer and whichever writer gets the storage lock applies everything buffered as one batch,
+ * with one journal write, so concurrent writers share the cost of persisting instead of
+ * queueing up for it one by one. Applying itself is serial: the lock is held while a batch goes
+ * into the columns, indexes and totals and is handed to the journal. The handoff only queues
+ * the batch for the journal's writer thread, in the order the batches were applied, so no
+ * writer waits on the disk under the lock. Insert throughput is therefore bound by how fast one
+ * thread applies rows, however many cores there are; the benchmarks' ConcurrentIngestBenchmark
+ * measures it. Queries copy what they need under the lock, and reports read an immutable
+ * snapshot without it. The observable lists are updated through {@link #setListExecutor}, so a
+ * JavaFX front end sees them change on its own thread only.
+ */
 public class FinanceDataStorage {
-    private ObservableList<Expense> expenses;
-    private ObservableList<Income> incomes;
-    private static final String EXPENSES_FILE = "src/main/resources/expenses.json";
-    private static final String INCOME_FILE = "src/main/resources/incomes.json";
-    private Gson gson = new Gson();
+    static final int DEFAULT_HOT_YEARS = 2;
+    private static final int[] NO_IDS = new int[0];
 
+    /**
+     * Runs list updates on the JavaFX application thread, right away when already on it.
+     */
+    public static final Executor FX_APPLICATION_THREAD = command -> {
+        if (Platform.isFxApplicationThread()) {
+            command.run();
+        } else {
+            Platform.runLater(command);
+        }
+    };
+
+    private final PagedTransactionList<Expense> expenses;
+    private final PagedTransactionList<Income> incomes;
+    static final String EXPENSES_FILE = "src/main/resources/expenses.json";
+    static final String INCOME_FILE = "src/main/resources/incomes.json";
+    private final String expensesFile;
+    private final String incomesFile;
+    private final TransactionJournal journal;
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final TransactionColumns expenseColumns = new TransactionColumns(categories);
+    private final TransactionColumns incomeColumns = new TransactionColumns(null);
+    private final DateIndex expensesByDate = new DateIndex();
+    private final DateIndex incomesByDate = new DateIndex();
+    private final CategoryIndex expensesByCategory = new CategoryIndex();
+    // Built the first time the expenses are sorted by amount
+    private AmountIndex expensesByAmount;
+    // Built by the first import, see countIdentical
+    private ContentHashIndex contentHashes;
+    private final Set<Integer> hashedArchiveYears = new HashSet<>();
+    private final List<PagedTransactionList<Expense>> expenseViews = new CopyOnWriteArrayList<>();
+    private final AggregateEngine aggregates = new AggregateEngine(categories);
+    private final BalanceIndex balances = new BalanceIndex();
+    private final AlertEngine alerts = new AlertEngine(this::isLoaded);
+    private final List<TransactionListener> listeners = new CopyOnWriteArrayList<>();
+    private final ArchiveStore archive;
+    private final StorageMetrics metrics = new StorageMetrics();
+    private final ReportCache reportCache = new ReportCache();
+    // Guards the columns, indexes and totals; held while a batch is applied
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StripedBuffer<Change> ingest = new StripedBuffer<>(Runtime.getRuntime().availableProcessors());
+    private PagedTransactionList.Changes expenseChanges = new PagedTransactionList.Changes();
+    private PagedTransactionList.Changes incomeChanges = new PagedTransactionList.Changes();
+    private int batchDepth;
+    // List updates in batch order, waiting for the list executor
+    private final Queue<ListUpdate> listUpdates = new ConcurrentLinkedQueue<>();
+    // Whether a drain of listUpdates is on its way to the list executor
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile Executor listExecutor = Runnable::run;
+    // Bumped by every batch; the cached snapshot is reused while it matches
+    private volatile long version;
+    private volatile StorageSnapshot snapshot;
+    private long loadStarted;
+    private int hotYears;
+    private volatile boolean loaded;
+
+    /**
+     * Creates the application's storage, which keeps the current and the previous year in
+     * memory and archives older ones.
+     */
     public FinanceDataStorage() {
-        expenses = FXCollections.observableArrayList();
-        incomes = FXCollections.observableArrayList();
-        loadExpenses();
-        loadIncomes();
+        this(EXPENSES_FILE, INCOME_FILE, true);
+        setHotYears(DEFAULT_HOT_YEARS);
     }
 
+    /**
+     * Creates a storage backed by the given files.
+     * @param expensesFile The JSON file holding the expenses snapshot.
+     * @param incomesFile  The JSON file holding the incomes snapshot.
+     * @param journaled    Whether changes go to an append-only journal next to the data files
+     *                     instead of rewriting the whole file on every change.
+     * Nothing is read until {@link #load()} is called or a {@link StorageLoadTask} runs.
+     * Every year is kept hot unless {@link #setHotYears} says otherwise.
+     */
+    public FinanceDataStorage(String expensesFile, String incomesFile, boolean journaled) {
+        this.expensesFile = expensesFile;
+        this.incomesFile = incomesFile;
+        this.journal = journaled ? new TransactionJournal(new File(expensesFile), new File(incomesFile), metrics)
+                : null;
+        this.archive = new ArchiveStore(new File(new File(expensesFile).getAbsoluteFile().getParentFile(), "archive"),
+                categories);
+        expenses = openExpenseView();
+        incomes = new PagedTransactionList<>(incomeColumns, slot -> new Income(incomeColumns, slot));
+        listeners.add(aggregates);
+        listeners.add(balances);
+        listeners.add(alerts);
+        if (journal != null) {
+            metrics.setQueueDepth(journal::pendingWrites);
+        }
+    }
+
+    /**
+     * @return The expenses in insertion order, as a virtual list over the columns.
+     */
     public ObservableList<Expense> getExpenses() {
         return expenses;
     }
@@ -33,41 +155,1078 @@ public class FinanceDataStorage {
         return incomes;
     }
 
+    /**
+     * @return The expenses dated between the two days, both inclusive, in date order.
+     *         The hot rows are copied out of the date index up front, so the result may be
+     *         iterated while the storage changes; archived years are read as it is iterated.
+     */
+    public Iterable<Expense> getExpensesBetween(LocalDate from, LocalDate to) {
+        return expensesBetween((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    /**
+     * @return The incomes dated between the two days, both inclusive, in date order,
+     *         like {@link #getExpensesBetween}.
+     */
+    public Iterable<Income> getIncomesBetween(LocalDate from, LocalDate to) {
+        return incomesBetween((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    /**
+     * @return All expenses in date order, like {@link #getExpensesBetween}.
+     */
+    public Iterable<Expense> getExpensesByDate() {
+        return expensesBetween(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return All incomes in date order, like {@link #getExpensesBetween}.
+     */
+    public Iterable<Income> getIncomesByDate() {
+        return incomesBetween(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Archived records come out as detached, read-only copies, merged with the hot ones in date order.
+     */
+    Iterable<Expense> expensesBetween(int fromDay, int toDay) {
+        Iterable<Expense> hot = rows(locked(() -> expensesByDate.slots(fromDay, toDay)),
+                slot -> new Expense(expenseColumns, slot));
+        if (archive.years(ArchiveStore.Kind.EXPENSES, fromDay, toDay).isEmpty()) {
+            return hot;
+        }
+        return DateIndex.merge(archive.between(ArchiveStore.Kind.EXPENSES, fromDay, toDay, ArchivePartition::expense),
+                hot, Expense::getEpochDay);
+    }
+
+    /**
+     * @return The expenses filed under the category and dated between the two days, in date order,
+     *         like {@link #expensesBetween(int, int)}. The hot rows come from the category index,
+     *         so only the category's rows are looked at; an unknown category matches nothing.
+     */
+    Iterable<Expense> expensesBetween(int fromDay, int toDay, String category) {
+        int categoryId = categories.find(category);
+        if (categoryId == CategoryDictionary.NO_CATEGORY) {
+            return List.of();
+        }
+        Iterable<Expense> hot = rows(locked(() -> byDate(expenseColumns, expensesByCategory.slots(categoryId),
+                fromDay, toDay)), slot -> new Expense(expenseColumns, slot));
+        if (archive.years(ArchiveStore.Kind.EXPENSES, fromDay, toDay).isEmpty()) {
+            return hot;
+        }
+        return DateIndex.merge(archive.between(ArchiveStore.Kind.EXPENSES, fromDay, toDay, categoryId,
+                ArchivePartition::expense), hot, Expense::getEpochDay);
+    }
+
+    /**
+     * @return The slots dated between the two days, sorted by date and then slot.
+     */
+    private static int[] byDate(TransactionColumns columns, int[] slots, int fromDay, int toDay) {
+        // Day in the high half, slot in the low half, so one primitive sort orders both
+        long[] keys = new long[slots.length];
+        int count = 0;
+        for (int slot : slots) {
+            int day = columns.epochDay(slot);
+            if (day >= fromDay && day <= toDay) {
+                keys[count++] = (long) day << 32 | slot;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    Iterable<Income> incomesBetween(int fromDay, int toDay) {
+        Iterable<Income> hot = rows(locked(() -> incomesByDate.slots(fromDay, toDay)),
+                slot -> new Income(incomeColumns, slot));
+        if (archive.years(ArchiveStore.Kind.INCOMES, fromDay, toDay).isEmpty()) {
+            return hot;
+        }
+        return DateIndex.merge(archive.between(ArchiveStore.Kind.INCOMES, fromDay, toDay, ArchivePartition::income),
+                hot, Income::getEpochDay);
+    }
+
+    /**
+     * @return The expenses filed under the category, served from the category index.
+     *         The slots are copied up front, so the result may be iterated while the storage changes.
+     */
+    public Iterable<Expense> getExpensesInCategory(String category) {
+        return rows(locked(() -> expensesByCategory.slots(categories.find(category))),
+                slot -> new Expense(expenseColumns, slot));
+    }
+
+    /**
+     * @return The number of expenses filed under the category.
+     */
+    public int countExpensesInCategory(String category) {
+        return locked(() -> expensesByCategory.count(categories.find(category)));
+    }
+
+    /**
+     * @return The stored expense with the given id, or null if there is none. An archived
+     *         expense comes out as a detached, read-only copy.
+     */
+    public Expense getExpense(int id) {
+        Expense hot = locked(() -> {
+            int slot = expenseColumns.slotOf(id);
+            return slot < 0 ? null : new Expense(expenseColumns, slot);
+        });
+        return hot != null ? hot : archived(ArchiveStore.Kind.EXPENSES, id, ArchivePartition::expense);
+    }
+
+    private <T> T archived(ArchiveStore.Kind kind, int id, ArchiveStore.RecordView<T> view) {
+        try {
+            return archive.find(kind, id, view);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> Iterable<T> rows(int[] slots, IntFunction<T> views) {
+        return () -> Arrays.stream(slots).mapToObj(views).iterator();
+    }
+
+    private interface LockedRead<T> {
+        T read();
+    }
+
+    private <T> T locked(LockedRead<T> read) {
+        lock.lock();
+        try {
+            return read.read();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action while holding the storage lock, so nothing else changes the storage
+     * between what it reads and what it adds.
+     */
+    void exclusively(Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The hot rows and totals as of the last applied batch. Reuses the previous
+     *         snapshot without locking while nothing changed.
+     */
+    StorageSnapshot snapshot() {
+        StorageSnapshot current = snapshot;
+        if (current == null || current.version != version) {
+            lock.lock();
+            try {
+                current = snapshot;
+                if (current == null || current.version != version) {
+                    current = new StorageSnapshot(version, expenseColumns, incomeColumns, aggregates);
+                    snapshot = current;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Sets the thread the observable lists are updated and fire their events on, in the order
+     * the changes were applied. By default that is whichever thread changes the storage; the
+     * JavaFX front end passes {@link #FX_APPLICATION_THREAD}.
+     */
+    public void setListExecutor(Executor executor) {
+        this.listExecutor = executor;
+    }
+
+    /**
+     * Opens another virtual list over the expenses, which can be sorted independently of
+     * {@link #getExpenses()}. It is kept up to date for the life of the storage.
+     */
+    PagedTransactionList<Expense> openExpenseView() {
+        return locked(() -> {
+            PagedTransactionList<Expense> view = new PagedTransactionList<>(expenseColumns,
+                    slot -> new Expense(expenseColumns, slot));
+            expenseViews.add(view);
+            return view;
+        });
+    }
+
+    /**
+     * @return The expenses ordered by date, walked from the date index.
+     */
+    PagedTransactionList.SlotOrder expenseDateOrder() {
+        return new PagedTransactionList.SlotOrder() {
+            @Override
+            public void forEach(IntConsumer action) {
+                exclusively(() -> expensesByDate.forEachSlot(Integer.MIN_VALUE, Integer.MAX_VALUE, action));
+            }
+
+            @Override
+            public int compare(int slot, int other) {
+                int compared = Integer.compare(expenseColumns.epochDay(slot), expenseColumns.epochDay(other));
+                return compared != 0 ? compared : Integer.compare(slot, other);
+            }
+        };
+    }
+
+    /**
+     * @return The expenses ordered by amount, walked from the amount index, which is only
+     *         built once an amount order is first used.
+     */
+    PagedTransactionList.SlotOrder expenseAmountOrder() {
+        return new PagedTransactionList.SlotOrder() {
+            @Override
+            public void forEach(IntConsumer action) {
+                exclusively(() -> {
+                    if (expensesByAmount == null) {
+                        expensesByAmount = new AmountIndex();
+                        for (int slot = 0; slot < expenseColumns.size(); slot++) {
+                            if (expenseColumns.isLive(slot)) {
+                                expensesByAmount.add(expenseColumns.cents(slot), slot);
+                            }
+                        }
+                    }
+                    expensesByAmount.forEachSlot(action);
+                });
+            }
+
+            @Override
+            public int compare(int slot, int other) {
+                int compared = Long.compare(expenseColumns.cents(slot), expenseColumns.cents(other));
+                return compared != 0 ? compared : Integer.compare(slot, other);
+            }
+        };
+    }
+
+    /**
+     * @return The expenses ordered by category name, walked bucket by bucket from the category index.
+     *         Expenses without a category come first; the index does not file them, so they are
+     *         found by a pass over the columns.
+     */
+    PagedTransactionList.SlotOrder expenseCategoryOrder() {
+        Comparator<String> names = Comparator.nullsFirst(Comparator.naturalOrder());
+        return new PagedTransactionList.SlotOrder() {
+            @Override
+            public void forEach(IntConsumer action) {
+                exclusively(() -> {
+                    for (int slot = 0; slot < expenseColumns.size(); slot++) {
+                        if (expenseColumns.isLive(slot) && expenseColumns.categoryId(slot) == CategoryDictionary.NO_CATEGORY) {
+                            action.accept(slot);
+                        }
+                    }
+                });
+                Integer[] ids = new Integer[categories.size()];
+                for (int id = 0; id < ids.length; id++) {
+                    ids[id] = id;
+                }
+                Arrays.sort(ids, (id, other) -> categories.nameOf(id).compareTo(categories.nameOf(other)));
+                for (int id : ids) {
+                    int[] slots = locked(() -> expensesByCategory.slots(id));
+                    Arrays.sort(slots);
+                    for (int slot : slots) {
+                        action.accept(slot);
+                    }
+                }
+            }
+
+            @Override
+            public int compare(int slot, int other) {
+                int compared = names.compare(categories.nameOf(expenseColumns.categoryId(slot)),
+                        categories.nameOf(expenseColumns.categoryId(other)));
+                return compared != 0 ? compared : Integer.compare(slot, other);
+            }
+        };
+    }
+
+    /**
+     * @return The storage's performance counters, also the ones of its reports and UI actions.
+     */
+    public StorageMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Up to limit category names for what has been typed so far, for typeahead:
+     *         those starting with it, then those with a later word starting with it.
+     *         Case and spacing are ignored; the names are the canonical ones expenses are filed under.
+     */
+    public List<String> suggestCategories(String typed, int limit) {
+        return categories.suggest(typed, limit);
+    }
+
+    /**
+     * @return The running totals, kept up to date on every add and remove.
+     */
+    public AggregateEngine getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @return The budget and unusual-spend alerts, evaluated on every expense added once loaded.
+     */
+    public AlertEngine getAlerts() {
+        return alerts;
+    }
+
+    /**
+     * @return Incomes minus expenses dated up to and including the given day. Archived years
+     *         count per month, so within them the balance changes at month ends only.
+     */
+    public double getBalance(LocalDate date) {
+        return TransactionColumns.toAmount(balances.balanceCents((int) date.toEpochDay()));
+    }
+
+    /**
+     * @return Incomes minus expenses dated between the two days, both inclusive.
+     */
+    public double getNetFlow(LocalDate from, LocalDate to) {
+        return TransactionColumns.toAmount(balances.netFlowCents((int) from.toEpochDay(), (int) to.toEpochDay()));
+    }
+
+    /**
+     * Samples the balance at evenly spaced days for a chart, each in O(log n).
+     * @param from The first day, or null for the earliest transaction's.
+     * @param to The last day, or null for the latest transaction's.
+     * @return The balance on each sampled day, in date order; both ends are always sampled.
+     *         Empty if the range is empty or there are no transactions to default it from.
+     */
+    public NavigableMap<LocalDate, Double> getBalanceOverTime(LocalDate from, LocalDate to, int points) {
+        NavigableMap<LocalDate, Double> balance = new TreeMap<>();
+        int fromDay = from != null ? (int) from.toEpochDay() : balances.firstDay();
+        int toDay = to != null ? (int) to.toEpochDay() : balances.lastDay();
+        if (fromDay > toDay || points < 1) {
+            return balance;
+        }
+        long span = (long) toDay - fromDay;
+        for (int point = 0; point < points; point++) {
+            int day = points == 1 ? toDay : (int) (fromDay + span * point / (points - 1));
+            balance.put(LocalDate.ofEpochDay(day), TransactionColumns.toAmount(balances.balanceCents(day)));
+        }
+        return balance;
+    }
+
+    /**
+     * Registers a listener for every subsequent add and remove. Listeners are called with the
+     * storage locked, on the thread applying the change, which may be another writer's.
+     */
+    public void addTransactionListener(TransactionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeTransactionListener(TransactionListener listener) {
+        listeners.remove(listener);
+    }
+
     public void addExpense(Expense expense) {
-        expenses.add(expense);
-        saveExpenses();
+        submit(new Change(Arrays.asList(expense), List.of(), NO_IDS, NO_IDS));
     }
 
     public void addIncome(Income income) {
-        incomes.add(income);
-        saveIncomes();
+        submit(new Change(List.of(), Arrays.asList(income), NO_IDS, NO_IDS));
+    }
+
+    /**
+     * Adds a batch of expenses and incomes as one change of the lists and one write: a
+     * single journal batch, or one rewrite of each snapshot file when not journaled.
+     * Detached records are bound in place, like {@link #addExpense}; the lists themselves
+     * are not changed, so they may be immutable.
+     * @return The ids the records were stored under: the expenses' in order, then the incomes'.
+     */
+    public int[] addAll(List<Expense> expenses, List<Income> incomes) {
+        if (expenses.isEmpty() && incomes.isEmpty()) {
+            return NO_IDS;
+        }
+        Change change = new Change(new ArrayList<>(expenses), new ArrayList<>(incomes), NO_IDS, NO_IDS);
+        submit(change);
+        int[] ids = new int[change.expenses.size() + change.incomes.size()];
+        for (int i = 0; i < change.expenses.size(); i++) {
+            ids[i] = change.expenses.get(i).getId();
+        }
+        for (int i = 0; i < change.incomes.size(); i++) {
+            ids[change.expenses.size() + i] = change.incomes.get(i).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Removes the expenses and incomes with the given ids as one change of the lists and
+     * one write. Ids that match nothing are skipped.
+     * @return How many transactions were removed.
+     * @throws IllegalArgumentException If an id is archived; nothing is removed then.
+     */
+    public int removeAll(int[] expenseIds, int[] incomeIds) {
+        if (expenseIds.length == 0 && incomeIds.length == 0) {
+            return 0;
+        }
+        Change change = new Change(List.of(), List.of(), expenseIds, incomeIds);
+        submit(change);
+        return change.removed;
+    }
+
+    /**
+     * Adds and removes waiting in the ingest buffer.
+     */
+    private static final class Change {
+        final List<Expense> expenses;
+        final List<Income> incomes;
+        final int[] removedExpenses;
+        final int[] removedIncomes;
+        int removed;
+        boolean done;
+        // Why the change was not applied, for its submitter to throw
+        RuntimeException failure;
+
+        Change(List<Expense> expenses, List<Income> incomes, int[] removedExpenses, int[] removedIncomes) {
+            this.expenses = expenses;
+            this.incomes = incomes;
+            this.removedExpenses = removedExpenses;
+            this.removedIncomes = removedIncomes;
+        }
+    }
+
+    /**
+     * Buffers the change and takes the lock. Unless a writer that held the lock before has
+     * applied it along with its own, applies everything buffered so far as one batch.
+     * @throws RuntimeException What applying this change threw; it was rolled back then.
+     * @throws IllegalStateException If the storage has not finished loading. Until then the
+     *         journal has not been replayed, so the change could not be sequenced after it.
+     */
+    private void submit(Change change) {
+        if (!loaded) {
+            throw new IllegalStateException("The storage is still loading");
+        }
+        long start = System.nanoTime();
+        ingest.add(change);
+        lock.lock();
+        try {
+            if (!change.done) {
+                applyIngested();
+            }
+        } finally {
+            lock.unlock();
+        }
+        metrics.mutations.recordSince(start);
+        if (change.failure != null) {
+            throw change.failure;
+        }
+    }
+
+    /**
+     * Applies the buffered changes as one batch and journals those that went through. A
+     * change that fails is rolled back on its own and not journaled, so the others still
+     * count, and only its submitter sees the exception. Once the storage is closed nothing
+     * is applied and every submitter gets an IllegalStateException.
+     */
+    private void applyIngested() {
+        List<Change> changes = new ArrayList<>();
+        ingest.drainTo(changes);
+        if (journal != null && journal.isClosed()) {
+            IllegalStateException closed = new IllegalStateException("Journal is closed");
+            for (Change change : changes) {
+                change.failure = closed;
+                change.done = true;
+            }
+            return;
+        }
+        List<TransactionJournal.Entry> entries = new ArrayList<>();
+        boolean expensesChanged = false;
+        boolean incomesChanged = false;
+        beginBatch();
+        try {
+            for (Change change : changes) {
+                List<TransactionJournal.Entry> applied = new ArrayList<>();
+                try {
+                    apply(change, applied);
+                } catch (RuntimeException e) {
+                    change.failure = e;
+                    rollBack(applied);
+                    applied.clear();
+                }
+                for (TransactionJournal.Entry entry : applied) {
+                    if (entry.expense != null) {
+                        expensesChanged = true;
+                    } else {
+                        incomesChanged = true;
+                    }
+                }
+                entries.addAll(applied);
+                change.done = true;
+            }
+        } finally {
+            for (Change change : changes) {
+                if (!change.done) {
+                    change.failure = new IllegalStateException("The batch this change was in failed");
+                    change.done = true;
+                }
+            }
+            endBatch();
+        }
+        if (journal != null) {
+            try {
+                journal.appendBatch(entries);
+            } catch (IllegalStateException e) {
+                // Closed since the check above: undo the batch, so memory holds what is durable
+                beginBatch();
+                try {
+                    rollBack(entries);
+                } finally {
+                    endBatch();
+                }
+                for (Change change : changes) {
+                    if (change.failure == null) {
+                        change.failure = e;
+                    }
+                }
+                return;
+            }
+            compactIfNeeded();
+        } else {
+            if (expensesChanged) {
+                saveExpenses();
+            }
+            if (incomesChanged) {
+                saveIncomes();
+            }
+        }
+    }
+
+    /**
+     * Applies one change, recording an entry for every row added or removed as it goes,
+     * including a row a throwing listener was told about, so a rollback finds it.
+     */
+    private void apply(Change change, List<TransactionJournal.Entry> applied) {
+        for (int i = 0; i < change.expenses.size(); i++) {
+            int slot = expenseColumns.size();
+            try {
+                change.expenses.set(i, store(change.expenses.get(i)));
+            } finally {
+                // Recorded even if a listener threw after the row went in, so it is rolled back
+                if (expenseColumns.size() > slot) {
+                    applied.add(TransactionJournal.change(TransactionJournal.Op.ADD_EXPENSE,
+                            new Expense(expenseColumns, slot)));
+                }
+            }
+        }
+        for (int i = 0; i < change.incomes.size(); i++) {
+            int slot = incomeColumns.size();
+            try {
+                change.incomes.set(i, store(change.incomes.get(i)));
+            } finally {
+                if (incomeColumns.size() > slot) {
+                    applied.add(TransactionJournal.change(TransactionJournal.Op.ADD_INCOME,
+                            new Income(incomeColumns, slot)));
+                }
+            }
+        }
+        for (int id : change.removedExpenses) {
+            int slot = expenseColumns.slotOf(id);
+            if (slot < 0 && archived(ArchiveStore.Kind.EXPENSES, id, ArchivePartition::expense) != null) {
+                throw new IllegalArgumentException("Expense " + id + " is archived and cannot be removed");
+            }
+            try {
+                unstore(id);
+            } finally {
+                if (slot >= 0 && expenseColumns.slotOf(id) < 0) {
+                    change.removed++;
+                    applied.add(TransactionJournal.change(TransactionJournal.Op.REMOVE_EXPENSE,
+                            new Expense(expenseColumns, slot)));
+                }
+            }
+        }
+        for (int id : change.removedIncomes) {
+            int slot = incomeColumns.slotOf(id);
+            if (slot < 0 && archived(ArchiveStore.Kind.INCOMES, id, ArchivePartition::income) != null) {
+                throw new IllegalArgumentException("Income " + id + " is archived and cannot be removed");
+            }
+            try {
+                unstoreIncome(id);
+            } finally {
+                if (slot >= 0 && incomeColumns.slotOf(id) < 0) {
+                    change.removed++;
+                    applied.add(TransactionJournal.change(TransactionJournal.Op.REMOVE_INCOME,
+                            new Income(incomeColumns, slot)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Undoes the rows a failed change applied, newest first: added rows are removed again
+     * and removed ones stored again under their ids.
+     */
+    private void rollBack(List<TransactionJournal.Entry> applied) {
+        for (int i = applied.size() - 1; i >= 0; i--) {
+            TransactionJournal.Entry entry = applied.get(i);
+            try {
+                switch (entry.op) {
+                    case ADD_EXPENSE:
+                        unstore(entry.expense.getId());
+                        break;
+                    case ADD_INCOME:
+                        unstoreIncome(entry.income.getId());
+                        break;
+                    case REMOVE_EXPENSE:
+                        store(new Expense(entry.expense.getId(), entry.expense.getAmount(),
+                                entry.expense.getCategory(), entry.expense.getEpochDay()));
+                        break;
+                    case REMOVE_INCOME:
+                        store(new Income(entry.income.getId(), entry.income.getAmount(), entry.income.getEpochDay()));
+                        break;
+                    default:
+                        break;
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return How many stored expenses, hot or archived, have the same date, amount and category.
+     */
+    int countIdentical(Expense expense) {
+        return locked(() -> {
+            hashArchivedYear(ArchiveStore.Kind.EXPENSES, expense.getEpochDay());
+            return contentHashes().count(ContentHashIndex.hash(expense));
+        });
+    }
+
+    /**
+     * @return How many stored incomes, hot or archived, have the same date and amount.
+     */
+    int countIdentical(Income income) {
+        return locked(() -> {
+            hashArchivedYear(ArchiveStore.Kind.INCOMES, income.getEpochDay());
+            return contentHashes().count(ContentHashIndex.hash(income));
+        });
+    }
+
+    private ContentHashIndex contentHashes() {
+        if (contentHashes == null) {
+            contentHashes = new ContentHashIndex();
+            hashedArchiveYears.clear();
+            for (int slot = 0; slot < expenseColumns.size(); slot++) {
+                if (expenseColumns.isLive(slot)) {
+                    contentHashes.add(expenseHash(expenseColumns, slot));
+                }
+            }
+            for (int slot = 0; slot < incomeColumns.size(); slot++) {
+                if (incomeColumns.isLive(slot)) {
+                    contentHashes.add(incomeHash(incomeColumns, slot));
+                }
+            }
+        }
+        return contentHashes;
+    }
+
+    /**
+     * Folds an archived year into the content hashes the first time a transaction of that
+     * year is looked up. Archived years are read-only, so this is done once per year.
+     */
+    private void hashArchivedYear(ArchiveStore.Kind kind, int epochDay) {
+        int year = LocalDate.ofEpochDay(epochDay).getYear();
+        ContentHashIndex hashes = contentHashes();
+        if (!archive.summaries(kind).containsKey(year)
+                || !hashedArchiveYears.add(kind == ArchiveStore.Kind.EXPENSES ? year : -year - 1)) {
+            return;
+        }
+        try {
+            ArchivePartition partition = archive.partition(kind, year);
+            for (int i = 0; i < partition.size(); i++) {
+                hashes.add(kind == ArchiveStore.Kind.EXPENSES ? expenseHash(partition, i) : incomeHash(partition, i));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long expenseHash(TransactionRows rows, int slot) {
+        int categoryId = rows.categoryId(slot);
+        return ContentHashIndex.expense(rows.epochDay(slot), rows.cents(slot),
+                categoryId == CategoryDictionary.NO_CATEGORY ? null : rows.categories().nameOf(categoryId));
+    }
+
+    private static long incomeHash(TransactionRows rows, int slot) {
+        return ContentHashIndex.income(rows.epochDay(slot), rows.cents(slot));
+    }
+
+    /**
+     * Sets the journal size in bytes after which it is folded into a new snapshot.
+     * Has no effect when the storage is not journaled.
+     */
+    public void setCompactionThreshold(long bytes) {
+        if (journal != null) {
+            journal.setCompactionThreshold(bytes);
+        }
+    }
+
+    /**
+     * Sets when the background writer pushes journal entries to disk.
+     * Has no effect when the storage is not journaled, where every change is written synchronously.
+     */
+    public void setWritePolicy(WritePolicy policy) {
+        if (journal != null) {
+            journal.setWritePolicy(policy);
+        }
+    }
+
+    /**
+     * Sets how many calendar years, counting the current one, stay in memory. Older
+     * transactions are moved to the archive when the storage is loaded.
+     * Zero or less keeps every year in memory. Must be called before loading.
+     */
+    public void setHotYears(int years) {
+        this.hotYears = years;
+    }
+
+    /**
+     * Sets how much memory decompressed archive partitions may hold before the least
+     * recently used ones are dropped again.
+     */
+    public void setArchiveMemoryBudget(long bytes) {
+        archive.setMemoryBudget(bytes);
+    }
+
+    /**
+     * Blocks until every change made so far is on disk.
+     */
+    public void flush() {
+        if (journal != null) {
+            journal.flush();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (loaded && journal.needsCompaction()) {
+            journal.compact(expenseColumns.snapshot(), incomeColumns.snapshot());
+        }
+    }
+
+    /**
+     * Appends the expense to the columns, notifies listeners and returns the view that
+     * represents it in the storage. A detached expense is bound in place, so callers keep
+     * identity with what they added.
+     */
+    private Expense store(Expense expense) {
+        // Adding an already stored expense again records a copy under a new id
+        int id = expense.isBound() ? 0 : expense.getId();
+        int slot = expenseColumns.append(id, expense.getAmount(), expense.getCategory(), expense.getEpochDay());
+        if (expense.isBound()) {
+            expense = new Expense(expenseColumns, slot);
+        } else {
+            expense.bind(expenseColumns, slot);
+        }
+        return indexExpense(expense, slot);
+    }
+
+    private Income store(Income income) {
+        int id = income.isBound() ? 0 : income.getId();
+        int slot = incomeColumns.append(id, income.getAmount(), null, income.getEpochDay());
+        if (income.isBound()) {
+            income = new Income(incomeColumns, slot);
+        } else {
+            income.bind(incomeColumns, slot);
+        }
+        return indexIncome(income, slot);
+    }
+
+    private Expense indexExpense(Expense expense, int slot) {
+        expensesByDate.add(expenseColumns.epochDay(slot), slot);
+        expensesByCategory.add(expenseColumns.categoryId(slot), slot);
+        if (expensesByAmount != null) {
+            expensesByAmount.add(expenseColumns.cents(slot), slot);
+        }
+        if (contentHashes != null) {
+            contentHashes.add(expenseHash(expenseColumns, slot));
+        }
+        expenseChanges.added(slot);
+        reportCache.touched(expenseColumns.epochDay(slot));
+        for (TransactionListener listener : listeners) {
+            listener.expenseAdded(expense);
+        }
+        return expense;
+    }
+
+    private Income indexIncome(Income income, int slot) {
+        incomesByDate.add(incomeColumns.epochDay(slot), slot);
+        if (contentHashes != null) {
+            contentHashes.add(incomeHash(incomeColumns, slot));
+        }
+        incomeChanges.added(slot);
+        reportCache.touched(incomeColumns.epochDay(slot));
+        for (TransactionListener listener : listeners) {
+            listener.incomeAdded(income);
+        }
+        return income;
+    }
+
+    /**
+     * Removes the expense with the given id from the indexes and the columns, then tells
+     * the listeners and queues the change for the lists. The id-to-slot index finds the row,
+     * so nothing is searched. The removed row stays readable.
+     * @return The removed expense, or null if no stored expense has that id.
+     */
+    private Expense unstore(int id) {
+        int slot = expenseColumns.slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        Expense expense = new Expense(expenseColumns, slot);
+        expensesByDate.remove(expenseColumns.epochDay(slot), slot);
+        expensesByCategory.remove(expenseColumns.categoryId(slot), slot);
+        if (expensesByAmount != null) {
+            expensesByAmount.remove(expenseColumns.cents(slot), slot);
+        }
+        if (contentHashes != null) {
+            contentHashes.remove(expenseHash(expenseColumns, slot));
+        }
+        expenseColumns.remove(slot);
+        expenseChanges.removed(slot);
+        reportCache.touched(expenseColumns.epochDay(slot));
+        for (TransactionListener listener : listeners) {
+            listener.expenseRemoved(expense);
+        }
+        return expense;
+    }
+
+    private Income unstoreIncome(int id) {
+        int slot = incomeColumns.slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        Income income = new Income(incomeColumns, slot);
+        incomesByDate.remove(incomeColumns.epochDay(slot), slot);
+        if (contentHashes != null) {
+            contentHashes.remove(incomeHash(incomeColumns, slot));
+        }
+        incomeColumns.remove(slot);
+        incomeChanges.removed(slot);
+        reportCache.touched(incomeColumns.epochDay(slot));
+        for (TransactionListener listener : listeners) {
+            listener.incomeRemoved(income);
+        }
+        return income;
+    }
+
+    ReportCache getReportCache() {
+        return reportCache;
+    }
+
+    /**
+     * Sets how many reports are kept for repeated queries, least recently used first out.
+     */
+    public void setReportCacheCapacity(int reports) {
+        reportCache.setCapacity(reports);
+    }
+
+    ArchiveStore getArchive() {
+        return archive;
     }
 
     private void saveExpenses() {
-        try (FileWriter writer = new FileWriter(EXPENSES_FILE)) {
-            gson.toJson(expenses, writer);
-            System.out.println("Expenses saved to " + new File(EXPENSES_FILE).getAbsolutePath());
+        try {
+            long start = System.nanoTime();
+            SnapshotFormat.of(new File(expensesFile)).writeExpenses(new File(expensesFile), expenseColumns);
+            metrics.recordSave(System.nanoTime() - start, new File(expensesFile).length(), expenseColumns.liveCount());
+            System.out.println("Expenses saved to " + new File(expensesFile).getAbsolutePath());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     private void saveIncomes() {
-        try (FileWriter writer = new FileWriter(INCOME_FILE)) {
-            gson.toJson(incomes, writer);
-            System.out.println("Incomes saved to " + new File(INCOME_FILE).getAbsolutePath());
+        try {
+            long start = System.nanoTime();
+            SnapshotFormat.of(new File(incomesFile)).writeIncomes(new File(incomesFile), incomeColumns);
+            metrics.recordSave(System.nanoTime() - start, new File(incomesFile).length(), incomeColumns.liveCount());
+            System.out.println("Incomes saved to " + new File(incomesFile).getAbsolutePath());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Loads the last snapshot and, in journaled mode, replays the journal tail on top of it.
+     * Runs on the calling thread; the JavaFX front end uses {@link StorageLoadTask} instead.
+     */
+    public void load() {
+        recoverJournal();
+        openArchive();
+        loadExpenses();
+        loadIncomes();
+        inBatch(() -> replayJournal(this::applyJournalEntry));
+        ArchivePlan plan = planArchive();
+        writeArchive(plan);
+        applyArchive(plan);
+        finishLoading();
+    }
+
     public void loadExpenses() {
-        File file = new File(EXPENSES_FILE);
+        streamExpenses(Runnable::run, read -> { });
+    }
+
+    public void loadIncomes() {
+        streamIncomes(Runnable::run, read -> { });
+    }
+
+    /**
+     * Writes the current expenses and incomes to the given files, in the format their
+     * extensions select. Exporting to ".seg" files converts JSON data to the binary
+     * segment format, and exporting to ".json" files converts it back.
+     * Only the hot years are written; archived years stay in the archive.
+     */
+    public void exportTo(String expensesFile, String incomesFile) throws IOException {
+        File expensesTarget = new File(expensesFile);
+        File incomesTarget = new File(incomesFile);
+        TransactionRows[] snapshots = locked(() -> new TransactionRows[]{expenseColumns.snapshot(), incomeColumns.snapshot()});
+        SnapshotFormat.of(expensesTarget).writeExpenses(expensesTarget, snapshots[0]);
+        SnapshotFormat.of(incomesTarget).writeIncomes(incomesTarget, snapshots[1]);
+    }
+
+    /**
+     * Moves a chunk of freshly read expenses into the columns, as one change of the lists.
+     */
+    private void appendLoadedExpenses(List<Expense> chunk) {
+        inBatch(() -> chunk.forEach(this::store));
+    }
+
+    private void appendLoadedIncomes(List<Income> chunk) {
+        inBatch(() -> chunk.forEach(this::store));
+    }
+
+    /**
+     * Runs a bulk change under the storage lock, so that every list fires a single change
+     * event for it.
+     */
+    private void inBatch(Runnable changes) {
+        beginBatch();
+        try {
+            changes.run();
+        } finally {
+            endBatch();
+        }
+    }
+
+    private void beginBatch() {
+        lock.lock();
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch; the outermost one hands the rows it added and removed to the lists.
+     */
+    private void endBatch() {
+        try {
+            if (--batchDepth == 0) {
+                publishChanges();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publishChanges() {
+        version++;
+        reportCache.published(version);
+        if (!expenseChanges.isEmpty()) {
+            PagedTransactionList.Changes changes = expenseChanges;
+            expenseChanges = new PagedTransactionList.Changes();
+            for (PagedTransactionList<Expense> view : expenseViews) {
+                listUpdates.add(new ListUpdate(view, changes));
+            }
+        }
+        if (!incomeChanges.isEmpty()) {
+            PagedTransactionList.Changes changes = incomeChanges;
+            incomeChanges = new PagedTransactionList.Changes();
+            listUpdates.add(new ListUpdate(incomes, changes));
+        }
+        // One drain at a time is handed to the executor; batches published meanwhile join it
+        if (!listUpdates.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+            listExecutor.execute(this::drainListUpdates);
+        }
+    }
+
+    /**
+     * The rows a batch added and removed, on their way to one of the lists.
+     */
+    private static final class ListUpdate {
+        final PagedTransactionList<?> list;
+        PagedTransactionList.Changes changes;
+        // Whether changes is a private copy that later batches may be merged into
+        boolean merged;
+
+        ListUpdate(PagedTransactionList<?> list, PagedTransactionList.Changes changes) {
+            this.list = list;
+            this.changes = changes;
+        }
+
+        void merge(PagedTransactionList.Changes later) {
+            if (!merged) {
+                // The views of one list share a batch's changes, so they are copied before growing
+                PagedTransactionList.Changes copy = new PagedTransactionList.Changes();
+                copy.addAll(changes);
+                changes = copy;
+                merged = true;
+            }
+            changes.addAll(later);
+        }
+    }
+
+    /**
+     * Applies the queued list updates, merged per list, so however many batches were
+     * published since the last drain each list fires one change event. On the JavaFX
+     * application thread that is one event per list for everything ingested in between,
+     * instead of a runLater and a relayout per batch. Runs on the list executor only, so the
+     * lists are never updated from two threads at once.
+     */
+    private void drainListUpdates() {
+        // Cleared first: a batch published from here on schedules the next drain
+        drainScheduled.set(false);
+        List<ListUpdate> perList = new ArrayList<>(expenseViews.size() + 1);
+        ListUpdate update;
+        while ((update = listUpdates.poll()) != null) {
+            ListUpdate pending = null;
+            for (ListUpdate candidate : perList) {
+                if (candidate.list == update.list) {
+                    pending = candidate;
+                    break;
+                }
+            }
+            if (pending == null) {
+                perList.add(update);
+            } else {
+                pending.merge(update.changes);
+            }
+        }
+        for (ListUpdate pending : perList) {
+            pending.list.apply(pending.changes);
+        }
+    }
+
+    /**
+     * Reads the expenses snapshot chunk by chunk without holding a second copy of the file.
+     * Each chunk arrives as an action that moves it into the storage, so the caller decides
+     * which thread applies it.
+     * @param chunks   Receives one action per chunk, in file order.
+     * @param progress Receives the number of characters or bytes consumed so far.
+     */
+    void streamExpenses(Consumer<Runnable> chunks, LongConsumer progress) {
+        File file = new File(expensesFile);
         if (file.exists() && file.length() > 0) {
-            try (FileReader reader = new FileReader(file)) {
-                List<Expense> expenseList = gson.fromJson(reader, new com.google.gson.reflect.TypeToken<List<Expense>>() {}.getType());
-                expenses.addAll(expenseList);
-            } catch (IOException e) {
+            try {
+                if (SnapshotFormat.of(file) == SnapshotFormat.SEGMENT) {
+                    streamSegment(SegmentFile.open(file), categories, chunks, progress, this::appendSegmentExpenses);
+                } else {
+                    TransactionReader.readExpenses(file, chunk -> chunks.accept(() -> appendLoadedExpenses(chunk)), progress);
+                }
+            } catch (IOException | JsonParseException e) {
                 e.printStackTrace();
             }
         } else {
@@ -75,13 +1234,19 @@ public class FinanceDataStorage {
         }
     }
 
-    public void loadIncomes() {
-        File file = new File(INCOME_FILE);
+    /**
+     * Reads the incomes snapshot chunk by chunk, like {@link #streamExpenses}.
+     */
+    void streamIncomes(Consumer<Runnable> chunks, LongConsumer progress) {
+        File file = new File(incomesFile);
         if (file.exists() && file.length() > 0) {
-            try (FileReader reader = new FileReader(file)) {
-                List<Income> incomeList = gson.fromJson(reader, new com.google.gson.reflect.TypeToken<List<Income>>() {}.getType());
-                incomes.addAll(incomeList);
-            } catch (IOException e) {
+            try {
+                if (SnapshotFormat.of(file) == SnapshotFormat.SEGMENT) {
+                    streamSegment(SegmentFile.open(file), null, chunks, progress, this::appendSegmentIncomes);
+                } else {
+                    TransactionReader.readIncomes(file, chunk -> chunks.accept(() -> appendLoadedIncomes(chunk)), progress);
+                }
+            } catch (IOException | JsonParseException e) {
                 e.printStackTrace();
             }
         } else {
@@ -89,8 +1254,304 @@ public class FinanceDataStorage {
         }
     }
 
+    private interface SegmentRange {
+        void append(SegmentFile segment, int[] categoryIds, int from, int to);
+    }
+
+    private static void streamSegment(SegmentFile segment, CategoryDictionary dictionary, Consumer<Runnable> chunks,
+                                      LongConsumer progress, SegmentRange sink) {
+        int[] categoryIds = segment.mapCategories(dictionary);
+        for (int from = 0; from < segment.count(); from += TransactionReader.DEFAULT_CHUNK_SIZE) {
+            int start = from;
+            int end = Math.min(segment.count(), from + TransactionReader.DEFAULT_CHUNK_SIZE);
+            chunks.accept(() -> sink.append(segment, categoryIds, start, end));
+            progress.accept(segment.endOf(end));
+        }
+    }
+
+    /**
+     * Copies a range of segment records straight into the columns; no Expense is decoded
+     * before its row exists, only the view handed to listeners.
+     */
+    private void appendSegmentExpenses(SegmentFile segment, int[] categoryIds, int from, int to) {
+        inBatch(() -> {
+            for (int i = from; i < to; i++) {
+                int categoryId = segment.categoryId(i);
+                int slot = expenseColumns.append(segment.id(i), segment.cents(i), segment.epochDay(i),
+                        categoryId == CategoryDictionary.NO_CATEGORY ? categoryId : categoryIds[categoryId]);
+                indexExpense(new Expense(expenseColumns, slot), slot);
+            }
+        });
+    }
+
+    private void appendSegmentIncomes(SegmentFile segment, int[] categoryIds, int from, int to) {
+        inBatch(() -> {
+            for (int i = from; i < to; i++) {
+                int slot = incomeColumns.append(segment.id(i), segment.cents(i), segment.epochDay(i),
+                        CategoryDictionary.NO_CATEGORY);
+                indexIncome(new Income(incomeColumns, slot), slot);
+            }
+        });
+    }
+
+    /**
+     * @return The combined size of the snapshot files, used as the total for load progress.
+     */
+    long snapshotSize() {
+        return new File(expensesFile).length() + new File(incomesFile).length();
+    }
+
+    /**
+     * Reads the archive manifest and adds the archived years to the aggregates.
+     */
+    void openArchive() {
+        try {
+            archive.open();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        inBatch(() -> {
+            addArchivedTotals(archive.summaries(ArchiveStore.Kind.EXPENSES), ArchiveStore.Kind.EXPENSES, 1);
+            addArchivedTotals(archive.summaries(ArchiveStore.Kind.INCOMES), ArchiveStore.Kind.INCOMES, 1);
+            expenseColumns.reserveIds(archive.maxId(ArchiveStore.Kind.EXPENSES));
+            incomeColumns.reserveIds(archive.maxId(ArchiveStore.Kind.INCOMES));
+        });
+    }
+
+    private void addArchivedTotals(Map<Integer, List<ArchiveStore.Cell>> years, ArchiveStore.Kind kind, int sign) {
+        for (List<ArchiveStore.Cell> cells : years.values()) {
+            for (ArchiveStore.Cell cell : cells) {
+                reportCache.touchedMonth(cell.month);
+                YearMonth month = YearMonth.of(Math.floorDiv(cell.month, 12), Math.floorMod(cell.month, 12) + 1);
+                if (kind == ArchiveStore.Kind.EXPENSES) {
+                    aggregates.addExpenseTotals(categories.canonical(cell.category), month,
+                            sign * cell.cents, sign * cell.count);
+                    balances.addMonth(cell.month, -sign * cell.cents);
+                } else {
+                    aggregates.addIncomeTotals(month, sign * cell.cents, sign * cell.count);
+                    balances.addMonth(cell.month, sign * cell.cents);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hot rows dated before the hot years, grouped by year, on their way to the archive.
+     * Planning and applying lock the storage; writing runs unlocked in between.
+     */
+    static final class ArchivePlan {
+        private final NavigableMap<Integer, TransactionColumns> expenses = new TreeMap<>();
+        private final NavigableMap<Integer, TransactionColumns> incomes = new TreeMap<>();
+        private final NavigableMap<Integer, List<ArchiveStore.Cell>> previousExpenses = new TreeMap<>();
+        private final NavigableMap<Integer, List<ArchiveStore.Cell>> previousIncomes = new TreeMap<>();
+        private boolean written;
+
+        boolean isEmpty() {
+            return expenses.isEmpty() && incomes.isEmpty();
+        }
+    }
+
+    ArchivePlan planArchive() {
+        ArchivePlan plan = new ArchivePlan();
+        if (hotYears <= 0) {
+            return plan;
+        }
+        exclusively(() -> copyArchivedRows(plan));
+        return plan;
+    }
+
+    private void copyArchivedRows(ArchivePlan plan) {
+        int cutoffDay = (int) LocalDate.now().minusYears(hotYears - 1).withDayOfYear(1).toEpochDay();
+        expensesByDate.forEachSlot(Integer.MIN_VALUE, cutoffDay - 1,
+                slot -> copyRow(expenseColumns, slot, plan.expenses, categories));
+        incomesByDate.forEachSlot(Integer.MIN_VALUE, cutoffDay - 1,
+                slot -> copyRow(incomeColumns, slot, plan.incomes, null));
+        NavigableMap<Integer, List<ArchiveStore.Cell>> expenseSummaries = archive.summaries(ArchiveStore.Kind.EXPENSES);
+        NavigableMap<Integer, List<ArchiveStore.Cell>> incomeSummaries = archive.summaries(ArchiveStore.Kind.INCOMES);
+        for (int year : plan.expenses.keySet()) {
+            plan.previousExpenses.put(year, expenseSummaries.getOrDefault(year, List.of()));
+        }
+        for (int year : plan.incomes.keySet()) {
+            plan.previousIncomes.put(year, incomeSummaries.getOrDefault(year, List.of()));
+        }
+    }
+
+    private static void copyRow(TransactionColumns columns, int slot, Map<Integer, TransactionColumns> years,
+                                CategoryDictionary dictionary) {
+        int year = columns.date(slot).getYear();
+        years.computeIfAbsent(year, key -> new TransactionColumns(dictionary))
+                .append(columns.id(slot), columns.cents(slot), columns.epochDay(slot), columns.categoryId(slot));
+    }
+
+    /**
+     * Merges the planned rows into the archive files. Nothing in memory changes yet,
+     * so a failure here leaves the rows hot.
+     */
+    void writeArchive(ArchivePlan plan) {
+        if (plan.isEmpty()) {
+            return;
+        }
+        try {
+            for (Map.Entry<Integer, TransactionColumns> year : plan.expenses.entrySet()) {
+                archive.write(ArchiveStore.Kind.EXPENSES, year.getKey(), year.getValue());
+            }
+            for (Map.Entry<Integer, TransactionColumns> year : plan.incomes.entrySet()) {
+                archive.write(ArchiveStore.Kind.INCOMES, year.getKey(), year.getValue());
+            }
+            plan.written = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Drops the archived rows from memory, swaps their years' totals for the new archive
+     * totals and writes a hot snapshot without them.
+     */
+    void applyArchive(ArchivePlan plan) {
+        if (plan.written) {
+            exclusively(() -> dropArchivedRows(plan));
+        }
+    }
+
+    private void dropArchivedRows(ArchivePlan plan) {
+        int archived = 0;
+        for (TransactionColumns rows : plan.expenses.values()) {
+            archived += rows.size();
+        }
+        for (TransactionColumns rows : plan.incomes.values()) {
+            archived += rows.size();
+        }
+        // Rows change from hot to archived; the content hashes are rebuilt on the next import
+        contentHashes = null;
+        inBatch(() -> {
+            for (TransactionColumns rows : plan.expenses.values()) {
+                for (int slot = 0; slot < rows.size(); slot++) {
+                    unstore(rows.id(slot));
+                }
+            }
+            for (TransactionColumns rows : plan.incomes.values()) {
+                for (int slot = 0; slot < rows.size(); slot++) {
+                    unstoreIncome(rows.id(slot));
+                }
+            }
+            addArchivedTotals(plan.previousExpenses, ArchiveStore.Kind.EXPENSES, -1);
+            addArchivedTotals(plan.previousIncomes, ArchiveStore.Kind.INCOMES, -1);
+            NavigableMap<Integer, List<ArchiveStore.Cell>> expenseSummaries = archive.summaries(ArchiveStore.Kind.EXPENSES);
+            NavigableMap<Integer, List<ArchiveStore.Cell>> incomeSummaries = archive.summaries(ArchiveStore.Kind.INCOMES);
+            expenseSummaries.keySet().retainAll(plan.expenses.keySet());
+            incomeSummaries.keySet().retainAll(plan.incomes.keySet());
+            addArchivedTotals(expenseSummaries, ArchiveStore.Kind.EXPENSES, 1);
+            addArchivedTotals(incomeSummaries, ArchiveStore.Kind.INCOMES, 1);
+        });
+        System.out.println("Archived " + archived + " transactions dated before the last " + hotYears + " years.");
+        if (journal != null) {
+            // The archived rows must leave the journal, so a compaction already under way,
+            // which started from the rows before archiving, is waited out and another one started
+            try {
+                while (!journal.compact(expenseColumns.snapshot(), incomeColumns.snapshot()) && !journal.isClosed()) {
+                    journal.awaitCompaction();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            saveExpenses();
+            saveIncomes();
+        }
+    }
+
+    /**
+     * Finishes an interrupted compaction. This is the first step of every load, so it also
+     * starts the load timer.
+     */
+    void recoverJournal() {
+        loadStarted = System.nanoTime();
+        if (journal != null) {
+            journal.recover();
+        }
+    }
+
+    void replayJournal(Consumer<TransactionJournal.Entry> sink) {
+        if (journal != null) {
+            journal.replay(sink);
+        }
+    }
+
+    /**
+     * Marks the initial load as complete. Compaction is held back until then, since a
+     * snapshot of a partially loaded storage would lose data, and so are adds and removes.
+     */
+    void finishLoading() {
+        exclusively(() -> {
+            loaded = true;
+            metrics.recordLoad(System.nanoTime() - loadStarted, expenseColumns.liveCount() + incomeColumns.liveCount());
+        });
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
     public void removeExpense(Expense expense) {
-        expenses.remove(expense);
-        saveExpenses();
+        if (expense.getColumns() == expenseColumns) {
+            removeExpense(expense.getId());
+        }
+    }
+
+    /**
+     * Removes the expense with the given id.
+     * @return Whether a stored expense had that id.
+     * @throws IllegalArgumentException If the expense is archived.
+     */
+    public boolean removeExpense(int id) {
+        return removeAll(new int[]{id}, NO_IDS) > 0;
+    }
+
+    /**
+     * Removes the income with the given id.
+     * @return Whether a stored income had that id.
+     * @throws IllegalArgumentException If the income is archived.
+     */
+    public boolean removeIncome(int id) {
+        return removeAll(NO_IDS, new int[]{id}) > 0;
+    }
+
+    /**
+     * Writes out pending changes and closes the journal, waiting for a running compaction to finish.
+     */
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+        metrics.close();
+    }
+
+    void applyJournalEntry(TransactionJournal.Entry entry) {
+        inBatch(() -> {
+            switch (entry.op) {
+                case ADD_EXPENSE:
+                    store(entry.expense);
+                    break;
+                case REMOVE_EXPENSE:
+                    unstore(entry.expense.getId());
+                    break;
+                case ADD_INCOME:
+                    store(entry.income);
+                    break;
+                case REMOVE_INCOME:
+                    unstoreIncome(entry.income.getId());
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
+
+    /**
+     * Replays a run of journal entries as one change of the lists.
+     */
+    void applyJournalEntries(List<TransactionJournal.Entry> entries) {
+        inBatch(() -> entries.forEach(this::applyJournalEntry));
     }
 }
@@ -2,30 +2,69 @@ package com.example.financetracker;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.geometry.Side;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 
+import java.io.File;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 public class FinanceTrackerController {
+    private static final int BALANCE_POINTS = 60;
+    private static final int SHOWN_ALERTS = 100;
+    private static final int CATEGORY_SUGGESTIONS = 8;
+
     private FinanceDataStorage storage;
+    private ReportGenerator reports;
+    private PagedTransactionList<Expense> tableRows;
 
     @FXML
     private TextField amountField;
     @FXML
     private TextField categoryField;
     @FXML
+    private TextField categoryFilterField;
+    @FXML
     private Button addExpenseButton;
     @FXML
     private Button addIncomeButton;
     @FXML
+    private Button budgetButton;
+    @FXML
     private Button deleteButton;
     @FXML
     private Button reportButton;
+    @FXML
+    private Button importButton;
+    @FXML
+    private Button balanceButton;
+
+    @FXML
+    private ProgressBar loadProgress;
+    @FXML
+    private Label statusLabel;
+
+    @FXML
+    private LineChart<String, Number> balanceChart;
+    @FXML
+    private ListView<Alert> alertList;
 
     @FXML
     private TableView<Expense> expenseTable;
@@ -36,26 +75,131 @@ public class FinanceTrackerController {
     @FXML
     private TableColumn<Expense, LocalDate> dateColumn;
 
-    private ObservableList<Expense> expenseList = FXCollections.observableArrayList();
-
     public void setFinanceDataStorage(FinanceDataStorage storage) {
         this.storage = storage;
-        expenseList.setAll(storage.getExpenses());
-        expenseTable.setItems(expenseList);
+        this.reports = new ReportGenerator(storage);
+        tableRows = storage.openExpenseView();
+        expenseTable.setItems(tableRows);
+        // Alerts are raised on the writing thread
+        storage.getAlerts().getRecentAlerts().forEach(this::showAlert);
+        storage.getAlerts().addAlertListener(alert ->
+                FinanceDataStorage.FX_APPLICATION_THREAD.execute(() -> showAlert(alert)));
+    }
+
+    /**
+     * Shows the progress of a background load or import and keeps editing disabled until it finishes.
+     */
+    public void bindLoadTask(Task<?> task) {
+        loadProgress.progressProperty().bind(task.progressProperty());
+        loadProgress.visibleProperty().bind(task.runningProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        addExpenseButton.disableProperty().bind(task.runningProperty());
+        addIncomeButton.disableProperty().bind(task.runningProperty());
+        deleteButton.disableProperty().bind(task.runningProperty());
+        importButton.disableProperty().bind(task.runningProperty());
+        task.setOnFailed(event -> task.getException().printStackTrace());
     }
 
     @FXML
     public void initialize() {
-        addExpenseButton.setOnAction(event -> addExpense());
-        addIncomeButton.setOnAction(event -> addIncome());
-        deleteButton.setOnAction(event -> deleteSelected());
-        reportButton.setOnAction(event -> generateReport());
+        addExpenseButton.setOnAction(event -> timed(this::addExpense));
+        addIncomeButton.setOnAction(event -> timed(this::addIncome));
+        budgetButton.setOnAction(event -> timed(this::setBudget));
+        deleteButton.setOnAction(event -> timed(this::deleteSelected));
+        reportButton.setOnAction(event -> timed(this::generateReport));
+        importButton.setOnAction(event -> timed(this::importCsv));
+        balanceButton.setOnAction(event -> timed(this::showBalance));
+        categoryFilterField.setOnAction(event -> timed(this::applyCategoryFilter));
+        suggestCategories(categoryField);
+        suggestCategories(categoryFilterField);
 
         amountColumn.setCellValueFactory(new PropertyValueFactory<>("amount"));
         categoryColumn.setCellValueFactory(new PropertyValueFactory<>("category"));
         dateColumn.setCellValueFactory(new PropertyValueFactory<>("date"));
+        expenseTable.setSortPolicy(table -> {
+            long start = System.nanoTime();
+            boolean sorted = sortTable();
+            if (storage != null) {
+                storage.getMetrics().uiActions.recordSince(start);
+            }
+            return sorted;
+        });
+    }
+
+    /**
+     * Offers the known categories matching what is typed into the field in a popup under it,
+     * so one category is not entered under several spellings.
+     */
+    private void suggestCategories(TextField field) {
+        ContextMenu suggestions = new ContextMenu();
+        field.textProperty().addListener((observable, before, typed) -> {
+            if (storage == null || !field.isFocused() || typed == null) {
+                suggestions.hide();
+                return;
+            }
+            List<String> names = storage.suggestCategories(typed, CATEGORY_SUGGESTIONS);
+            if (names.isEmpty() || names.size() == 1 && names.get(0).equals(typed)) {
+                suggestions.hide();
+                return;
+            }
+            List<MenuItem> items = new ArrayList<>(names.size());
+            for (String name : names) {
+                MenuItem item = new MenuItem(name);
+                item.setOnAction(event -> {
+                    field.setText(name);
+                    field.positionCaret(name.length());
+                    suggestions.hide();
+                });
+                items.add(item);
+            }
+            suggestions.getItems().setAll(items);
+            if (!suggestions.isShowing()) {
+                suggestions.show(field, Side.BOTTOM, 0, 0);
+            }
+        });
+        field.focusedProperty().addListener((observable, wasFocused, focused) -> {
+            if (!focused) {
+                suggestions.hide();
+            }
+        });
+    }
+
+    /**
+     * Runs a UI action and records how long it held the application thread.
+     */
+    private void timed(Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        if (storage != null) {
+            storage.getMetrics().uiActions.recordSince(start);
+        }
+    }
 
-        expenseTable.setItems(expenseList);
+    /**
+     * Sorts the table from the storage's indexes instead of comparing rows, so the full
+     * expense list stays virtual. A filtered list is small and sorted in place.
+     */
+    private boolean sortTable() {
+        if (tableRows == null) {
+            return false;
+        }
+        if (isFiltered()) {
+            if (expenseTable.getComparator() != null) {
+                FXCollections.sort(expenseTable.getItems(), expenseTable.getComparator());
+            }
+            return true;
+        }
+        TableColumn<Expense, ?> column = expenseTable.getSortOrder().isEmpty() ? null : expenseTable.getSortOrder().get(0);
+        PagedTransactionList.SlotOrder order = null;
+        if (column == amountColumn) {
+            order = storage.expenseAmountOrder();
+        } else if (column == categoryColumn) {
+            order = storage.expenseCategoryOrder();
+        } else if (column == dateColumn) {
+            order = storage.expenseDateOrder();
+        }
+        tableRows.sortBy(order, column != null && column.getSortType() == TableColumn.SortType.DESCENDING);
+        return true;
     }
 
     private void addExpense() {
@@ -78,7 +222,10 @@ public class FinanceTrackerController {
         LocalDate date = LocalDate.now();
         Expense expense = new Expense(amount, category, date);
         storage.addExpense(expense);
-        expenseList.add(expense);
+        if (isFiltered()) {
+            applyCategoryFilter();
+        }
+        refreshBalanceChart();
 
         // Clear the input fields after adding the expense
         amountField.clear();
@@ -99,22 +246,131 @@ public class FinanceTrackerController {
         LocalDate date = LocalDate.now();
         Income income = new Income(amount, date);
         storage.addIncome(income);
+        refreshBalanceChart();
 
         // Clear the input fields after adding the income
         amountField.clear();
         categoryField.clear();
     }
 
+    /**
+     * Sets the amount entered as the monthly budget of the category entered; 0 removes it.
+     */
+    private void setBudget() {
+        String category = categoryField.getText();
+        double amount;
+        try {
+            amount = Double.parseDouble(amountField.getText());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid amount");
+            return;
+        }
+        if (category.isEmpty()) {
+            System.out.println("Category cannot be empty");
+            return;
+        }
+        storage.getAlerts().setMonthlyBudget(category, amount);
+        amountField.clear();
+        categoryField.clear();
+    }
+
+    /**
+     * Shows an alert at the top of the alert list, dropping the oldest past SHOWN_ALERTS.
+     */
+    private void showAlert(Alert alert) {
+        alertList.getItems().add(0, alert);
+        if (alertList.getItems().size() > SHOWN_ALERTS) {
+            alertList.getItems().remove(SHOWN_ALERTS, alertList.getItems().size());
+        }
+    }
+
+    /**
+     * Asks for a CSV file and imports it in the background.
+     */
+    private void importCsv() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import CSV");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(expenseTable.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        CsvImportTask task = new CsvImportTask(storage, file);
+        bindLoadTask(task);
+        task.setOnSucceeded(event -> {
+            if (isFiltered()) {
+                applyCategoryFilter();
+            }
+            refreshBalanceChart();
+        });
+        Thread importThread = new Thread(task, "csv-import-task");
+        importThread.setDaemon(true);
+        importThread.start();
+    }
+
     private void deleteSelected() {
         Expense selectedExpense = expenseTable.getSelectionModel().getSelectedItem();
-        if (selectedExpense != null) {
-            expenseList.remove(selectedExpense);
-            storage.removeExpense(selectedExpense);
+        boolean removed;
+        try {
+            removed = selectedExpense != null && storage.removeExpense(selectedExpense.getId());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
         }
+        if (removed) {
+            if (isFiltered()) {
+                expenseTable.getItems().remove(selectedExpense);
+            }
+            refreshBalanceChart();
+        }
+    }
+
+    /**
+     * Shows only the expenses of the category typed into the filter field, looked up
+     * through the storage's category index. An empty filter shows everything again.
+     */
+    private void applyCategoryFilter() {
+        String category = categoryFilterField.getText().trim();
+        if (category.isEmpty()) {
+            expenseTable.setItems(tableRows);
+            return;
+        }
+        ObservableList<Expense> filtered = FXCollections.observableArrayList();
+        storage.getExpensesInCategory(category).forEach(filtered::add);
+        expenseTable.setItems(filtered);
+    }
+
+    private boolean isFiltered() {
+        return expenseTable.getItems() != tableRows;
     }
 
     private void generateReport() {
-        // Implement report generation logic
         System.out.println("Generating report...");
+        reports.generateReport();
+    }
+
+    /**
+     * Shows the balance chart, or hides it again when it is showing.
+     */
+    private void showBalance() {
+        boolean show = !balanceChart.isVisible();
+        balanceChart.setVisible(show);
+        balanceChart.setManaged(show);
+        refreshBalanceChart();
+    }
+
+    /**
+     * Redraws the balance chart from the storage's running balance, from the first
+     * transaction to the last, if the chart is showing.
+     */
+    private void refreshBalanceChart() {
+        if (!balanceChart.isVisible()) {
+            return;
+        }
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        for (Map.Entry<LocalDate, Double> point : storage.getBalanceOverTime(null, null, BALANCE_POINTS).entrySet()) {
+            series.getData().add(new XYChart.Data<>(point.getKey().toString(), point.getValue()));
+        }
+        balanceChart.getData().setAll(Collections.singletonList(series));
     }
 }
@@ -0,0 +1,247 @@
+package com.example.financetracker;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Result of a report run: totals, breakdowns per category and month, net cash flow and
+ * the distribution of expense amounts. Amounts are summed as whole cents, so results are
+ * exact and do not depend on how the work was split.
+ */
+public class FinancialReport {
+    static final int[] PERCENTILES = {25, 50, 75, 90, 99};
+    /**
+     * The category expenses without one are totalled under.
+     */
+    public static final String UNCATEGORIZED = "(none)";
+
+    private final ReportQuery query;
+    private final long incomeCents;
+    private final int incomeCount;
+    private final long expenseCents;
+    private final int expenseCount;
+    private final Map<String, Long> expensesByCategory;
+    private final Map<YearMonth, Long> expensesByMonth;
+    private final Map<YearMonth, Long> incomeByMonth;
+    // Computed on first use when the report was built without them
+    private Supplier<Map<Integer, Long>> percentileSource;
+    private Map<Integer, Long> expensePercentiles;
+
+    FinancialReport(ReportQuery query, long incomeCents, int incomeCount, long expenseCents, int expenseCount,
+                    Map<String, Long> expensesByCategory, Map<YearMonth, Long> expensesByMonth,
+                    Map<YearMonth, Long> incomeByMonth, Map<Integer, Long> expensePercentiles) {
+        this(query, incomeCents, incomeCount, expenseCents, expenseCount, expensesByCategory, expensesByMonth,
+                incomeByMonth, () -> expensePercentiles);
+    }
+
+    FinancialReport(ReportQuery query, long incomeCents, int incomeCount, long expenseCents, int expenseCount,
+                    Map<String, Long> expensesByCategory, Map<YearMonth, Long> expensesByMonth,
+                    Map<YearMonth, Long> incomeByMonth, Supplier<Map<Integer, Long>> expensePercentiles) {
+        this.query = query;
+        this.incomeCents = incomeCents;
+        this.incomeCount = incomeCount;
+        this.expenseCents = expenseCents;
+        this.expenseCount = expenseCount;
+        Map<String, Long> byCategory = new TreeMap<>();
+        expensesByCategory.forEach((category, cents) ->
+                byCategory.merge(category == null ? UNCATEGORIZED : category, cents, Long::sum));
+        this.expensesByCategory = Collections.unmodifiableMap(byCategory);
+        this.expensesByMonth = Collections.unmodifiableMap(new TreeMap<>(expensesByMonth));
+        this.incomeByMonth = Collections.unmodifiableMap(new TreeMap<>(incomeByMonth));
+        this.percentileSource = expensePercentiles;
+    }
+
+    public ReportQuery getQuery() {
+        return query;
+    }
+
+    public double getTotalIncome() {
+        return TransactionColumns.toAmount(incomeCents);
+    }
+
+    public double getTotalExpenses() {
+        return TransactionColumns.toAmount(expenseCents);
+    }
+
+    public double getNetCashFlow() {
+        return TransactionColumns.toAmount(incomeCents - expenseCents);
+    }
+
+    public int getIncomeCount() {
+        return incomeCount;
+    }
+
+    public int getExpenseCount() {
+        return expenseCount;
+    }
+
+    public double getAverageIncome() {
+        return incomeCount == 0 ? 0 : incomeCents / 100.0 / incomeCount;
+    }
+
+    public double getAverageExpense() {
+        return expenseCount == 0 ? 0 : expenseCents / 100.0 / expenseCount;
+    }
+
+    /**
+     * @return Expense totals per category, sorted by category name.
+     */
+    public Map<String, Double> getExpensesByCategory() {
+        return toAmounts(expensesByCategory);
+    }
+
+    /**
+     * @return Expense totals per month, in month order.
+     */
+    public Map<YearMonth, Double> getExpensesByMonth() {
+        return toAmounts(expensesByMonth);
+    }
+
+    /**
+     * @return Income totals per month, in month order.
+     */
+    public Map<YearMonth, Double> getIncomeByMonth() {
+        return toAmounts(incomeByMonth);
+    }
+
+    /**
+     * @return Income minus expenses for every month that has either, in month order.
+     */
+    public Map<YearMonth, Double> getNetByMonth() {
+        Map<YearMonth, Long> net = new TreeMap<>(incomeByMonth);
+        expensesByMonth.forEach((month, cents) -> net.merge(month, -cents, Long::sum));
+        return toAmounts(net);
+    }
+
+    /**
+     * @return The n categories with the highest expense totals, highest first.
+     */
+    public List<Map.Entry<String, Double>> getTopCategories(int n) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(expensesByCategory.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        List<Map.Entry<String, Double>> top = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(n, entries.size()))) {
+            top.add(Map.entry(entry.getKey(), TransactionColumns.toAmount(entry.getValue())));
+        }
+        return top;
+    }
+
+    /**
+     * @return Nearest-rank percentiles of single expense amounts, keyed by percentile.
+     */
+    public Map<Integer, Double> getExpensePercentiles() {
+        return toAmounts(expensePercentiles());
+    }
+
+    private synchronized Map<Integer, Long> expensePercentiles() {
+        if (expensePercentiles == null) {
+            expensePercentiles = Collections.unmodifiableMap(new LinkedHashMap<>(percentileSource.get()));
+            percentileSource = null;
+        }
+        return expensePercentiles;
+    }
+
+    private static <K> Map<K, Double> toAmounts(Map<K, Long> cents) {
+        Map<K, Double> amounts = new LinkedHashMap<>();
+        cents.forEach((key, value) -> amounts.put(key, TransactionColumns.toAmount(value)));
+        return amounts;
+    }
+
+    /**
+     * @return The report as the text block printed by the front ends.
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%n--- Financial Report (%s) ---%n", query));
+        text.append(String.format("Total Income: %.2f (%d entries, average %.2f)%n",
+                getTotalIncome(), incomeCount, getAverageIncome()));
+        text.append(String.format("Total Expenses: %.2f (%d entries, average %.2f)%n",
+                getTotalExpenses(), expenseCount, getAverageExpense()));
+        text.append(String.format("Net Cash Flow: %.2f%n", getNetCashFlow()));
+
+        text.append(String.format("%nTop categories:%n"));
+        for (Map.Entry<String, Double> entry : getTopCategories(5)) {
+            text.append(String.format("  %-20s %12.2f%n", entry.getKey(), entry.getValue()));
+        }
+
+        text.append(String.format("%nExpenses by category:%n"));
+        getExpensesByCategory().forEach((category, total) ->
+                text.append(String.format("  %-20s %12.2f%n", category, total)));
+
+        text.append(String.format("%n%-10s %12s %12s %12s%n", "Month", "Income", "Expenses", "Net"));
+        Map<YearMonth, Double> income = getIncomeByMonth();
+        Map<YearMonth, Double> expenses = getExpensesByMonth();
+        getNetByMonth().forEach((month, net) -> text.append(String.format("%-10s %12.2f %12.2f %12.2f%n",
+                month, income.getOrDefault(month, 0.0), expenses.getOrDefault(month, 0.0), net)));
+
+        if (!expensePercentiles().isEmpty()) {
+            text.append(String.format("%nExpense percentiles:%n"));
+            getExpensePercentiles().forEach((percentile, amount) ->
+                    text.append(String.format("  p%-3d %12.2f%n", percentile, amount)));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return The report as a JSON object, as served by TransactionServer and printed by BatchReport.
+     */
+    public String toJson() {
+        StringWriter text = new StringWriter();
+        try (JsonWriter out = new JsonWriter(text)) {
+            writeJson(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        if (query.getFrom() != null) {
+            out.name("from").value(query.getFrom().toString());
+        }
+        if (query.getTo() != null) {
+            out.name("to").value(query.getTo().toString());
+        }
+        if (query.getCategory() != null) {
+            out.name("category").value(query.getCategory());
+        }
+        out.name("totalIncome").value(getTotalIncome());
+        out.name("incomeCount").value(incomeCount);
+        out.name("totalExpenses").value(getTotalExpenses());
+        out.name("expenseCount").value(expenseCount);
+        out.name("netCashFlow").value(getNetCashFlow());
+        out.name("expensesByCategory").beginObject();
+        for (Map.Entry<String, Double> entry : getExpensesByCategory().entrySet()) {
+            out.name(entry.getKey()).value(entry.getValue());
+        }
+        out.endObject();
+        writeMonths(out, "expensesByMonth", getExpensesByMonth());
+        writeMonths(out, "incomeByMonth", getIncomeByMonth());
+        out.name("expensePercentiles").beginObject();
+        for (Map.Entry<Integer, Double> entry : getExpensePercentiles().entrySet()) {
+            out.name("p" + entry.getKey()).value(entry.getValue());
+        }
+        out.endObject();
+        out.endObject();
+    }
+
+    private static void writeMonths(JsonWriter out, String name, Map<YearMonth, Double> months) throws IOException {
+        out.name(name).beginObject();
+        for (Map.Entry<YearMonth, Double> entry : months.entrySet()) {
+            out.name(entry.getKey().toString()).value(entry.getValue());
+        }
+        out.endObject();
+    }
+}
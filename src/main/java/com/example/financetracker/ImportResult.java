@@ -0,0 +1,94 @@
+package com.example.financetracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: what was added, what was skipped as a duplicate and which
+ * lines could not be read. Only the first MAX_REPORTED_ERRORS errors are kept, but all
+ * of them are counted.
+ */
+public class ImportResult {
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * A line that was rejected, and why.
+     */
+    public static class LineError {
+        private final int line;
+        private final String message;
+
+        LineError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    private int expensesImported;
+    private int incomesImported;
+    private int duplicates;
+    private int errorCount;
+    private final List<LineError> errors = new ArrayList<>();
+
+    void addImported(int expenses, int incomes) {
+        expensesImported += expenses;
+        incomesImported += incomes;
+    }
+
+    void addDuplicate() {
+        duplicates++;
+    }
+
+    void addError(LineError error) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    public int getExpensesImported() {
+        return expensesImported;
+    }
+
+    public int getIncomesImported() {
+        return incomesImported;
+    }
+
+    /**
+     * @return The lines skipped because the storage already held the same transaction.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return The rejected lines in file order, at most MAX_REPORTED_ERRORS of them.
+     */
+    public List<LineError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + expensesImported + " expenses and " + incomesImported + " incomes, skipped "
+                + duplicates + " duplicates, " + errorCount + " lines with errors";
+    }
+}
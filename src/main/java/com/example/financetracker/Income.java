@@ -1,14 +1,17 @@
 package com.example.financetracker;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Represents an income with an amount and date.
+ * Like Expense, it becomes a flyweight view over the storage's columns once added.
  */
 public class Income {
+    private int id;
     private double amount;
-    private String date; //Gson does not support LocalDate
+    private int epochDay;
+    private transient TransactionColumns columns;
+    private transient int slot;
 
     /**
      * Constructs an Income object.
@@ -17,14 +20,90 @@ public class Income {
      */
     public Income(double amount, LocalDate date) {
         this.amount = amount;
-        this.date = date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+        this.epochDay = (int) date.toEpochDay();
+    }
+
+    /**
+     * Constructs an Income from values read from storage.
+     */
+    Income(int id, double amount, int epochDay) {
+        this.id = id;
+        this.amount = amount;
+        this.epochDay = epochDay;
+    }
+
+    /**
+     * Constructs a view over a stored row.
+     */
+    Income(TransactionColumns columns, int slot) {
+        bind(columns, slot);
+    }
+
+    /**
+     * Turns this income into a view over the given row.
+     */
+    void bind(TransactionColumns columns, int slot) {
+        this.columns = columns;
+        this.slot = slot;
+        this.id = 0;
+        this.amount = 0;
+        this.epochDay = 0;
+    }
+
+    boolean isBound() {
+        return columns != null;
+    }
+
+    TransactionColumns getColumns() {
+        return columns;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * @return The stable id assigned when the income was first stored, or 0 if it never was.
+     */
+    public int getId() {
+        return columns != null ? columns.id(slot) : id;
     }
 
     public double getAmount() {
-        return amount;
+        return columns != null ? columns.amount(slot) : amount;
     }
 
     public LocalDate getDate() {
-        return LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
+        return LocalDate.ofEpochDay(getEpochDay());
+    }
+
+    int getEpochDay() {
+        return columns != null ? columns.epochDay(slot) : epochDay;
+    }
+
+    /**
+     * Stored incomes are equal when they have the same id, so an index lookup or an archived
+     * copy can stand in for the instance held by the storage. Ones never stored compare by identity.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Income)) {
+            return false;
+        }
+        int id = getId();
+        return id != 0 && id == ((Income) o).getId();
+    }
+
+    /**
+     * Hashes the values as stored, which bind() keeps, so the hash does not change when the
+     * income is added to a storage.
+     */
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(TransactionColumns.toCents(getAmount()));
+        return 31 * result + getEpochDay();
     }
 }
@@ -0,0 +1,32 @@
+package com.example.financetracker;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array addressed by index, grown in fixed-size chunks.
+ * Unwritten positions read as zero.
+ */
+class IntColumn {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private int[][] chunks = new int[0][];
+
+    int get(int index) {
+        int chunk = index >>> CHUNK_SHIFT;
+        return chunk < chunks.length ? chunks[chunk][index & CHUNK_MASK] : 0;
+    }
+
+    void set(int index, int value) {
+        int chunk = index >>> CHUNK_SHIFT;
+        if (chunk >= chunks.length) {
+            int old = chunks.length;
+            chunks = Arrays.copyOf(chunks, chunk + 1);
+            for (int i = old; i <= chunk; i++) {
+                chunks[i] = new int[CHUNK_SIZE];
+            }
+        }
+        chunks[chunk][index & CHUNK_MASK] = value;
+    }
+}
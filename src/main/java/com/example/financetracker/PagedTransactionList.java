@@ -0,0 +1,372 @@
+package com.example.financetracker;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Read-only, virtualized ObservableList over the live rows of a column set.
+ * Nothing is kept per row but its slot: the list holds an int array of slots, in insertion
+ * order (which is slot order) or in a sorted order filled by walking one of the storage's
+ * sorted indexes. Views are built a page at a time for the rows actually read, plus the
+ * following page, and only a few recent pages are cached. The storage hands over the rows
+ * added and removed by each batch of changes, so the list fires exact change events, and
+ * re-sorting fires a permutation rather than replacing the contents.
+ * The list never reads the columns' live state, only the values of slots it was handed,
+ * which never change. So it may live on another thread than the writers, such as the JavaFX
+ * application thread, as long as batches reach it in order there.
+ * @param <T> The view type handed out for each row.
+ */
+class PagedTransactionList<T> extends ObservableListBase<T> {
+    static final int PAGE_SIZE = 128;
+    private static final int CACHED_PAGES = 8;
+
+    /**
+     * A sort order served from a storage index.
+     */
+    interface SlotOrder {
+        /**
+         * Passes every live slot to the action in ascending order.
+         */
+        void forEach(IntConsumer action);
+
+        /**
+         * Compares two slots consistently with {@link #forEach}, also for rows just removed.
+         */
+        int compare(int slot, int other);
+    }
+
+    /**
+     * The rows added and removed by one or more batches of changes to the storage.
+     */
+    static final class Changes {
+        private int[] added = new int[16];
+        private int addedCount;
+        private int[] removed = new int[16];
+        private int removedCount;
+
+        void added(int slot) {
+            if (addedCount == added.length) {
+                added = Arrays.copyOf(added, addedCount * 2);
+            }
+            added[addedCount++] = slot;
+        }
+
+        void removed(int slot) {
+            if (removedCount == removed.length) {
+                removed = Arrays.copyOf(removed, removedCount * 2);
+            }
+            removed[removedCount++] = slot;
+        }
+
+        boolean isEmpty() {
+            return addedCount == 0 && removedCount == 0;
+        }
+
+        /**
+         * Appends the changes of a later batch, so both reach the list as one change.
+         * A row added by one and removed by the other is dropped when applied.
+         */
+        void addAll(Changes later) {
+            added = append(added, addedCount, later.added, later.addedCount);
+            addedCount += later.addedCount;
+            removed = append(removed, removedCount, later.removed, later.removedCount);
+            removedCount += later.removedCount;
+        }
+
+        private static int[] append(int[] slots, int count, int[] more, int moreCount) {
+            if (count + moreCount > slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(count + moreCount, slots.length * 2));
+            }
+            System.arraycopy(more, 0, slots, count, moreCount);
+            return slots;
+        }
+    }
+
+    private final IntFunction<T> views;
+    private final Map<Integer, Object[]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    // The slots in the list, whatever its order
+    private final BitSet members = new BitSet();
+    // Insertion order is slot order, so it walks the list's own slots
+    private final SlotOrder insertionOrder = new SlotOrder() {
+        @Override
+        public void forEach(IntConsumer action) {
+            for (int slot = members.nextSetBit(0); slot >= 0; slot = members.nextSetBit(slot + 1)) {
+                action.accept(slot);
+            }
+        }
+
+        @Override
+        public int compare(int slot, int other) {
+            return Integer.compare(slot, other);
+        }
+    };
+    private SlotOrder order = insertionOrder;
+    private boolean descending;
+    // Slots in ascending order of the current order
+    private int[] sorted;
+    private int sortedSize;
+
+    /**
+     * Starts out with the live rows of the columns, in insertion order. The columns must not
+     * change while the list is built.
+     * @param views Creates the view for a slot when a row is read.
+     */
+    PagedTransactionList(TransactionColumns columns, IntFunction<T> views) {
+        this.views = views;
+        sorted = new int[Math.max(16, columns.liveCount())];
+        for (int slot = 0; slot < columns.size(); slot++) {
+            if (columns.isLive(slot)) {
+                sorted[sortedSize++] = slot;
+                members.set(slot);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return sortedSize;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size());
+        int page = index / PAGE_SIZE;
+        Object[] rows = page(page);
+        if ((page + 1) * PAGE_SIZE < size() && !pages.containsKey(page + 1)) {
+            page(page + 1);
+        }
+        return (T) rows[index - page * PAGE_SIZE];
+    }
+
+    private Object[] page(int page) {
+        Object[] rows = pages.get(page);
+        if (rows == null) {
+            int from = page * PAGE_SIZE;
+            rows = new Object[Math.min(size(), from + PAGE_SIZE) - from];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = views.apply(slotAt(from + i));
+            }
+            pages.put(page, rows);
+        }
+        return rows;
+    }
+
+    private int slotAt(int index) {
+        return sorted[descending ? sortedSize - 1 - index : index];
+    }
+
+    /**
+     * Switches to the given order and fires a permutation of the current rows.
+     * The index may already hold rows this list has not been handed yet, which are skipped,
+     * and miss rows whose removal has not reached it yet, which are merged back in.
+     * @param order The order to serve rows in, or null for insertion order.
+     */
+    void sortBy(SlotOrder order, boolean descending) {
+        int size = size();
+        int[] oldSlots = new int[size];
+        for (int i = 0; i < size; i++) {
+            oldSlots[i] = slotAt(i);
+        }
+
+        if (order == null) {
+            order = insertionOrder;
+        }
+        int[] slots = new int[Math.max(16, size)];
+        int[] walkedSlots = slots;
+        BitSet walked = new BitSet();
+        int[] count = new int[1];
+        order.forEach(slot -> {
+            if (members.get(slot)) {
+                walkedSlots[count[0]++] = slot;
+                walked.set(slot);
+            }
+        });
+        if (count[0] < size) {
+            walked.xor(members);
+            int[] missing = walked.stream().toArray();
+            slots = merge(order, slots, count[0], sortedBy(order, missing, missing.length), null);
+        }
+        this.order = order;
+        this.descending = descending;
+        sorted = slots;
+        sortedSize = size;
+        pages.clear();
+
+        int[] indexBySlot = new int[members.length()];
+        for (int i = 0; i < size; i++) {
+            indexBySlot[slotAt(i)] = i;
+        }
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = indexBySlot[oldSlots[i]];
+        }
+        beginChange();
+        nextPermutation(0, size, permutation);
+        endChange();
+    }
+
+    /**
+     * Applies a batch of changes in one pass over the slot array each for removals and adds,
+     * and fires them as one change, in an order that keeps every index valid when replayed.
+     * A row added and removed within the batch is not reported at all.
+     */
+    void apply(Changes changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        pages.clear();
+        beginChange();
+        BitSet cancelled = null;
+        int[] positions = new int[changes.removedCount];
+        int removals = 0;
+        for (int i = 0; i < changes.removedCount; i++) {
+            int slot = changes.removed[i];
+            if (members.get(slot)) {
+                positions[removals++] = position(slot);
+                members.clear(slot);
+            } else {
+                if (cancelled == null) {
+                    cancelled = new BitSet();
+                }
+                cancelled.set(slot);
+            }
+        }
+        if (removals > 0) {
+            Arrays.sort(positions, 0, removals);
+            // Highest list index first, so every removal keeps its original index
+            for (int i = 0; i < removals; i++) {
+                int position = positions[descending ? i : removals - 1 - i];
+                int index = descending ? sortedSize - 1 - position : position;
+                nextRemove(index, views.apply(sorted[position]));
+            }
+            int kept = 0;
+            int next = 0;
+            for (int position = 0; position < sortedSize; position++) {
+                if (next < removals && positions[next] == position) {
+                    next++;
+                } else {
+                    sorted[kept++] = sorted[position];
+                }
+            }
+            sortedSize = kept;
+        }
+
+        int[] added = changes.added;
+        int count = changes.addedCount;
+        if (cancelled != null) {
+            added = new int[count];
+            count = 0;
+            for (int i = 0; i < changes.addedCount; i++) {
+                if (!cancelled.get(changes.added[i])) {
+                    added[count++] = changes.added[i];
+                }
+            }
+        }
+        if (count > 0) {
+            added = sortedBy(order, added, count);
+            for (int slot : added) {
+                members.set(slot);
+            }
+            if (sortedSize == 0 || order.compare(sorted[sortedSize - 1], added[0]) < 0) {
+                // Everything lands after the current rows, as appends in insertion order do
+                if (sortedSize + count > sorted.length) {
+                    sorted = Arrays.copyOf(sorted, Math.max(sortedSize + count, sorted.length + (sorted.length >> 1)));
+                }
+                System.arraycopy(added, 0, sorted, sortedSize, count);
+                sortedSize += count;
+                if (descending) {
+                    nextAdd(0, count);
+                } else {
+                    nextAdd(sortedSize - count, sortedSize);
+                }
+            } else {
+                int[] addedPositions = new int[count];
+                sorted = merge(order, sorted, sortedSize, added, addedPositions);
+                sortedSize += count;
+                // Lowest list index first, each add landing at its final index
+                for (int i = 0; i < count; i++) {
+                    int index = descending ? sortedSize - 1 - addedPositions[count - 1 - i] : addedPositions[i];
+                    nextAdd(index, index + 1);
+                }
+            }
+        }
+        endChange();
+    }
+
+    /**
+     * @return The first count slots, sorted by the order.
+     */
+    private static int[] sortedBy(SlotOrder order, int[] slots, int count) {
+        int[] result = Arrays.copyOf(slots, count);
+        for (int i = 1; i < count; i++) {
+            if (order.compare(result[i - 1], result[i]) > 0) {
+                Integer[] boxed = new Integer[count];
+                for (int j = 0; j < count; j++) {
+                    boxed[j] = result[j];
+                }
+                Arrays.sort(boxed, order::compare);
+                for (int j = 0; j < count; j++) {
+                    result[j] = boxed[j];
+                }
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges sorted slots into the first size slots of a sorted array, in one pass.
+     * @param positions Receives the position of every merged slot, unless null.
+     */
+    private static int[] merge(SlotOrder order, int[] slots, int size, int[] added, int[] positions) {
+        int[] merged = new int[Math.max(slots.length, size + added.length)];
+        int from = 0;
+        int count = 0;
+        for (int i = 0; i < added.length; i++) {
+            while (from < size && order.compare(slots[from], added[i]) < 0) {
+                merged[count++] = slots[from++];
+            }
+            if (positions != null) {
+                positions[i] = count;
+            }
+            merged[count++] = added[i];
+        }
+        while (from < size) {
+            merged[count++] = slots[from++];
+        }
+        return merged;
+    }
+
+    /**
+     * @return The position of a slot in the ascending slot array.
+     */
+    private int position(int slot) {
+        int low = 0;
+        int high = sortedSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = order.compare(sorted[middle], slot);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        throw new IllegalStateException("Slot " + slot + " is not in the list");
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.financetracker;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, least recently used cache of FinancialReports keyed by their query, with
+ * invalidation per month. The storage reports the months every batch of changes touched,
+ * tagged with the version the batch was published at. A cached report, tagged with the
+ * version of the snapshot it was computed from, stays valid while no month its date range
+ * covers has changed since: adding a June expense leaves a January report cached, while a
+ * report over all dates sees every change.
+ */
+class ReportCache {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private static final class Entry {
+        final long version;
+        final FinancialReport report;
+
+        Entry(long version, FinancialReport report) {
+            this.version = version;
+            this.report = report;
+        }
+    }
+
+    private final Map<ReportQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ReportQuery, Entry> eldest) {
+            return size() > capacity;
+        }
+    };
+    // Month index (see ReportEngine.monthIndex) to the version of the last batch that changed it
+    private final Map<Integer, Long> monthVersions = new ConcurrentHashMap<>();
+    // Months touched by the batch being applied; only used under the storage lock
+    private final Set<Integer> touched = new HashSet<>();
+    private int lastTouchedDay = Integer.MIN_VALUE;
+    private int capacity = DEFAULT_CAPACITY;
+
+    synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        Iterator<ReportQuery> eldest = entries.keySet().iterator();
+        while (entries.size() > capacity) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Notes a row added or removed by the batch being applied.
+     */
+    void touched(int epochDay) {
+        if (epochDay != lastTouchedDay) {
+            lastTouchedDay = epochDay;
+            touched.add(ReportEngine.monthIndex(epochDay));
+        }
+    }
+
+    /**
+     * Notes a change to the totals of a whole month, such as an archived one.
+     */
+    void touchedMonth(int month) {
+        touched.add(month);
+    }
+
+    /**
+     * Tags the months the batch touched with the version it is published at.
+     */
+    void published(long version) {
+        for (int month : touched) {
+            monthVersions.put(month, version);
+        }
+        touched.clear();
+        lastTouchedDay = Integer.MIN_VALUE;
+    }
+
+    /**
+     * @return The cached report for the query, or null if there is none or a month it
+     *         covers has changed since it was computed.
+     */
+    synchronized FinancialReport get(ReportQuery query) {
+        Entry entry = entries.get(query);
+        if (entry == null) {
+            return null;
+        }
+        if (changedSince(query, entry.version)) {
+            entries.remove(query);
+            return null;
+        }
+        return entry.report;
+    }
+
+    /**
+     * Caches a report computed from the snapshot at the given version, unless a report
+     * from a later version is cached already.
+     */
+    synchronized void put(ReportQuery query, long version, FinancialReport report) {
+        Entry entry = entries.get(query);
+        if (entry == null || entry.version < version) {
+            entries.put(query, new Entry(version, report));
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean changedSince(ReportQuery query, long version) {
+        int fromMonth = query.getFrom() == null ? Integer.MIN_VALUE : ReportEngine.monthIndex(query.fromDay());
+        int toMonth = query.getTo() == null ? Integer.MAX_VALUE : ReportEngine.monthIndex(query.toDay());
+        // One entry per month that ever changed, a few hundred at most
+        for (Map.Entry<Integer, Long> month : monthVersions.entrySet()) {
+            if (month.getValue() > version && month.getKey() >= fromMonth && month.getKey() <= toMonth) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.financetracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes FinancialReports by splitting the transaction columns into shards and scanning
+ * them in parallel on a fork/join pool.
+ * Each shard produces partial sums in whole cents, which are exact and associative, so the
+ * merged result is identical to a sequential scan whatever the split. For an unfiltered query
+ * the totals and breakdowns are taken from the storage's incrementally maintained aggregates,
+ * and only the distribution of amounts needs the scan, which runs the first time the report's
+ * percentiles are read.
+ * Archived years that the query's date range reaches are scanned the same way, one
+ * partition at a time, so the archive's memory budget holds while the report runs.
+ * Reports read an immutable {@link StorageSnapshot} of the hot rows and totals, so they may
+ * run on any thread, concurrently with writers, without taking the storage lock.
+ */
+class ReportEngine {
+    static final int SHARD_SIZE = 1 << 15;
+    private static final int ALL_CATEGORIES = -2;
+    private static final int NO_MATCH = -3;
+    // Runs of rows spanning more months than this are cheaper to scan slot by slot
+    private static final int KERNEL_MONTHS = 6;
+
+    private final FinanceDataStorage storage;
+    private final ForkJoinPool pool;
+
+    ReportEngine(FinanceDataStorage storage) {
+        this(storage, ForkJoinPool.commonPool());
+    }
+
+    ReportEngine(FinanceDataStorage storage, ForkJoinPool pool) {
+        this.storage = storage;
+        this.pool = pool;
+    }
+
+    FinancialReport generate(ReportQuery query) {
+        return generate(query, storage.snapshot());
+    }
+
+    FinancialReport generate(ReportQuery query, StorageSnapshot snapshot) {
+        TransactionRows expenses = snapshot.expenses;
+        boolean fromAggregates = query.isUnfiltered();
+
+        if (fromAggregates) {
+            // The totals are at hand; the amounts are only scanned and sorted if the percentiles are read
+            return new FinancialReport(query, snapshot.incomeCents, snapshot.incomeCount,
+                    snapshot.expenseCents, snapshot.expenseCount, snapshot.expenseCentsByCategory,
+                    snapshot.expenseCentsByMonth, snapshot.incomeCentsByMonth,
+                    () -> percentiles(scan(expenses, ArchiveStore.Kind.EXPENSES, query, false, true).amounts));
+        }
+
+        Partial expenseResult = scan(expenses, ArchiveStore.Kind.EXPENSES, query, true, true);
+        Map<Integer, Long> percentiles = percentiles(expenseResult.amounts);
+        Partial incomeResult = scan(snapshot.incomes, ArchiveStore.Kind.INCOMES, query, true, false);
+        Map<String, Long> byCategory = new HashMap<>();
+        for (int id = 0; id < expenseResult.categoryCents.length; id++) {
+            if (expenseResult.categoryCounts[id] > 0) {
+                byCategory.put(expenses.categories().nameOf(id), expenseResult.categoryCents[id]);
+            }
+        }
+        return new FinancialReport(query, incomeResult.cents, incomeResult.count,
+                expenseResult.cents, expenseResult.count, byCategory,
+                toYearMonths(expenseResult.monthCents), toYearMonths(incomeResult.monthCents), percentiles);
+    }
+
+    /**
+     * Scans the live rows and then every archived year the query reaches.
+     */
+    private Partial scan(TransactionRows hot, ArchiveStore.Kind kind, ReportQuery query, boolean sums, boolean collect) {
+        Partial result = pool.invoke(new ScanTask(hot, query.fromDay(), query.toDay(), categoryId(query, hot),
+                0, hot.size(), sums, collect));
+        ArchiveStore archive = storage.getArchive();
+        for (int year : archive.years(kind, query.fromDay(), query.toDay())) {
+            ArchivePartition partition;
+            try {
+                partition = archive.partition(kind, year);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // Archived records are sorted by date, so the range narrows the scan up front
+            int from = partition.lowerBound(query.fromDay());
+            int to = query.toDay() == Integer.MAX_VALUE ? partition.size() : partition.lowerBound(query.toDay() + 1);
+            result.merge(pool.invoke(new ScanTask(partition, query.fromDay(), query.toDay(),
+                    categoryId(query, partition), from, to, sums, collect)));
+        }
+        return result;
+    }
+
+    /**
+     * The category filter applies to expenses only; incomes carry no category.
+     */
+    private static int categoryId(ReportQuery query, TransactionRows rows) {
+        if (query.getCategory() == null || rows.categories() == null) {
+            return ALL_CATEGORIES;
+        }
+        int id = rows.categories().find(query.getCategory());
+        return id == CategoryDictionary.NO_CATEGORY ? NO_MATCH : id;
+    }
+
+    /**
+     * Partial result of one shard.
+     */
+    static final class Partial {
+        long cents;
+        int count;
+        long[] categoryCents;
+        int[] categoryCounts;
+        final Map<Integer, Long> monthCents = new HashMap<>();
+        final List<long[]> amounts = new ArrayList<>();
+
+        Partial(int categories) {
+            categoryCents = new long[categories];
+            categoryCounts = new int[categories];
+        }
+
+        void merge(Partial other) {
+            // Shards size their arrays by the dictionary as they see it, which may have grown since
+            if (other.categoryCents.length > categoryCents.length) {
+                categoryCents = Arrays.copyOf(categoryCents, other.categoryCents.length);
+                categoryCounts = Arrays.copyOf(categoryCounts, other.categoryCounts.length);
+            }
+            cents += other.cents;
+            count += other.count;
+            for (int i = 0; i < other.categoryCents.length; i++) {
+                categoryCents[i] += other.categoryCents[i];
+                categoryCounts[i] += other.categoryCounts[i];
+            }
+            other.monthCents.forEach((month, value) -> monthCents.merge(month, value, Long::sum));
+            amounts.addAll(other.amounts);
+        }
+    }
+
+    /**
+     * Scans the slots [from, to) of a set of rows, splitting in halves down to SHARD_SIZE.
+     * Matching rows are summed if sums is set and their amounts collected if collect is set.
+     */
+    private static final class ScanTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final TransactionRows columns;
+        private final int fromDay;
+        private final int toDay;
+        private final int categoryId;
+        private final int from;
+        private final int to;
+        private final boolean sums;
+        private final boolean collect;
+
+        ScanTask(TransactionRows columns, int fromDay, int toDay, int categoryId, int from, int to,
+                 boolean sums, boolean collect) {
+            this.columns = columns;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.categoryId = categoryId;
+            this.from = from;
+            this.to = to;
+            this.sums = sums;
+            this.collect = collect;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > SHARD_SIZE) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(columns, fromDay, toDay, categoryId, from, middle, sums, collect);
+                ScanTask right = new ScanTask(columns, fromDay, toDay, categoryId, middle, to, sums, collect);
+                left.fork();
+                Partial result = right.compute();
+                result.merge(left.join());
+                return result;
+            }
+            int categories = columns.categories() == null || !sums ? 0 : columns.categories().size();
+            Partial partial = new Partial(categories);
+            long[] amounts = collect ? new long[to - from] : null;
+            int matched = 0;
+            int chunkSize = columns.chunkSize();
+            for (int start = from; start < to; ) {
+                int end = chunkSize == 0 ? to : Math.min(to, (start / chunkSize + 1) * chunkSize);
+                if (chunkSize > 0 && columns.allLive(start, end)) {
+                    matched = scanChunk(start / chunkSize, start % chunkSize, end - start, partial, amounts, matched);
+                } else {
+                    matched = scanSlots(start, end, partial, amounts, matched);
+                }
+                start = end;
+            }
+            if (collect) {
+                partial.amounts.add(Arrays.copyOf(amounts, matched));
+            }
+            return partial;
+        }
+
+        /**
+         * Scans a run of live rows in one chunk of column arrays with the AmountKernel: one
+         * masked pass per month the run's dates reach, and a plain copy of the amounts when
+         * every row matches. Rows mostly arrive in date order, so a chunk tends to span a
+         * month or two; one that spans more is scanned slot by slot instead.
+         * @return The number of amounts collected so far.
+         */
+        private int scanChunk(int chunk, int offset, int length, Partial partial, long[] amounts, int matched) {
+            AmountKernel kernel = AmountKernel.INSTANCE;
+            long[] cents = columns.centsChunk(chunk);
+            int[] days = columns.dayChunk(chunk);
+            int[] categoryIds = columns.categoryChunk(chunk);
+            int end = offset + length;
+            int minDay = kernel.min(days, offset, end);
+            int maxDay = kernel.max(days, offset, end);
+            int firstDay = Math.max(minDay, fromDay);
+            int lastDay = Math.min(maxDay, toDay);
+            if (firstDay > lastDay || categoryId == NO_MATCH) {
+                return matched;
+            }
+            int firstMonth = monthIndex(firstDay);
+            int lastMonth = monthIndex(lastDay);
+            if (sums && lastMonth - firstMonth >= KERNEL_MONTHS) {
+                int slot = chunk * columns.chunkSize() + offset;
+                return scanSlots(slot, slot + length, partial, amounts, matched);
+            }
+            // Null when every category matches, which is always the case for incomes
+            int[] filter = categoryId == ALL_CATEGORIES ? null : categoryIds;
+
+            if (collect) {
+                if (filter == null && firstDay == minDay && lastDay == maxDay) {
+                    System.arraycopy(cents, offset, amounts, matched, length);
+                    matched += length;
+                } else {
+                    for (int i = offset; i < end; i++) {
+                        if (days[i] >= firstDay && days[i] <= lastDay && (filter == null || filter[i] == categoryId)) {
+                            amounts[matched++] = cents[i];
+                        }
+                    }
+                }
+            }
+            if (!sums) {
+                return matched;
+            }
+            AmountKernel.Totals totals = new AmountKernel.Totals();
+            for (int month = firstMonth; month <= lastMonth; month++) {
+                totals.reset();
+                kernel.aggregate(cents, days, filter, offset, end, Math.max(firstDay, firstDayOf(month)),
+                        Math.min(lastDay, firstDayOf(month + 1) - 1), categoryId, totals);
+                if (totals.count == 0) {
+                    continue;
+                }
+                partial.cents += totals.cents;
+                partial.count += totals.count;
+                partial.monthCents.merge(month, totals.cents, Long::sum);
+                if (filter != null) {
+                    partial.categoryCents[categoryId] += totals.cents;
+                    partial.categoryCounts[categoryId] += totals.count;
+                }
+            }
+            if (filter == null && categoryIds != null) {
+                kernel.sumByCategory(cents, days, categoryIds, offset, end, firstDay, lastDay,
+                        partial.categoryCents, partial.categoryCounts);
+            }
+            return matched;
+        }
+
+        /**
+         * Scans the slots [from, to) one by one, skipping removed rows.
+         * @return The number of amounts collected so far.
+         */
+        private int scanSlots(int from, int to, Partial partial, long[] amounts, int matched) {
+            int lastDay = Integer.MIN_VALUE;
+            int month = 0;
+            for (int slot = from; slot < to; slot++) {
+                if (!columns.isLive(slot)) {
+                    continue;
+                }
+                int day = columns.epochDay(slot);
+                if (day < fromDay || day > toDay) {
+                    continue;
+                }
+                int category = columns.categoryId(slot);
+                if (categoryId != ALL_CATEGORIES && category != categoryId) {
+                    continue;
+                }
+                long cents = columns.cents(slot);
+                if (collect) {
+                    amounts[matched++] = cents;
+                }
+                if (!sums) {
+                    continue;
+                }
+                partial.cents += cents;
+                partial.count++;
+                if (category >= 0) {
+                    partial.categoryCents[category] += cents;
+                    partial.categoryCounts[category]++;
+                }
+                if (day != lastDay) {
+                    lastDay = day;
+                    month = monthIndex(day);
+                }
+                partial.monthCents.merge(month, cents, Long::sum);
+            }
+            return matched;
+        }
+    }
+
+    /**
+     * @return The epoch day of the first day of a month index.
+     */
+    static int firstDayOf(int month) {
+        return (int) LocalDate.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1, 1).toEpochDay();
+    }
+
+    /**
+     * Nearest-rank percentiles over the collected amounts, sorted in parallel.
+     */
+    private static Map<Integer, Long> percentiles(List<long[]> shards) {
+        int total = 0;
+        for (long[] shard : shards) {
+            total += shard.length;
+        }
+        Map<Integer, Long> percentiles = new LinkedHashMap<>();
+        if (total == 0) {
+            return percentiles;
+        }
+        long[] sorted = new long[total];
+        int offset = 0;
+        for (long[] shard : shards) {
+            System.arraycopy(shard, 0, sorted, offset, shard.length);
+            offset += shard.length;
+        }
+        Arrays.parallelSort(sorted);
+        for (int percentile : FinancialReport.PERCENTILES) {
+            int rank = (int) Math.ceil(percentile / 100.0 * total);
+            percentiles.put(percentile, sorted[Math.max(0, rank - 1)]);
+        }
+        return percentiles;
+    }
+
+    /**
+     * @return year * 12 + (month - 1) for an epoch day, using integer arithmetic only
+     *         (Howard Hinnant's civil-from-days algorithm).
+     */
+    static int monthIndex(int epochDay) {
+        long z = epochDay + 719468L;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long year = yearOfEra + era * 400;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        if (month <= 2) {
+            year++;
+        }
+        return (int) (year * 12 + month - 1);
+    }
+
+    private static Map<YearMonth, Long> toYearMonths(Map<Integer, Long> months) {
+        Map<YearMonth, Long> result = new HashMap<>();
+        months.forEach((index, cents) -> result.put(YearMonth.of(Math.floorDiv(index, 12), Math.floorMod(index, 12) + 1), cents));
+        return result;
+    }
+}
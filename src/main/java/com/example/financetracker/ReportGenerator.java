@@ -1,27 +1,35 @@
 package com.example.financetracker;
 
-class ReportGenerator {
+public class ReportGenerator {
     private FinanceDataStorage storage;
+    private ReportEngine engine;
 
     public ReportGenerator(FinanceDataStorage storage) {
         this.storage = storage;
+        this.engine = new ReportEngine(storage);
     }
 
     public void generateReport() {
-        // Implement the logic for generating and displaying the report
-        System.out.println("\n--- Financial Report ---");
-        // Example report content (customize as needed)
-        System.out.println("Total Income: " + calculateTotalIncome());
-        System.out.println("Total Expenses: " + calculateTotalExpenses());
-        // Add more report details here
+        System.out.print(generate(ReportQuery.all()).toText());
     }
 
-    private double calculateTotalIncome() {
-        return storage.getIncomes().stream().mapToDouble(Income::getAmount).sum();
-    }
-
-    private double calculateTotalExpenses() {
-        return storage.getExpenses().stream().mapToDouble(Expense::getAmount).sum();
+    /**
+     * Computes the report for the given query on the fork/join report engine, or returns
+     * the storage's cached one if none of the months it covers has changed since.
+     */
+    public FinancialReport generate(ReportQuery query) {
+        long start = System.nanoTime();
+        ReportCache cache = storage.getReportCache();
+        FinancialReport report = cache.get(query);
+        if (report == null) {
+            StorageSnapshot snapshot = storage.snapshot();
+            report = engine.generate(query, snapshot);
+            cache.put(query, snapshot.version, report);
+            storage.getMetrics().reportCacheMisses.increment();
+        } else {
+            storage.getMetrics().reportCacheHits.increment();
+        }
+        storage.getMetrics().reports.recordSince(start);
+        return report;
     }
 }
-
@@ -0,0 +1,93 @@
+package com.example.financetracker;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Parameters of a report: an optional date range and an optional expense category.
+ * A missing bound leaves that side of the range open. The category filter applies to
+ * expenses only; incomes have no category and are always included in the range.
+ */
+public final class ReportQuery {
+    private static final ReportQuery ALL = new ReportQuery(null, null, null);
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final String category;
+
+    private ReportQuery(LocalDate from, LocalDate to, String category) {
+        this.from = from;
+        this.to = to;
+        this.category = category;
+    }
+
+    /**
+     * @return A query over every transaction.
+     */
+    public static ReportQuery all() {
+        return ALL;
+    }
+
+    /**
+     * @return A query over the transactions dated between the two days, both inclusive.
+     *         Either bound may be null to leave it open.
+     */
+    public static ReportQuery between(LocalDate from, LocalDate to) {
+        return new ReportQuery(from, to, null);
+    }
+
+    /**
+     * @return This query restricted to expenses of the given category, or unrestricted for null.
+     */
+    public ReportQuery withCategory(String category) {
+        return new ReportQuery(from, to, category);
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public boolean isUnfiltered() {
+        return from == null && to == null && category == null;
+    }
+
+    int fromDay() {
+        return from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+    }
+
+    int toDay() {
+        return to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReportQuery)) {
+            return false;
+        }
+        ReportQuery other = (ReportQuery) o;
+        return Objects.equals(from, other.from) && Objects.equals(to, other.to)
+                && Objects.equals(category, other.category);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to, category);
+    }
+
+    @Override
+    public String toString() {
+        return (from == null ? "*" : from) + ".." + (to == null ? "*" : to)
+                + (category == null ? "" : " [" + category + "]");
+    }
+}
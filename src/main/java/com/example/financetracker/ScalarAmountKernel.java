@@ -0,0 +1,80 @@
+package com.example.financetracker;
+
+/**
+ * The AmountKernel as plain loops, for JVMs without the Vector API module.
+ */
+class ScalarAmountKernel extends AmountKernel {
+    @Override
+    boolean isVectorized() {
+        return false;
+    }
+
+    @Override
+    long sum(long[] cents, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += cents[i];
+        }
+        return sum;
+    }
+
+    @Override
+    long min(long[] cents, int from, int to) {
+        long min = Long.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, cents[i]);
+        }
+        return min;
+    }
+
+    @Override
+    long max(long[] cents, int from, int to) {
+        long max = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, cents[i]);
+        }
+        return max;
+    }
+
+    @Override
+    int min(int[] days, int from, int to) {
+        int min = Integer.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, days[i]);
+        }
+        return min;
+    }
+
+    @Override
+    int max(int[] days, int from, int to) {
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, days[i]);
+        }
+        return max;
+    }
+
+    @Override
+    void aggregate(long[] cents, int[] days, int[] categoryIds, int from, int to,
+                   int fromDay, int toDay, int category, Totals totals) {
+        long sum = 0;
+        int count = 0;
+        long min = totals.min;
+        long max = totals.max;
+        for (int i = from; i < to; i++) {
+            int day = days[i];
+            if (day < fromDay || day > toDay || categoryIds != null && categoryIds[i] != category) {
+                continue;
+            }
+            long amount = cents[i];
+            sum += amount;
+            count++;
+            min = Math.min(min, amount);
+            max = Math.max(max, amount);
+        }
+        totals.cents += sum;
+        totals.count += count;
+        totals.min = min;
+        totals.max = max;
+    }
+}
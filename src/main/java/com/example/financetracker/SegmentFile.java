@@ -0,0 +1,247 @@
+package com.example.financetracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a transaction column set, read in place through a memory-mapped file.
+ * The layout is a fixed header, the category dictionary and then fixed-width records:
+ * <pre>
+ * header     magic int, version int, record count int, category count int, records offset int
+ * dictionary per category: name length (unsigned short) and UTF-8 bytes, in id order
+ * records    id int, amount in cents long, epoch day int, category id int
+ * </pre>
+ * All values are little-endian. Record i starts at records offset + i * RECORD_SIZE, so any
+ * field of any record is one absolute read from the mapping; nothing is parsed up front
+ * beyond the header and the dictionary.
+ */
+class SegmentFile {
+    static final String EXTENSION = ".seg";
+    static final int RECORD_SIZE = 20;
+
+    private static final int MAGIC = 0x47535446; // "FTSG" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int ID_OFFSET = 0;
+    private static final int CENTS_OFFSET = 4;
+    private static final int DAY_OFFSET = 12;
+    private static final int CATEGORY_OFFSET = 16;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int recordsOffset;
+    private final String[] categories;
+
+    private SegmentFile(ByteBuffer buffer, int count, int recordsOffset, String[] categories) {
+        this.buffer = buffer;
+        this.count = count;
+        this.recordsOffset = recordsOffset;
+        this.categories = categories;
+    }
+
+    static boolean isSegment(String path) {
+        return path.endsWith(EXTENSION);
+    }
+
+    /**
+     * Maps a segment file and reads its header and dictionary.
+     */
+    static SegmentFile open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment too large to map: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return wrap(buffer, file.toString());
+        }
+    }
+
+    /**
+     * Reads the header and dictionary of a segment held in the given buffer, such as a
+     * decompressed archive. Records are then read from the buffer in place.
+     * @param name Names the segment in error messages.
+     */
+    static SegmentFile wrap(ByteBuffer buffer, String name) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int length = buffer.limit();
+        if (length < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a segment file: " + name);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported segment version " + buffer.getInt(4) + " in " + name);
+        }
+        int count = buffer.getInt(8);
+        String[] categories = new String[buffer.getInt(12)];
+        int recordsOffset = buffer.getInt(16);
+        if ((long) recordsOffset + (long) count * RECORD_SIZE > length) {
+            throw new IOException("Truncated segment file: " + name);
+        }
+        readDictionary(buffer, HEADER_SIZE, categories);
+        return new SegmentFile(buffer, count, recordsOffset, categories);
+    }
+
+    private static void readDictionary(ByteBuffer buffer, int position, String[] categories) {
+        for (int i = 0; i < categories.length; i++) {
+            int nameLength = Short.toUnsignedInt(buffer.getShort(position));
+            byte[] bytes = new byte[nameLength];
+            buffer.get(position + 2, bytes);
+            categories[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += 2 + nameLength;
+        }
+    }
+
+    /**
+     * Reads a segment sequentially from a stream, such as a compressed archive or a file too
+     * large to map, holding only a buffer of records at a time instead of the whole segment.
+     * @param name Names the segment in error messages.
+     */
+    static void stream(InputStream in, String name, TransactionReader.RecordSink sink) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(in.readNBytes(HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.limit() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a segment file: " + name);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported segment version " + header.getInt(4) + " in " + name);
+        }
+        int count = header.getInt(8);
+        String[] categories = new String[header.getInt(12)];
+        int dictionaryLength = header.getInt(16) - HEADER_SIZE;
+        ByteBuffer dictionary = ByteBuffer.wrap(in.readNBytes(dictionaryLength)).order(ByteOrder.LITTLE_ENDIAN);
+        if (dictionary.limit() < dictionaryLength) {
+            throw new IOException("Truncated segment file: " + name);
+        }
+        readDictionary(dictionary, 0, categories);
+
+        int chunkRecords = 4096;
+        byte[] chunk = new byte[chunkRecords * RECORD_SIZE];
+        ByteBuffer records = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN);
+        for (int read = 0; read < count; ) {
+            int n = Math.min(chunkRecords, count - read);
+            if (in.readNBytes(chunk, 0, n * RECORD_SIZE) < n * RECORD_SIZE) {
+                throw new IOException("Truncated segment file: " + name);
+            }
+            for (int i = 0, at = 0; i < n; i++, at += RECORD_SIZE) {
+                int categoryId = records.getInt(at + CATEGORY_OFFSET);
+                sink.accept(records.getInt(at + ID_OFFSET), records.getLong(at + CENTS_OFFSET),
+                        records.getInt(at + DAY_OFFSET),
+                        categoryId == CategoryDictionary.NO_CATEGORY ? null : categories[categoryId]);
+            }
+            read += n;
+        }
+    }
+
+    /**
+     * Writes the live rows as a segment file.
+     */
+    static void write(File file, TransactionRows rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, rows);
+        }
+    }
+
+    /**
+     * Writes the live rows as a segment to the given channel, which is left open.
+     */
+    static void write(WritableByteChannel channel, TransactionRows rows) throws IOException {
+        CategoryDictionary dictionary = rows.categories();
+        int categoryCount = dictionary == null ? 0 : dictionary.size();
+        byte[][] names = new byte[categoryCount][];
+        int recordsOffset = HEADER_SIZE;
+        for (int i = 0; i < categoryCount; i++) {
+            names[i] = dictionary.nameOf(i).getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > 0xFFFF) {
+                throw new IOException("Category name too long: " + dictionary.nameOf(i));
+            }
+            recordsOffset += 2 + names[i].length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(rows.liveCount()).putInt(categoryCount).putInt(recordsOffset);
+        for (byte[] name : names) {
+            if (out.remaining() < 2) {
+                drain(channel, out);
+            }
+            out.putShort((short) name.length);
+            if (out.remaining() < name.length) {
+                drain(channel, out);
+            }
+            out.put(name);
+        }
+        for (int slot = 0; slot < rows.size(); slot++) {
+            if (!rows.isLive(slot)) {
+                continue;
+            }
+            if (out.remaining() < RECORD_SIZE) {
+                drain(channel, out);
+            }
+            out.putInt(rows.id(slot))
+                    .putLong(rows.cents(slot))
+                    .putInt(rows.epochDay(slot))
+                    .putInt(rows.categoryId(slot));
+        }
+        drain(channel, out);
+    }
+
+    private static void drain(WritableByteChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * @return The byte offset just past the given record, used for load progress.
+     */
+    long endOf(int index) {
+        return recordsOffset + (long) index * RECORD_SIZE;
+    }
+
+    int id(int index) {
+        return buffer.getInt(recordsOffset + index * RECORD_SIZE + ID_OFFSET);
+    }
+
+    long cents(int index) {
+        return buffer.getLong(recordsOffset + index * RECORD_SIZE + CENTS_OFFSET);
+    }
+
+    int epochDay(int index) {
+        return buffer.getInt(recordsOffset + index * RECORD_SIZE + DAY_OFFSET);
+    }
+
+    /**
+     * @return The record's category id in this segment's own dictionary.
+     */
+    int categoryId(int index) {
+        return buffer.getInt(recordsOffset + index * RECORD_SIZE + CATEGORY_OFFSET);
+    }
+
+    String category(int categoryId) {
+        return categoryId == CategoryDictionary.NO_CATEGORY ? null : categories[categoryId];
+    }
+
+    /**
+     * Translates this segment's category ids into ids of the given dictionary.
+     * @return A table indexed by segment category id.
+     */
+    int[] mapCategories(CategoryDictionary dictionary) {
+        int[] mapped = new int[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            mapped[i] = dictionary == null ? CategoryDictionary.NO_CATEGORY : dictionary.idOf(categories[i]);
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.financetracker;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array holding the slots that share one key of a sorted index.
+ * Slots are kept in insertion order, which is also slot order since slots only grow.
+ */
+class SlotBucket {
+    int[] slots = new int[2];
+    int size;
+
+    void add(int slot) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        slots[size++] = slot;
+    }
+
+    boolean remove(int slot) {
+        for (int i = 0; i < size; i++) {
+            if (slots[i] == slot) {
+                System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+}
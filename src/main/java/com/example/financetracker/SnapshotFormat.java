@@ -0,0 +1,33 @@
+package com.example.financetracker;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * On-disk format of a snapshot file, chosen by its extension:
+ * ".seg" files are binary SegmentFiles, anything else is the JSON array format.
+ */
+enum SnapshotFormat {
+    JSON,
+    SEGMENT;
+
+    static SnapshotFormat of(File file) {
+        return SegmentFile.isSegment(file.getName()) ? SEGMENT : JSON;
+    }
+
+    void writeExpenses(File file, TransactionRows rows) throws IOException {
+        if (this == SEGMENT) {
+            SegmentFile.write(file, rows);
+        } else {
+            TransactionWriter.writeExpenses(file, rows);
+        }
+    }
+
+    void writeIncomes(File file, TransactionRows rows) throws IOException {
+        if (this == SEGMENT) {
+            SegmentFile.write(file, rows);
+        } else {
+            TransactionWriter.writeIncomes(file, rows);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.financetracker;
+
+import javafx.concurrent.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads a FinanceDataStorage off the JavaFX application thread.
+ * Records are parsed and moved into the storage in chunks in the background; the storage
+ * hands each chunk's list changes to its list executor, so the window can be shown before
+ * loading finishes and any bound table fills in as data arrives. Years older than the
+ * storage's hot years are archived before loading completes.
+ */
+public class StorageLoadTask extends Task<Void> {
+    private final FinanceDataStorage storage;
+    private long expensesRead;
+
+    public StorageLoadTask(FinanceDataStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    protected Void call() throws Exception {
+        long total = Math.max(1, storage.snapshotSize());
+        updateMessage("Loading expenses...");
+        storage.recoverJournal();
+        storage.openArchive();
+        storage.streamExpenses(
+                Runnable::run,
+                read -> {
+                    expensesRead = read;
+                    updateProgress(read, total);
+                });
+
+        updateMessage("Loading incomes...");
+        storage.streamIncomes(
+                Runnable::run,
+                read -> updateProgress(expensesRead + read, total));
+
+        updateMessage("Replaying journal...");
+        List<TransactionJournal.Entry> batch = new ArrayList<>();
+        storage.replayJournal(entry -> {
+            batch.add(entry);
+            if (batch.size() == TransactionReader.DEFAULT_CHUNK_SIZE) {
+                publish(new ArrayList<>(batch));
+                batch.clear();
+            }
+        });
+        publish(new ArrayList<>(batch));
+
+        FinanceDataStorage.ArchivePlan plan = storage.planArchive();
+        if (!plan.isEmpty()) {
+            updateMessage("Archiving old years...");
+            storage.writeArchive(plan);
+        }
+        storage.applyArchive(plan);
+        storage.finishLoading();
+        updateProgress(total, total);
+        updateMessage("Loaded");
+        return null;
+    }
+
+    private void publish(List<TransactionJournal.Entry> entries) {
+        if (!entries.isEmpty()) {
+            storage.applyJournalEntries(entries);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.financetracker;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters and latency histograms for a storage: loading, snapshot saves, journal writes,
+ * adds and removes, reports and UI actions. Everything is recorded with striped adders and
+ * lock-free histograms, so instrumented paths pay a couple of System.nanoTime() calls and a
+ * few atomic increments. The metrics can be published as a platform MBean and dumped to
+ * System.out periodically.
+ */
+public class StorageMetrics implements StorageMetricsMBean {
+    static final String OBJECT_NAME = "com.example.financetracker:type=StorageMetrics";
+
+    final LatencyHistogram saves = new LatencyHistogram();
+    final LatencyHistogram mutations = new LatencyHistogram();
+    final LatencyHistogram reports = new LatencyHistogram();
+    final LatencyHistogram uiActions = new LatencyHistogram();
+    final LongAdder reportCacheHits = new LongAdder();
+    final LongAdder reportCacheMisses = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder recordsWritten = new LongAdder();
+    private final LongAdder journalBytes = new LongAdder();
+    private final LongAdder journalFlushes = new LongAdder();
+    private volatile long loadNanos;
+    private volatile long recordsLoaded;
+    private volatile long firstFrameMillis;
+    private volatile long loadedMillis;
+    private volatile IntSupplier queueDepth = () -> 0;
+    private ScheduledExecutorService dumper;
+    private ObjectName registered;
+
+    void recordLoad(long nanos, long records) {
+        loadNanos = nanos;
+        recordsLoaded = records;
+    }
+
+    /**
+     * Records the time from JVM start to the window's first frame.
+     */
+    void recordFirstFrame(long millisSinceJvmStart) {
+        firstFrameMillis = millisSinceJvmStart;
+    }
+
+    /**
+     * Records the time from JVM start to the data being loaded behind the window.
+     */
+    void recordLoaded(long millisSinceJvmStart) {
+        loadedMillis = millisSinceJvmStart;
+    }
+
+    /**
+     * Records one snapshot file written.
+     */
+    void recordSave(long nanos, long bytes, long records) {
+        saves.record(nanos);
+        bytesWritten.add(bytes);
+        recordsWritten.add(records);
+    }
+
+    void recordJournalWrite(long bytes) {
+        journalBytes.add(bytes);
+    }
+
+    void recordJournalFlush() {
+        journalFlushes.increment();
+    }
+
+    void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    @Override
+    public double getLoadTimeMillis() {
+        return loadNanos / 1e6;
+    }
+
+    @Override
+    public long getRecordsLoaded() {
+        return recordsLoaded;
+    }
+
+    @Override
+    public double getLoadRecordsPerSecond() {
+        return loadNanos == 0 ? 0 : recordsLoaded * 1e9 / loadNanos;
+    }
+
+    @Override
+    public long getFirstFrameMillis() {
+        return firstFrameMillis;
+    }
+
+    @Override
+    public long getLoadedMillis() {
+        return loadedMillis;
+    }
+
+    @Override
+    public long getSaveCount() {
+        return saves.count();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getBytesPerSave() {
+        long count = saves.count();
+        return count == 0 ? 0 : bytesWritten.sum() / count;
+    }
+
+    @Override
+    public double getSaveRecordsPerSecond() {
+        long nanos = saves.totalNanos();
+        return nanos == 0 ? 0 : recordsWritten.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public double getSaveP99Millis() {
+        return saves.percentileNanos(0.99) / 1e6;
+    }
+
+    @Override
+    public long getJournalBytesWritten() {
+        return journalBytes.sum();
+    }
+
+    @Override
+    public long getJournalFlushes() {
+        return journalFlushes.sum();
+    }
+
+    @Override
+    public int getWriterQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public long getMutationCount() {
+        return mutations.count();
+    }
+
+    @Override
+    public double getMutationP99Micros() {
+        return mutations.percentileNanos(0.99) / 1e3;
+    }
+
+    @Override
+    public long getReportCount() {
+        return reports.count();
+    }
+
+    @Override
+    public double getReportP50Millis() {
+        return reports.percentileNanos(0.50) / 1e6;
+    }
+
+    @Override
+    public double getReportP95Millis() {
+        return reports.percentileNanos(0.95) / 1e6;
+    }
+
+    @Override
+    public double getReportP99Millis() {
+        return reports.percentileNanos(0.99) / 1e6;
+    }
+
+    @Override
+    public double getReportMaxMillis() {
+        return reports.maxNanos() / 1e6;
+    }
+
+    @Override
+    public long getReportCacheHits() {
+        return reportCacheHits.sum();
+    }
+
+    @Override
+    public long getReportCacheMisses() {
+        return reportCacheMisses.sum();
+    }
+
+    @Override
+    public long getUiActionCount() {
+        return uiActions.count();
+    }
+
+    @Override
+    public double getUiActionP99Millis() {
+        return uiActions.percentileNanos(0.99) / 1e6;
+    }
+
+    @Override
+    public double getUiActionMaxMillis() {
+        return uiActions.maxNanos() / 1e6;
+    }
+
+    @Override
+    public String dump() {
+        return String.format(Locale.ROOT,
+                "startup: first frame after %d ms, data loaded after %d ms%n"
+                        + "load: %.1f ms, %d records, %.0f records/s%n"
+                        + "saves: %d, %d bytes written, %d bytes/save, %.0f records/s, p99 %.2f ms%n"
+                        + "journal: %d bytes written, %d flushes, writer queue depth %d%n"
+                        + "adds/removes: %d, p99 %.1f us%n"
+                        + "reports: %d, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms, %d cached, %d computed%n"
+                        + "ui actions: %d, p99 %.2f ms, max %.2f ms%n",
+                getFirstFrameMillis(), getLoadedMillis(),
+                getLoadTimeMillis(), getRecordsLoaded(), getLoadRecordsPerSecond(),
+                getSaveCount(), getBytesWritten(), getBytesPerSave(), getSaveRecordsPerSecond(), getSaveP99Millis(),
+                getJournalBytesWritten(), getJournalFlushes(), getWriterQueueDepth(),
+                getMutationCount(), getMutationP99Micros(),
+                getReportCount(), getReportP50Millis(), getReportP95Millis(), getReportP99Millis(), getReportMaxMillis(),
+                getReportCacheHits(), getReportCacheMisses(),
+                getUiActionCount(), getUiActionP99Millis(), getUiActionMaxMillis());
+    }
+
+    @Override
+    public void reset() {
+        saves.reset();
+        mutations.reset();
+        reports.reset();
+        reportCacheHits.reset();
+        reportCacheMisses.reset();
+        uiActions.reset();
+        bytesWritten.reset();
+        recordsWritten.reset();
+        journalBytes.reset();
+        journalFlushes.reset();
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server.
+     */
+    public synchronized void register() {
+        if (registered != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            registered = name;
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints {@link #dump()} to System.out at the given period, until {@link #close()}.
+     */
+    public synchronized void startDump(long periodSeconds) {
+        if (dumper != null || periodSeconds <= 0) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> System.out.print("--- Metrics ---\n" + dump()),
+                periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic dump and unregisters the MBean.
+     */
+    public synchronized void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+        if (registered != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+            registered = null;
+        }
+    }
+}
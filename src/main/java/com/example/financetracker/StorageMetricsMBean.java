@@ -0,0 +1,76 @@
+package com.example.financetracker;
+
+/**
+ * Management interface of {@link StorageMetrics}, as seen in JConsole or VisualVM.
+ * Durations are in milliseconds unless the name says otherwise.
+ */
+public interface StorageMetricsMBean {
+    double getLoadTimeMillis();
+
+    long getRecordsLoaded();
+
+    double getLoadRecordsPerSecond();
+
+    /**
+     * @return Time from JVM start to the window's first frame, 0 without a window.
+     */
+    long getFirstFrameMillis();
+
+    /**
+     * @return Time from JVM start until the data was loaded behind the window.
+     */
+    long getLoadedMillis();
+
+    long getSaveCount();
+
+    long getBytesWritten();
+
+    long getBytesPerSave();
+
+    double getSaveRecordsPerSecond();
+
+    double getSaveP99Millis();
+
+    long getJournalBytesWritten();
+
+    long getJournalFlushes();
+
+    int getWriterQueueDepth();
+
+    long getMutationCount();
+
+    double getMutationP99Micros();
+
+    long getReportCount();
+
+    double getReportP50Millis();
+
+    double getReportP95Millis();
+
+    double getReportP99Millis();
+
+    double getReportMaxMillis();
+
+    /**
+     * @return Reports answered from the report cache.
+     */
+    long getReportCacheHits();
+
+    /**
+     * @return Reports computed because none was cached or a month they cover had changed.
+     */
+    long getReportCacheMisses();
+
+    long getUiActionCount();
+
+    double getUiActionP99Millis();
+
+    double getUiActionMaxMillis();
+
+    /**
+     * @return Every metric as text, one per line.
+     */
+    String dump();
+
+    void reset();
+}
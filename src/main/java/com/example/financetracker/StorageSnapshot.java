@@ -0,0 +1,35 @@
+package com.example.financetracker;
+
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * Immutable, consistent state of a storage's hot rows and totals at one version, taken under
+ * the storage lock and then read without it. Reports run against a snapshot, so they see
+ * every change of a batch or none of it while writers carry on.
+ */
+final class StorageSnapshot {
+    final long version;
+    final TransactionRows expenses;
+    final TransactionRows incomes;
+    final long incomeCents;
+    final int incomeCount;
+    final long expenseCents;
+    final int expenseCount;
+    final Map<String, Long> expenseCentsByCategory;
+    final Map<YearMonth, Long> expenseCentsByMonth;
+    final Map<YearMonth, Long> incomeCentsByMonth;
+
+    StorageSnapshot(long version, TransactionColumns expenses, TransactionColumns incomes, AggregateEngine aggregates) {
+        this.version = version;
+        this.expenses = expenses.snapshot();
+        this.incomes = incomes.snapshot();
+        incomeCents = aggregates.incomeCents();
+        incomeCount = aggregates.getIncomeCount();
+        expenseCents = aggregates.expenseCents();
+        expenseCount = aggregates.getExpenseCount();
+        expenseCentsByCategory = aggregates.expenseCentsByCategory();
+        expenseCentsByMonth = aggregates.expenseCentsByMonth();
+        incomeCentsByMonth = aggregates.incomeCentsByMonth();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.financetracker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi-producer buffer split into stripes, each guarded by its own monitor, so threads
+ * adding at the same time mostly contend on different locks instead of one. A consumer takes
+ * everything buffered at once; items added by one thread come out in the order it added them.
+ * @param <E> The buffered item type.
+ */
+final class StripedBuffer<E> {
+    private final List<List<E>> stripes;
+    private final int mask;
+
+    /**
+     * @param stripes The number of stripes wanted, rounded up to a power of two.
+     */
+    StripedBuffer(int stripes) {
+        int count = 1;
+        while (count < stripes) {
+            count <<= 1;
+        }
+        this.stripes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            this.stripes.add(new ArrayList<>());
+        }
+        this.mask = count - 1;
+    }
+
+    void add(E item) {
+        int hash = System.identityHashCode(Thread.currentThread());
+        List<E> stripe = stripes.get((hash ^ (hash >>> 16)) & mask);
+        synchronized (stripe) {
+            stripe.add(item);
+        }
+    }
+
+    /**
+     * Moves every buffered item to the target, stripe by stripe.
+     */
+    void drainTo(List<E> target) {
+        for (List<E> stripe : stripes) {
+            synchronized (stripe) {
+                target.addAll(stripe);
+                stripe.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.financetracker;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Hand-written JSON codec for expenses, incomes and journal entries.
+ * Fields are read and written directly instead of through Gson's reflective adapters, and
+ * dates go straight between their ISO text form and epoch days without building LocalDates.
+ * The JSON layout is the one the reflective Gson produced, so existing files stay readable.
+ */
+final class TransactionCodec {
+    static final TypeAdapter<Expense> EXPENSE = new ExpenseAdapter();
+    static final TypeAdapter<Income> INCOME = new IncomeAdapter();
+    static final TypeAdapter<TransactionJournal.Entry> ENTRY = new EntryAdapter();
+
+    private TransactionCodec() {
+    }
+
+    /**
+     * Parses an ISO yyyy-MM-dd date into an epoch day.
+     * Anything other than the plain ten character form goes through LocalDate.parse.
+     */
+    static int parseEpochDay(String text) {
+        if (text == null) {
+            throw new JsonParseException("Missing date");
+        }
+        if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 7);
+            int day = digits(text, 8, 10);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1
+                    && day <= lengthOfMonth(year, month)) {
+                return daysFromCivil(year, month, day);
+            }
+        }
+        try {
+            return (int) LocalDate.parse(text).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new JsonParseException("Invalid date: " + text, e);
+        }
+    }
+
+    /**
+     * Parses an ISO date held as ASCII bytes, like {@link #parseEpochDay(String)}, without
+     * building a String for the usual ten character form.
+     */
+    static int parseEpochDay(byte[] text, int length) {
+        if (length == 10 && text[4] == '-' && text[7] == '-') {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 7);
+            int day = digits(text, 8, 10);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1
+                    && day <= lengthOfMonth(year, month)) {
+                return daysFromCivil(year, month, day);
+            }
+        }
+        return parseEpochDay(new String(text, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Formats an epoch day as ISO yyyy-MM-dd, the inverse of parseEpochDay.
+     */
+    static String formatEpochDay(int epochDay) {
+        // Civil-from-days, see http://howardhinnant.github.io/date_algorithms.html
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return LocalDate.ofEpochDay(epochDay).toString();
+        }
+        char[] chars = new char[10];
+        chars[0] = (char) ('0' + year / 1000);
+        chars[1] = (char) ('0' + year / 100 % 10);
+        chars[2] = (char) ('0' + year / 10 % 10);
+        chars[3] = (char) ('0' + year % 10);
+        chars[4] = '-';
+        chars[5] = (char) ('0' + month / 10);
+        chars[6] = (char) ('0' + month % 10);
+        chars[7] = '-';
+        chars[8] = (char) ('0' + day / 10);
+        chars[9] = (char) ('0' + day % 10);
+        return new String(chars);
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int digits(byte[] text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static int daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static class ExpenseAdapter extends TypeAdapter<Expense> {
+        @Override
+        public void write(JsonWriter out, Expense expense) throws IOException {
+            if (expense == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(expense.getId());
+            out.name("amount").value(expense.getAmount());
+            String category = expense.getCategory();
+            if (category != null) {
+                out.name("category").value(category);
+            }
+            out.name("date").value(formatEpochDay(expense.getEpochDay()));
+            out.endObject();
+        }
+
+        @Override
+        public Expense read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int id = 0;
+            double amount = 0;
+            String category = null;
+            String date = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = in.nextInt();
+                        break;
+                    case "amount":
+                        amount = in.nextDouble();
+                        break;
+                    case "category":
+                        category = nextStringOrNull(in);
+                        break;
+                    case "date":
+                        date = nextStringOrNull(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new Expense(id, amount, category, parseEpochDay(date));
+        }
+    }
+
+    private static class IncomeAdapter extends TypeAdapter<Income> {
+        @Override
+        public void write(JsonWriter out, Income income) throws IOException {
+            if (income == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(income.getId());
+            out.name("amount").value(income.getAmount());
+            out.name("date").value(formatEpochDay(income.getEpochDay()));
+            out.endObject();
+        }
+
+        @Override
+        public Income read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int id = 0;
+            double amount = 0;
+            String date = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = in.nextInt();
+                        break;
+                    case "amount":
+                        amount = in.nextDouble();
+                        break;
+                    case "date":
+                        date = nextStringOrNull(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new Income(id, amount, parseEpochDay(date));
+        }
+    }
+
+    private static class EntryAdapter extends TypeAdapter<TransactionJournal.Entry> {
+        @Override
+        public void write(JsonWriter out, TransactionJournal.Entry entry) throws IOException {
+            out.beginObject();
+            out.name("seq").value(entry.seq);
+            out.name("op").value(entry.op.name());
+            if (entry.expense != null) {
+                out.name("expense");
+                EXPENSE.write(out, entry.expense);
+            }
+            if (entry.income != null) {
+                out.name("income");
+                INCOME.write(out, entry.income);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public TransactionJournal.Entry read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            TransactionJournal.Entry entry = new TransactionJournal.Entry();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "seq":
+                        entry.seq = in.nextLong();
+                        break;
+                    case "op":
+                        entry.op = TransactionJournal.Op.valueOf(in.nextString());
+                        break;
+                    case "expense":
+                        entry.expense = EXPENSE.read(in);
+                        break;
+                    case "income":
+                        entry.income = INCOME.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return entry;
+        }
+    }
+
+    private static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+}
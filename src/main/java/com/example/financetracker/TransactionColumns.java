@@ -0,0 +1,312 @@
+package com.example.financetracker;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Columnar, primitive-backed storage for transactions.
+ * Amounts are kept as whole cents in a long column, dates as epoch days in an int column
+ * and categories as dictionary ids in an int column, so a row costs 16 bytes instead of
+ * an object graph with its own strings. Columns grow in fixed-size chunks, which keeps
+ * growth free of large array copies, and a slot never moves once written: removed rows are
+ * only marked, so the Expense and Income views pointing at a slot stay valid.
+ * Every row also carries a stable numeric id that survives snapshots and restarts;
+ * an id-to-slot index resolves it in O(1) and a Fenwick tree over the live rows turns
+ * a slot into its position among live rows, and back, in O(log n).
+ */
+class TransactionColumns extends TransactionRows {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final CategoryDictionary categories;
+    private long[][] amounts = new long[0][];
+    private int[][] days = new int[0][];
+    private int[][] categoryIds = new int[0][];
+    private int[][] ids = new int[0][];
+    private final BitSet removed = new BitSet();
+    private final IntColumn slotsById = new IntColumn();
+    private final FenwickTree live = new FenwickTree();
+    private int size;
+    private int liveCount;
+    private int nextId = 1;
+
+    /**
+     * @param categories The dictionary category ids refer to, or null for transactions without a category.
+     */
+    TransactionColumns(CategoryDictionary categories) {
+        this.categories = categories;
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Appends a row and returns its slot.
+     * @param id The row's id, or 0 to assign the next free one.
+     */
+    int append(int id, long cents, int epochDay, int categoryId) {
+        int slot = size;
+        int chunk = slot >>> CHUNK_SHIFT;
+        if (chunk == amounts.length) {
+            amounts = Arrays.copyOf(amounts, chunk + 1);
+            amounts[chunk] = new long[CHUNK_SIZE];
+            days = Arrays.copyOf(days, chunk + 1);
+            days[chunk] = new int[CHUNK_SIZE];
+            ids = Arrays.copyOf(ids, chunk + 1);
+            ids[chunk] = new int[CHUNK_SIZE];
+            if (categories != null) {
+                categoryIds = Arrays.copyOf(categoryIds, chunk + 1);
+                categoryIds[chunk] = new int[CHUNK_SIZE];
+            }
+        }
+        int offset = slot & CHUNK_MASK;
+        amounts[chunk][offset] = cents;
+        days[chunk][offset] = epochDay;
+        if (categories != null) {
+            categoryIds[chunk][offset] = categoryId;
+        }
+        if (id <= 0) {
+            id = nextId;
+        }
+        nextId = Math.max(nextId, id + 1);
+        ids[chunk][offset] = id;
+        slotsById.set(id, slot + 1);
+        live.add(slot, 1);
+        size++;
+        liveCount++;
+        return slot;
+    }
+
+    int append(int id, double amount, String category, int epochDay) {
+        int categoryId = categories == null ? CategoryDictionary.NO_CATEGORY : categories.idOf(category);
+        return append(id, toCents(amount), epochDay, categoryId);
+    }
+
+    /**
+     * Makes sure ids up to the given one are never assigned to new rows.
+     */
+    void reserveIds(int id) {
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    /**
+     * Marks a slot as removed. Its values stay readable for views that still point at it.
+     */
+    boolean remove(int slot) {
+        if (slot < 0 || slot >= size || removed.get(slot)) {
+            return false;
+        }
+        removed.set(slot);
+        slotsById.set(id(slot), 0);
+        live.add(slot, -1);
+        liveCount--;
+        return true;
+    }
+
+    /**
+     * @return The slot holding the live row with the given id, or -1 if there is none.
+     */
+    int slotOf(int id) {
+        return id > 0 ? slotsById.get(id) - 1 : -1;
+    }
+
+    /**
+     * @return The number of live rows stored before the slot, i.e. its position in insertion order.
+     */
+    int rank(int slot) {
+        return (int) live.prefixSum(slot);
+    }
+
+    /**
+     * @return The slot of the live row at the given position in insertion order, or -1.
+     */
+    int select(int position) {
+        return live.select(position);
+    }
+
+    @Override
+    boolean isLive(int slot) {
+        return slot < size && !removed.get(slot);
+    }
+
+    @Override
+    int id(int slot) {
+        return ids[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    @Override
+    long cents(int slot) {
+        return amounts[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    double amount(int slot) {
+        return toAmount(cents(slot));
+    }
+
+    @Override
+    int epochDay(int slot) {
+        return days[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    LocalDate date(int slot) {
+        return LocalDate.ofEpochDay(epochDay(slot));
+    }
+
+    @Override
+    int categoryId(int slot) {
+        return categories == null ? CategoryDictionary.NO_CATEGORY : categoryIds[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    String category(int slot) {
+        return categories == null ? null : categories.nameOf(categoryId(slot));
+    }
+
+    @Override
+    CategoryDictionary categories() {
+        return categories;
+    }
+
+    @Override
+    int chunkSize() {
+        return CHUNK_SIZE;
+    }
+
+    @Override
+    long[] centsChunk(int chunk) {
+        return amounts[chunk];
+    }
+
+    @Override
+    int[] dayChunk(int chunk) {
+        return days[chunk];
+    }
+
+    @Override
+    int[] categoryChunk(int chunk) {
+        return categories == null ? null : categoryIds[chunk];
+    }
+
+    @Override
+    boolean allLive(int from, int to) {
+        int removedSlot = removed.nextSetBit(from);
+        return to <= size && (removedSlot < 0 || removedSlot >= to);
+    }
+
+    /**
+     * @return The number of slots ever written, including removed ones.
+     */
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    int liveCount() {
+        return liveCount;
+    }
+
+    /**
+     * @return An immutable view of the rows as they are now, which other threads can scan or write out
+     *         while rows keep being appended and removed. Filled chunks are shared, since
+     *         appends only write past the snapshot's size and growth replaces the chunk
+     *         arrays rather than writing into them; only the removed marks are copied.
+     */
+    TransactionRows snapshot() {
+        return new Snapshot(this);
+    }
+
+    private static final class Snapshot extends TransactionRows {
+        private final CategoryDictionary categories;
+        private final long[][] amounts;
+        private final int[][] days;
+        private final int[][] categoryIds;
+        private final int[][] ids;
+        private final BitSet removed;
+        private final int size;
+        private final int liveCount;
+
+        Snapshot(TransactionColumns columns) {
+            categories = columns.categories;
+            amounts = columns.amounts;
+            days = columns.days;
+            categoryIds = columns.categoryIds;
+            ids = columns.ids;
+            removed = (BitSet) columns.removed.clone();
+            size = columns.size;
+            liveCount = columns.liveCount;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int liveCount() {
+            return liveCount;
+        }
+
+        @Override
+        int id(int slot) {
+            return ids[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+        }
+
+        @Override
+        boolean isLive(int slot) {
+            return slot < size && !removed.get(slot);
+        }
+
+        @Override
+        long cents(int slot) {
+            return amounts[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+        }
+
+        @Override
+        int epochDay(int slot) {
+            return days[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+        }
+
+        @Override
+        int categoryId(int slot) {
+            return categories == null ? CategoryDictionary.NO_CATEGORY : categoryIds[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+        }
+
+        @Override
+        CategoryDictionary categories() {
+            return categories;
+        }
+
+        @Override
+        int chunkSize() {
+            return CHUNK_SIZE;
+        }
+
+        @Override
+        long[] centsChunk(int chunk) {
+            return amounts[chunk];
+        }
+
+        @Override
+        int[] dayChunk(int chunk) {
+            return days[chunk];
+        }
+
+        @Override
+        int[] categoryChunk(int chunk) {
+            return categories == null ? null : categoryIds[chunk];
+        }
+
+        @Override
+        boolean allLive(int from, int to) {
+            int removedSlot = removed.nextSetBit(from);
+            return to <= size && (removedSlot < 0 || removedSlot >= to);
+        }
+    }
+}
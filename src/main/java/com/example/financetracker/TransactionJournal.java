@@ -0,0 +1,523 @@
+package com.example.financetracker;
+
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of storage mutations.
+ * Every add or remove is written as one JSON line with a sequence number, so a change costs
+ * O(1) I/O instead of a rewrite of the whole data file. On startup the last snapshot
+ * (the regular expenses/incomes files) is loaded and the log tail is replayed on top of it.
+ * Once the log grows past the compaction threshold it is rotated and folded into a new snapshot
+ * on a background thread.
+ * Appends never touch the disk on the caller's thread: entries are queued for a dedicated
+ * writer thread, which coalesces whatever has queued up into one write and flushes it
+ * according to the configured WritePolicy.
+ */
+class TransactionJournal {
+    static final long DEFAULT_COMPACTION_THRESHOLD = 4L * 1024 * 1024;
+
+    enum Op { ADD_EXPENSE, REMOVE_EXPENSE, ADD_INCOME, REMOVE_INCOME }
+
+    /**
+     * A single journal line.
+     */
+    static class Entry {
+        long seq;
+        Op op;
+        Expense expense;
+        Income income;
+    }
+
+    private final File expensesFile;
+    private final File incomesFile;
+    private final File journalFile;
+    private final File compactingFile;
+    private final File checkpointFile;
+    private final File pendingCheckpointFile;
+    private final StorageMetrics metrics;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong journalBytes = new AtomicLong();
+    private static final Object STOP = new Object();
+
+    private volatile WritePolicy policy = WritePolicy.defaultPolicy();
+    private Thread writerThread;
+    private Thread shutdownHook;
+    private boolean closed;
+    // Only touched by the writer thread once it runs
+    private FileOutputStream out;
+    private BufferedOutputStream writer;
+    private long nextSeq = 1;
+    private long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    TransactionJournal(File expensesFile, File incomesFile, StorageMetrics metrics) {
+        this.expensesFile = expensesFile;
+        this.incomesFile = incomesFile;
+        this.metrics = metrics;
+        File dir = expensesFile.getAbsoluteFile().getParentFile();
+        this.journalFile = new File(dir, "transactions.journal");
+        this.compactingFile = new File(dir, "transactions.journal.compacting");
+        this.checkpointFile = new File(dir, "transactions.checkpoint");
+        this.pendingCheckpointFile = new File(dir, "transactions.checkpoint.pending");
+    }
+
+    void setCompactionThreshold(long bytes) {
+        this.compactionThreshold = bytes;
+    }
+
+    void setWritePolicy(WritePolicy policy) {
+        this.policy = policy;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return The number of entries and commands waiting for the writer thread.
+     */
+    int pendingWrites() {
+        return queue.size();
+    }
+
+    /**
+     * Finishes or rolls back a compaction that was interrupted by a crash.
+     * A pending checkpoint means the new snapshot was never committed, so its temp files are dropped.
+     * Without it, leftover temp files belong to a committed snapshot and are moved into place.
+     */
+    synchronized void recover() {
+        File expensesTmp = tmpFile(expensesFile);
+        File incomesTmp = tmpFile(incomesFile);
+        try {
+            if (pendingCheckpointFile.exists()) {
+                Files.deleteIfExists(expensesTmp.toPath());
+                Files.deleteIfExists(incomesTmp.toPath());
+                Files.delete(pendingCheckpointFile.toPath());
+            } else {
+                if (expensesTmp.exists()) {
+                    Files.move(expensesTmp.toPath(), expensesFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                if (incomesTmp.exists()) {
+                    Files.move(incomesTmp.toPath(), incomesFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replays every entry newer than the last checkpoint.
+     * Reading stops at the first torn line, which can only be the tail of an interrupted append.
+     * The sink runs without this journal's lock held: it takes the storage lock, which writers
+     * hold while they append here. Nothing may be appended before the replay is done.
+     * @param sink Receives the entries in sequence order.
+     */
+    void replay(Consumer<Entry> sink) {
+        int[] replayed = new int[1];
+        long lastSeq = readTail(entry -> {
+            sink.accept(entry);
+            replayed[0]++;
+        });
+        synchronized (this) {
+            nextSeq = lastSeq + 1;
+            journalBytes.set(journalFile.length());
+        }
+        if (replayed[0] > 0) {
+            System.out.println("Replayed " + replayed[0] + " journal entries.");
+        }
+    }
+
+    /**
+     * Reads every entry newer than the last checkpoint without touching any file, so the
+     * journal of a storage that is not open can be read too.
+     * @return The highest sequence number seen, or the checkpoint if there were no entries.
+     */
+    long readTail(Consumer<Entry> sink) {
+        long checkpoint = readCheckpoint();
+        long lastSeq = checkpoint;
+        for (File file : new File[] {compactingFile, journalFile}) {
+            if (!file.exists()) {
+                continue;
+            }
+            try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Entry entry;
+                    try {
+                        entry = TransactionCodec.ENTRY.fromJson(line);
+                    } catch (IOException | JsonParseException | IllegalStateException | IllegalArgumentException e) {
+                        System.out.println("Ignoring torn journal entry in " + file.getName());
+                        break;
+                    }
+                    if (entry == null || entry.seq <= checkpoint) {
+                        continue;
+                    }
+                    sink.accept(entry);
+                    lastSeq = Math.max(lastSeq, entry.seq);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return lastSeq;
+    }
+
+    /**
+     * @return An entry for a change to log with {@link #appendBatch}; it gets its sequence number there.
+     */
+    static Entry change(Op op, Expense expense) {
+        Entry entry = new Entry();
+        entry.op = op;
+        entry.expense = expense;
+        return entry;
+    }
+
+    static Entry change(Op op, Income income) {
+        Entry entry = new Entry();
+        entry.op = op;
+        entry.income = income;
+        return entry;
+    }
+
+    /**
+     * Logs a batch of changes, in order, as a single queue item. The writer thread writes it
+     * in one go and counts its entries towards the write policy like single records.
+     * @throws IllegalStateException If the journal is closed.
+     */
+    synchronized void appendBatch(List<Entry> changes) {
+        List<Entry> batch = new ArrayList<>(changes.size());
+        for (Entry change : changes) {
+            batch.add(change.expense != null ? expenseEntry(change.op, change.expense)
+                    : incomeEntry(change.op, change.income));
+        }
+        if (!batch.isEmpty()) {
+            enqueue(batch);
+        }
+    }
+
+    private Entry expenseEntry(Op op, Expense expense) {
+        Entry entry = new Entry();
+        entry.seq = nextSeq++;
+        entry.op = op;
+        // Stored expenses are views over the columns; the log needs the values themselves
+        entry.expense = new Expense(expense.getId(), expense.getAmount(), expense.getCategory(),
+                expense.getEpochDay());
+        return entry;
+    }
+
+    private Entry incomeEntry(Op op, Income income) {
+        Entry entry = new Entry();
+        entry.seq = nextSeq++;
+        entry.op = op;
+        entry.income = new Income(income.getId(), income.getAmount(), income.getEpochDay());
+        return entry;
+    }
+
+    /**
+     * Queues a batch of entries or a command for the writer thread, starting it on first use.
+     * @throws IllegalStateException If the journal is closed; nothing would write the item.
+     */
+    private synchronized void enqueue(Object item) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (writerThread == null) {
+            writerThread = new Thread(this::runWriter, "journal-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+            shutdownHook = new Thread(this::close, "journal-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+        queue.add(item);
+    }
+
+    /**
+     * Writer loop. Everything already queued is written in one go; the buffered bytes reach
+     * the file once the policy's record count or delay is hit, or right away when fsyncing.
+     * A batch is written whole before the record count is checked. Commands (rotation,
+     * flush, stop) first flush what is pending, so they see every entry queued before them.
+     */
+    private void runWriter() {
+        int pending = 0;
+        long deadline = 0;
+        try {
+            while (true) {
+                Object item;
+                if (pending == 0) {
+                    item = queue.take();
+                } else {
+                    long wait = deadline - System.currentTimeMillis();
+                    item = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+                }
+                WritePolicy current = policy;
+                while (item != null) {
+                    if (item instanceof List) {
+                        List<?> batch = (List<?>) item;
+                        for (Object entry : batch) {
+                            write((Entry) entry);
+                        }
+                        if (pending == 0) {
+                            long delay = current.getMaxDelayMillis();
+                            deadline = delay == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + delay;
+                        }
+                        pending += batch.size();
+                        // Counted after the whole batch, so a flush never falls inside one
+                        if (pending >= current.getMaxRecords() && !current.isFsync()) {
+                            flushBuffer(false);
+                            pending = 0;
+                        }
+                    } else {
+                        flushBuffer(current.isFsync());
+                        pending = 0;
+                        if (item == STOP) {
+                            closeFile();
+                            return;
+                        }
+                        ((Runnable) item).run();
+                    }
+                    item = queue.poll();
+                }
+                if (pending > 0 && (current.isFsync() || System.currentTimeMillis() >= deadline)) {
+                    flushBuffer(current.isFsync());
+                    pending = 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Entry entry) {
+        // Encoded here, so the counts are the bytes that reach the file, whatever the categories
+        byte[] line = (TransactionCodec.ENTRY.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            if (writer == null) {
+                out = new FileOutputStream(journalFile, true);
+                writer = new BufferedOutputStream(out);
+            }
+            writer.write(line);
+            journalBytes.addAndGet(line.length);
+            metrics.recordJournalWrite(line.length);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flushBuffer(boolean fsync) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            metrics.recordJournalFlush();
+            if (fsync) {
+                out.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void closeFile() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        writer = null;
+        out = null;
+    }
+
+    /**
+     * Blocks until every entry queued so far is written and forced to the device.
+     */
+    void flush() {
+        CountDownLatch done = new CountDownLatch(1);
+        synchronized (this) {
+            if (writerThread == null || closed) {
+                return;
+            }
+            enqueue((Runnable) () -> {
+                flushBuffer(true);
+                done.countDown();
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    boolean needsCompaction() {
+        return journalBytes.get() >= compactionThreshold && !compacting.get();
+    }
+
+    /**
+     * Rotates the log and writes the given state as the new snapshot in the background.
+     * The rotation is queued behind the pending entries, so the old log ends exactly at the
+     * snapshot's sequence number. The rows must not change afterwards, like the columns'
+     * snapshots; the caller keeps mutating its own columns.
+     * @return Whether the compaction was started; not if one is already running or the journal is closed.
+     */
+    synchronized boolean compact(TransactionRows expenses, TransactionRows incomes) {
+        if (closed || !compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        long snapshotSeq = nextSeq - 1;
+        enqueue((Runnable) () -> {
+            try {
+                rotate();
+            } catch (IOException e) {
+                e.printStackTrace();
+                compactionDone();
+                return;
+            }
+            compactor.execute(() -> {
+                try {
+                    writeSnapshot(expenses, incomes, snapshotSeq);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    compactionDone();
+                }
+            });
+        });
+        return true;
+    }
+
+    private synchronized void compactionDone() {
+        compacting.set(false);
+        notifyAll();
+    }
+
+    /**
+     * Blocks until no compaction is running, or the journal is closed.
+     */
+    synchronized void awaitCompaction() throws InterruptedException {
+        while (compacting.get() && !closed) {
+            wait();
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        if (!journalFile.exists()) {
+            return;
+        }
+        if (compactingFile.exists()) {
+            // A previous compaction never finished; keep its entries and add ours after them.
+            Files.write(compactingFile.toPath(), Files.readAllBytes(journalFile.toPath()), StandardOpenOption.APPEND);
+            Files.delete(journalFile.toPath());
+        } else {
+            Files.move(journalFile.toPath(), compactingFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        journalBytes.set(0);
+    }
+
+    /**
+     * Two-phase snapshot write: the pending checkpoint marks the snapshot as in progress,
+     * renaming it to the real checkpoint commits it, and only then are the data files replaced.
+     */
+    private void writeSnapshot(TransactionRows expenses, TransactionRows incomes, long seq) throws IOException {
+        Files.writeString(pendingCheckpointFile.toPath(), Long.toString(seq));
+        long start = System.nanoTime();
+        SnapshotFormat.of(expensesFile).writeExpenses(tmpFile(expensesFile), expenses);
+        metrics.recordSave(System.nanoTime() - start, tmpFile(expensesFile).length(), expenses.liveCount());
+        start = System.nanoTime();
+        SnapshotFormat.of(incomesFile).writeIncomes(tmpFile(incomesFile), incomes);
+        metrics.recordSave(System.nanoTime() - start, tmpFile(incomesFile).length(), incomes.liveCount());
+        Files.move(pendingCheckpointFile.toPath(), checkpointFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(tmpFile(expensesFile).toPath(), expensesFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmpFile(incomesFile).toPath(), incomesFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(compactingFile.toPath());
+        System.out.println("Journal compacted into snapshot at sequence " + seq);
+    }
+
+    private long readCheckpoint() {
+        if (!checkpointFile.exists()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpointFile.toPath()).trim());
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    private static File tmpFile(File file) {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * Writes out everything queued, stops the writer thread and waits for a running
+     * compaction to finish. Also runs as a shutdown hook, so queued entries survive a normal exit.
+     */
+    void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+            thread = writerThread;
+            if (thread != null) {
+                queue.add(STOP);
+            }
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (Thread.currentThread() != shutdownHook) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException e) {
+                    // Already shutting down
+                }
+            }
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.financetracker;
+
+/**
+ * Receives every mutation applied to a FinanceDataStorage, including records
+ * restored while loading. Callbacks run on the thread that mutates the storage.
+ */
+public interface TransactionListener {
+    void expenseAdded(Expense expense);
+
+    void expenseRemoved(Expense expense);
+
+    void incomeAdded(Income income);
+
+    /**
+     * Called when an income leaves the storage's hot data, e.g. when its year is archived.
+     */
+    default void incomeRemoved(Income income) {
+    }
+}
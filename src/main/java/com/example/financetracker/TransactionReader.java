@@ -0,0 +1,501 @@
+package com.example.financetracker;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Streams the expenses and incomes JSON arrays one record at a time with Gson's JsonReader,
+ * decoding each record with TransactionCodec.
+ * Records are handed out in chunks so callers never hold a parsed copy of the whole file
+ * next to the list they are filling.
+ * For callers that only fold values, {@link #scan} reads the same files several times faster
+ * by scanning bytes directly, without Gson and without building a record object.
+ */
+class TransactionReader {
+    static final int DEFAULT_CHUNK_SIZE = 2000;
+
+    private TransactionReader() {
+    }
+
+    /**
+     * Reads the expenses file.
+     * @param file     The JSON file holding an array of expenses.
+     * @param chunk    Receives the parsed records, at most DEFAULT_CHUNK_SIZE at a time.
+     * @param progress Receives the number of characters consumed so far.
+     */
+    static void readExpenses(File file, Consumer<List<Expense>> chunk, LongConsumer progress) throws IOException {
+        read(file, chunk, progress, TransactionCodec.EXPENSE::read);
+    }
+
+    /**
+     * Reads the incomes file.
+     * @param file     The JSON file holding an array of incomes.
+     * @param chunk    Receives the parsed records, at most DEFAULT_CHUNK_SIZE at a time.
+     * @param progress Receives the number of characters consumed so far.
+     */
+    static void readIncomes(File file, Consumer<List<Income>> chunk, LongConsumer progress) throws IOException {
+        read(file, chunk, progress, TransactionCodec.INCOME::read);
+    }
+
+    private interface RecordParser<T> {
+        T parse(JsonReader reader) throws IOException;
+    }
+
+    private static <T> void read(File file, Consumer<List<T>> chunk, LongConsumer progress,
+                                 RecordParser<T> parser) throws IOException {
+        try (CountingReader counter = new CountingReader(new FileReader(file, StandardCharsets.UTF_8));
+             JsonReader reader = new JsonReader(new BufferedReader(counter))) {
+            if (reader.peek() == JsonToken.NULL) {
+                return;
+            }
+            reader.beginArray();
+            List<T> buffer = new ArrayList<>(DEFAULT_CHUNK_SIZE);
+            while (reader.hasNext()) {
+                buffer.add(parser.parse(reader));
+                if (buffer.size() == DEFAULT_CHUNK_SIZE) {
+                    chunk.accept(buffer);
+                    progress.accept(counter.count);
+                    buffer = new ArrayList<>(DEFAULT_CHUNK_SIZE);
+                }
+            }
+            reader.endArray();
+            if (!buffer.isEmpty()) {
+                chunk.accept(buffer);
+            }
+            progress.accept(counter.count);
+        }
+    }
+
+    /**
+     * Receives the values of one record; the category is null for incomes.
+     */
+    interface RecordSink {
+        void accept(int id, long cents, int epochDay, String category);
+    }
+
+    /**
+     * Reads an expenses or incomes file front to back and hands each record's values to the sink.
+     * Accepts the same files as readExpenses and readIncomes, but works on the raw bytes with
+     * a fixed buffer: amounts in the usual two-decimal form become cents without going
+     * through a double, and category names are interned in a small cache, so a record
+     * costs no allocation beyond its date.
+     */
+    static void scan(File file, RecordSink sink) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            new RecordScanner(in, file.toString()).scan(sink);
+        }
+    }
+
+    private static final class RecordScanner {
+        private static final byte[] ID = bytes("id");
+        private static final byte[] AMOUNT = bytes("amount");
+        private static final byte[] CATEGORY = bytes("category");
+        private static final byte[] DATE = bytes("date");
+        private static final int NO_DATE = Integer.MIN_VALUE;
+
+        private final InputStream in;
+        private final String name;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+        private long offset;
+        // The last string or number read
+        private byte[] token = new byte[64];
+        private int tokenLength;
+        private boolean escaped;
+        private final byte[][] cachedBytes = new byte[256][];
+        private final String[] cachedNames = new String[256];
+
+        RecordScanner(InputStream in, String name) {
+            this.in = in;
+            this.name = name;
+        }
+
+        private static byte[] bytes(String text) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Refills the buffer once it has been consumed.
+         * @return Whether there is anything left to read.
+         */
+        private boolean fill() throws IOException {
+            if (position < limit) {
+                return true;
+            }
+            offset += limit;
+            limit = Math.max(0, in.read(buffer));
+            position = 0;
+            return limit > 0;
+        }
+
+        /**
+         * @return The next byte, or -1 at the end of the file.
+         */
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private int nextNonSpace() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+            return c;
+        }
+
+        private MalformedJsonException error(String message) {
+            return new MalformedJsonException(message + " at byte " + (offset + position) + " of " + name);
+        }
+
+        void scan(RecordSink sink) throws IOException {
+            int c = nextNonSpace();
+            if (c == 'n') {
+                literal("ull");
+                return;
+            }
+            if (c != '[') {
+                throw error("Expected an array");
+            }
+            c = nextNonSpace();
+            if (c == ']') {
+                return;
+            }
+            while (true) {
+                if (c == '{') {
+                    record(sink);
+                } else if (c == 'n') {
+                    literal("ull");
+                } else {
+                    throw error("Expected a record");
+                }
+                c = nextNonSpace();
+                if (c == ']') {
+                    return;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or ']'");
+                }
+                c = nextNonSpace();
+            }
+        }
+
+        private void record(RecordSink sink) throws IOException {
+            int id = 0;
+            long cents = 0;
+            String category = null;
+            int epochDay = NO_DATE;
+            int c = nextNonSpace();
+            while (c != '}') {
+                if (c != '"') {
+                    throw error("Expected a field name");
+                }
+                string();
+                byte[] field = escaped ? bytes(unescape()) : null;
+                if (nextNonSpace() != ':') {
+                    throw error("Expected ':'");
+                }
+                c = nextNonSpace();
+                if (isField(field, ID)) {
+                    long value = number(c);
+                    if (value != (int) value) {
+                        throw error("Id out of range");
+                    }
+                    id = (int) value;
+                } else if (isField(field, AMOUNT)) {
+                    cents = amount(c);
+                } else if (isField(field, CATEGORY)) {
+                    category = stringOrNull(c);
+                } else if (isField(field, DATE)) {
+                    epochDay = date(c);
+                } else {
+                    skipValue(c);
+                }
+                c = nextNonSpace();
+                if (c == ',') {
+                    c = nextNonSpace();
+                } else if (c != '}') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+            if (epochDay == NO_DATE) {
+                TransactionCodec.parseEpochDay(null);
+            }
+            sink.accept(id, cents, epochDay, category);
+        }
+
+        /**
+         * @param field The unescaped field name, or null if it is in the token as is.
+         */
+        private boolean isField(byte[] field, byte[] name) {
+            return field == null ? Arrays.equals(token, 0, tokenLength, name, 0, name.length) : Arrays.equals(field, name);
+        }
+
+        /**
+         * Reads the rest of a string whose opening quote was consumed into the token, undecoded.
+         */
+        private void string() throws IOException {
+            tokenLength = 0;
+            escaped = false;
+            while (fill()) {
+                byte[] bytes = buffer;
+                int end = position;
+                while (end < limit && bytes[end] != '"' && bytes[end] != '\\') {
+                    end++;
+                }
+                append(position, end);
+                position = end;
+                if (end == limit) {
+                    continue;
+                }
+                position++;
+                if (bytes[end] == '"') {
+                    return;
+                }
+                escaped = true;
+                append('\\');
+                int c = read();
+                if (c == -1) {
+                    break;
+                }
+                append(c);
+            }
+            throw error("Unterminated string");
+        }
+
+        private void append(int c) {
+            if (tokenLength == token.length) {
+                token = Arrays.copyOf(token, tokenLength * 2);
+            }
+            token[tokenLength++] = (byte) c;
+        }
+
+        private void append(int from, int to) {
+            int length = to - from;
+            if (tokenLength + length > token.length) {
+                token = Arrays.copyOf(token, Math.max(tokenLength + length, tokenLength * 2));
+            }
+            System.arraycopy(buffer, from, token, tokenLength, length);
+            tokenLength += length;
+        }
+
+        /**
+         * Escapes are rare in these files, so they are left to Gson.
+         */
+        private String unescape() throws IOException {
+            String raw = new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+            try (JsonReader reader = new JsonReader(new StringReader("\"" + raw + "\""))) {
+                return reader.nextString();
+            }
+        }
+
+        private String stringOrNull(int c) throws IOException {
+            if (c == 'n') {
+                literal("ull");
+                return null;
+            }
+            if (c != '"') {
+                throw error("Expected a string");
+            }
+            string();
+            if (escaped) {
+                return unescape();
+            }
+            int hash = 0;
+            for (int i = 0; i < tokenLength; i++) {
+                hash = 31 * hash + token[i];
+            }
+            int slot = (hash ^ hash >>> 8) & (cachedNames.length - 1);
+            byte[] known = cachedBytes[slot];
+            if (known == null || !Arrays.equals(known, 0, known.length, token, 0, tokenLength)) {
+                cachedBytes[slot] = Arrays.copyOf(token, tokenLength);
+                cachedNames[slot] = new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+            }
+            return cachedNames[slot];
+        }
+
+        private int date(int c) throws IOException {
+            if (c == 'n') {
+                literal("ull");
+                return NO_DATE;
+            }
+            if (c != '"') {
+                throw error("Expected a date");
+            }
+            string();
+            if (escaped) {
+                return TransactionCodec.parseEpochDay(unescape());
+            }
+            return TransactionCodec.parseEpochDay(token, tokenLength);
+        }
+
+        /**
+         * Reads a number, or a string holding one, as Gson's lenient number reads do, into the token.
+         * The first character has been consumed already.
+         */
+        private void numberToken(int c) throws IOException {
+            if (c == '"') {
+                string();
+                return;
+            }
+            tokenLength = 0;
+            append(c);
+            while (fill()) {
+                byte[] bytes = buffer;
+                int end = position;
+                while (end < limit && isNumberChar(bytes[end])) {
+                    end++;
+                }
+                append(position, end);
+                position = end;
+                if (end < limit) {
+                    return;
+                }
+            }
+        }
+
+        private static boolean isNumberChar(int c) {
+            return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E';
+        }
+
+        private long number(int c) throws IOException {
+            numberToken(c);
+            boolean negative = token[0] == '-';
+            int i = negative ? 1 : 0;
+            if (tokenLength > i && tokenLength - i <= 18) {
+                long value = 0;
+                while (i < tokenLength && token[i] >= '0' && token[i] <= '9') {
+                    value = value * 10 + (token[i++] - '0');
+                }
+                if (i == tokenLength) {
+                    return negative ? -value : value;
+                }
+            }
+            try {
+                return Long.parseLong(new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1));
+            } catch (NumberFormatException e) {
+                throw error("Expected an integer");
+            }
+        }
+
+        /**
+         * @return The amount in cents, rounded as TransactionColumns.toCents rounds a double.
+         *         Amounts with at most two decimals are exact in both, so they skip the double.
+         */
+        private long amount(int c) throws IOException {
+            numberToken(c);
+            int i = token[0] == '-' ? 1 : 0;
+            int integerDigits = 0;
+            long cents = 0;
+            while (i < tokenLength && token[i] >= '0' && token[i] <= '9') {
+                cents = cents * 10 + (token[i++] - '0');
+                integerDigits++;
+            }
+            int decimals = 0;
+            if (i < tokenLength && token[i] == '.') {
+                i++;
+                while (i < tokenLength && decimals < 3 && token[i] >= '0' && token[i] <= '9') {
+                    cents = cents * 10 + (token[i++] - '0');
+                    decimals++;
+                }
+            }
+            if (i == tokenLength && integerDigits > 0 && integerDigits <= 13 && decimals <= 2) {
+                for (; decimals < 2; decimals++) {
+                    cents *= 10;
+                }
+                return token[0] == '-' ? -cents : cents;
+            }
+            try {
+                return TransactionColumns.toCents(Double.parseDouble(
+                        new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1)));
+            } catch (NumberFormatException e) {
+                throw error("Expected an amount");
+            }
+        }
+
+        private void literal(String rest) throws IOException {
+            for (int i = 0; i < rest.length(); i++) {
+                if (read() != rest.charAt(i)) {
+                    throw error("Unexpected literal");
+                }
+            }
+        }
+
+        private void skipValue(int c) throws IOException {
+            if (c == '"') {
+                string();
+            } else if (c == '{' || c == '[') {
+                int depth = 1;
+                while (depth > 0) {
+                    c = read();
+                    if (c == '"') {
+                        string();
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    } else if (c == -1) {
+                        throw error("Unterminated value");
+                    }
+                }
+            } else if (c == 't') {
+                literal("rue");
+            } else if (c == 'f') {
+                literal("alse");
+            } else if (c == 'n') {
+                literal("ull");
+            } else {
+                numberToken(c);
+            }
+        }
+    }
+
+    /**
+     * Counts characters as they are pulled through, for progress reporting.
+     */
+    static class CountingReader extends FilterReader {
+        long count;
+
+        CountingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                count++;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int n = super.read(cbuf, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.financetracker;
+
+/**
+ * Read access to transaction rows by slot, shared by the in-memory columns and the
+ * archived partitions so a scan can run over either.
+ */
+abstract class TransactionRows {
+    /**
+     * @return The number of slots, including removed ones.
+     */
+    abstract int size();
+
+    abstract boolean isLive(int slot);
+
+    /**
+     * @return The number of live rows.
+     */
+    int liveCount() {
+        int count = 0;
+        for (int slot = 0; slot < size(); slot++) {
+            if (isLive(slot)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    abstract int id(int slot);
+
+    abstract long cents(int slot);
+
+    abstract int epochDay(int slot);
+
+    /**
+     * @return The row's category id in {@link #categories()}, or NO_CATEGORY.
+     */
+    abstract int categoryId(int slot);
+
+    /**
+     * @return The dictionary category ids refer to, or null for rows without a category.
+     */
+    abstract CategoryDictionary categories();
+
+    /**
+     * @return The number of slots in each chunk of contiguous column arrays, for the
+     *         AmountKernel, or 0 if the rows can only be read slot by slot.
+     */
+    int chunkSize() {
+        return 0;
+    }
+
+    long[] centsChunk(int chunk) {
+        throw new UnsupportedOperationException();
+    }
+
+    int[] dayChunk(int chunk) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return The chunk's category ids, or null for rows without a category.
+     */
+    int[] categoryChunk(int chunk) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return Whether every slot in [from, to) is live.
+     */
+    boolean allLive(int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            if (!isLive(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
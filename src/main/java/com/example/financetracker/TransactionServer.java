@@ -0,0 +1,402 @@
+package com.example.financetracker;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless HTTP front end, so scripts and other tools can post and query transactions.
+ * Runs on the JDK's built-in HttpServer with one virtual thread per exchange where the
+ * runtime has them (JDK 21 and later) and a cached thread pool otherwise. Writers share the
+ * storage's batched ingestion, and reports run against its snapshots, so requests do not
+ * serialize behind each other. Bodies are JSON, with records encoded like the journal's:
+ * <pre>
+ * POST /expenses          [{"amount": 12.5, "category": "Food", "date": "2024-05-01"}, ...]
+ * POST /incomes           [{"amount": 1000, "date": "2024-05-01"}, ...]
+ *                         both answer {"added": 2, "ids": [41, 42]}
+ * POST /expenses/delete   [41, 42]                   answers {"removed": 2}
+ * POST /incomes/delete    [7]
+ * GET  /expenses?from=2024-01-01&amp;to=2024-12-31&amp;category=Food&amp;limit=100
+ * GET  /incomes?from=2024-01-01&amp;to=2024-12-31    records in date order
+ * GET  /report?from=2024-01-01&amp;to=2024-12-31&amp;category=Food
+ * </pre>
+ * A batch is added or removed as a whole; if any record in it is invalid, nothing is stored
+ * and the answer is 400 with {"error": "..."}.
+ */
+public class TransactionServer {
+    public static final int DEFAULT_PORT = 8080;
+    static final String PORT_PROPERTY = "financetracker.server.port";
+
+    private final FinanceDataStorage storage;
+    private final ReportGenerator reports;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Binds the server; nothing is served until {@link #start()}.
+     * @param address The address to listen on; port 0 picks a free one.
+     */
+    public TransactionServer(FinanceDataStorage storage, InetSocketAddress address) throws IOException {
+        this.storage = storage;
+        this.reports = new ReportGenerator(storage);
+        this.server = HttpServer.create(address, 0);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/expenses", exchange -> handle(exchange, this::expenses));
+        server.createContext("/incomes", exchange -> handle(exchange, this::incomes));
+        server.createContext("/report", exchange -> handle(exchange, this::report));
+    }
+
+    /**
+     * @return A virtual thread per task executor when the runtime has one, looked up
+     *         reflectively since the build targets JDK 17; a cached pool otherwise.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "http-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, gives running exchanges a second to finish and stops the threads.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Answers a request, or says why it cannot.
+     */
+    private interface Route {
+        void serve(HttpExchange exchange, Map<String, String> params) throws IOException;
+    }
+
+    /**
+     * Serves a request and maps failures to an error answer. A streamed answer that fails
+     * halfway already has its status and headers out, so it is only closed: the client gets
+     * a JSON array that is cut short instead of a second set of headers.
+     */
+    private static void handle(HttpExchange exchange, Route route) throws IOException {
+        try {
+            route.serve(exchange, params(exchange.getRequestURI().getRawQuery()));
+        } catch (JsonParseException | IllegalArgumentException | IllegalStateException
+                 | MalformedJsonException | EOFException e) {
+            // Malformed or truncated JSON surfaces as one of these from the readers
+            if (responding(exchange)) {
+                e.printStackTrace();
+            } else {
+                sendError(exchange, 400, e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            if (!responding(exchange)) {
+                sendError(exchange, 500, "Internal error");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return Whether the response headers have been sent.
+     */
+    private static boolean responding(HttpExchange exchange) {
+        return exchange.getResponseCode() != -1;
+    }
+
+    private void expenses(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/expenses") && exchange.getRequestMethod().equals("POST")) {
+            sendAdded(exchange, storage.addAll(readExpenses(exchange), List.of()));
+        } else if (path.equals("/expenses/delete") && exchange.getRequestMethod().equals("POST")) {
+            sendRemoved(exchange, storage.removeAll(readIds(exchange), new int[0]));
+        } else if (path.equals("/expenses") && exchange.getRequestMethod().equals("GET")) {
+            int from = day(params, "from", Integer.MIN_VALUE);
+            int to = day(params, "to", Integer.MAX_VALUE);
+            // Looked up like any category name, so category=Gas lists the expenses filed under "gas"
+            String category = params.get("category");
+            Iterable<Expense> range = category == null ? storage.expensesBetween(from, to)
+                    : storage.expensesBetween(from, to, category);
+            int limit = limit(params);
+            sendStream(exchange, out -> {
+                int written = 0;
+                for (Expense expense : range) {
+                    if (written == limit) {
+                        break;
+                    }
+                    TransactionCodec.EXPENSE.write(out, expense);
+                    written++;
+                }
+            });
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
+    private void incomes(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/incomes") && exchange.getRequestMethod().equals("POST")) {
+            sendAdded(exchange, storage.addAll(List.of(), readIncomes(exchange)));
+        } else if (path.equals("/incomes/delete") && exchange.getRequestMethod().equals("POST")) {
+            sendRemoved(exchange, storage.removeAll(new int[0], readIds(exchange)));
+        } else if (path.equals("/incomes") && exchange.getRequestMethod().equals("GET")) {
+            Iterable<Income> range = storage.incomesBetween(day(params, "from", Integer.MIN_VALUE),
+                    day(params, "to", Integer.MAX_VALUE));
+            int limit = limit(params);
+            sendStream(exchange, out -> {
+                int written = 0;
+                for (Income income : range) {
+                    if (written == limit) {
+                        break;
+                    }
+                    TransactionCodec.INCOME.write(out, income);
+                    written++;
+                }
+            });
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
+    private void report(HttpExchange exchange, Map<String, String> params) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/report") || !exchange.getRequestMethod().equals("GET")) {
+            sendNotFound(exchange);
+            return;
+        }
+        ReportQuery query = ReportQuery.between(date(params, "from"), date(params, "to"))
+                .withCategory(params.get("category"));
+        if (query.getFrom() == null && query.getTo() == null && query.getCategory() == null) {
+            query = ReportQuery.all();
+        }
+        send(exchange, 200, reports.generate(query).toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a JSON array of expenses and validates all of them before anything is stored.
+     * Ids in the request are ignored; the storage assigns new ones.
+     */
+    private static List<Expense> readExpenses(HttpExchange exchange) throws IOException {
+        List<Expense> expenses = new ArrayList<>();
+        try (JsonReader in = reader(exchange)) {
+            in.beginArray();
+            while (in.hasNext()) {
+                Expense read = TransactionCodec.EXPENSE.read(in);
+                String where = "Record " + expenses.size() + ": ";
+                if (read == null || read.getCategory() == null || read.getCategory().isBlank()) {
+                    throw new IllegalArgumentException(where + "Category cannot be empty");
+                }
+                checkAmount(where, read.getAmount());
+                expenses.add(new Expense(0, read.getAmount(), read.getCategory().trim(), read.getEpochDay()));
+            }
+            in.endArray();
+        }
+        return expenses;
+    }
+
+    private static List<Income> readIncomes(HttpExchange exchange) throws IOException {
+        List<Income> incomes = new ArrayList<>();
+        try (JsonReader in = reader(exchange)) {
+            in.beginArray();
+            while (in.hasNext()) {
+                Income read = TransactionCodec.INCOME.read(in);
+                String where = "Record " + incomes.size() + ": ";
+                if (read == null) {
+                    throw new IllegalArgumentException(where + "Missing income");
+                }
+                checkAmount(where, read.getAmount());
+                incomes.add(new Income(0, read.getAmount(), read.getEpochDay()));
+            }
+            in.endArray();
+        }
+        return incomes;
+    }
+
+    private static void checkAmount(String where, double amount) {
+        if (!(amount > 0) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException(where + "Amount must be positive");
+        }
+    }
+
+    private static int[] readIds(HttpExchange exchange) throws IOException {
+        int[] ids = new int[16];
+        int count = 0;
+        try (JsonReader in = reader(exchange)) {
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() != JsonToken.NUMBER) {
+                    throw new IllegalArgumentException("Ids must be numbers");
+                }
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = in.nextInt();
+            }
+            in.endArray();
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static JsonReader reader(HttpExchange exchange) {
+        return new JsonReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> params(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static int day(Map<String, String> params, String name, int missing) {
+        String value = params.get(name);
+        return value == null ? missing : TransactionCodec.parseEpochDay(value);
+    }
+
+    private static LocalDate date(Map<String, String> params, String name) {
+        String value = params.get(name);
+        return value == null ? null : LocalDate.ofEpochDay(TransactionCodec.parseEpochDay(value));
+    }
+
+    private static int limit(Map<String, String> params) {
+        String value = params.get("limit");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            int limit = Integer.parseInt(value);
+            if (limit >= 0) {
+                return limit;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid limit: " + value);
+    }
+
+    private static void sendAdded(HttpExchange exchange, int[] ids) throws IOException {
+        StringBuilder body = new StringBuilder("{\"added\":").append(ids.length).append(",\"ids\":[");
+        for (int i = 0; i < ids.length; i++) {
+            body.append(i == 0 ? "" : ",").append(ids[i]);
+        }
+        send(exchange, 200, body.append("]}").toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendRemoved(HttpExchange exchange, int removed) throws IOException {
+        send(exchange, 200, ("{\"removed\":" + removed + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendNotFound(HttpExchange exchange) throws IOException {
+        sendError(exchange, 404, "No such endpoint: " + exchange.getRequestMethod() + " "
+                + exchange.getRequestURI().getPath());
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonWriter out = new JsonWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+            out.beginObject().name("error").value(message == null ? "Bad request" : message).endObject();
+        }
+        send(exchange, status, body.toByteArray());
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private interface Records {
+        void write(JsonWriter out) throws IOException;
+    }
+
+    /**
+     * Streams a JSON array chunk by chunk, so a large range never sits in memory as a whole.
+     */
+    private static void sendStream(HttpExchange exchange, Records records) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                1 << 16);
+        try (JsonWriter out = new JsonWriter(writer)) {
+            out.beginArray();
+            records.write(out);
+            out.endArray();
+        }
+    }
+
+    /**
+     * Serves the default storage headlessly until the process is stopped.
+     * The port comes from the first argument or the financetracker.server.port property.
+     * Turns on sun.net.httpserver.nodelay unless the command line set it: the JDK server
+     * writes headers and body separately, and with Nagle's algorithm on the body waits for
+     * the client's delayed ACK, so every small exchange takes tens of milliseconds. The JDK
+     * reads the property once, when the first server is created, so embedders that want it
+     * pass -Dsun.net.httpserver.nodelay=true themselves.
+     */
+    public static void main(String[] args) throws IOException {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        FinanceDataStorage storage = new FinanceDataStorage();
+        storage.getMetrics().register();
+        storage.load();
+        TransactionServer server = new TransactionServer(storage,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            storage.close();
+        }, "server-shutdown"));
+        server.start();
+        System.out.println("Serving on http://localhost:" + server.getPort());
+    }
+}
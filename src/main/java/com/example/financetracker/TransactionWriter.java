@@ -0,0 +1,46 @@
+package com.example.financetracker;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes transaction columns as the JSON arrays read by TransactionReader.
+ * Values are streamed straight from the columns, so no Expense or Income objects are built.
+ */
+class TransactionWriter {
+    private TransactionWriter() {
+    }
+
+    static void writeExpenses(File file, TransactionRows rows) throws IOException {
+        write(file, rows, true);
+    }
+
+    static void writeIncomes(File file, TransactionRows rows) throws IOException {
+        write(file, rows, false);
+    }
+
+    private static void write(File file, TransactionRows rows, boolean withCategory) throws IOException {
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (int slot = 0; slot < rows.size(); slot++) {
+                if (!rows.isLive(slot)) {
+                    continue;
+                }
+                writer.beginObject();
+                writer.name("id").value(rows.id(slot));
+                writer.name("amount").value(TransactionColumns.toAmount(rows.cents(slot)));
+                if (withCategory) {
+                    writer.name("category").value(rows.categories().nameOf(rows.categoryId(slot)));
+                }
+                writer.name("date").value(TransactionCodec.formatEpochDay(rows.epochDay(slot)));
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+    }
+}
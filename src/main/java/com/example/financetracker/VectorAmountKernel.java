@@ -0,0 +1,136 @@
+package com.example.financetracker;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The AmountKernel on the incubating Vector API, in the widest vectors the CPU supports.
+ * Masked kernels load the dates and category ids as int vectors with as many lanes as the
+ * long vectors of amounts, so a comparison's mask applies to the amounts lane for lane.
+ * Only created by AmountKernel when the jdk.incubator.vector module is present.
+ */
+class VectorAmountKernel extends AmountKernel {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Ints in half the width, one lane per lane of LONGS
+    private static final VectorSpecies<Integer> LANE_INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    long sum(long[] cents, int from, int to) {
+        LongVector sums = LongVector.zero(LONGS);
+        int i = from;
+        for (int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            sums = sums.add(LongVector.fromArray(LONGS, cents, i));
+        }
+        long sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            sum += cents[i];
+        }
+        return sum;
+    }
+
+    @Override
+    long min(long[] cents, int from, int to) {
+        LongVector mins = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+        int i = from;
+        for (int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            mins = mins.min(LongVector.fromArray(LONGS, cents, i));
+        }
+        long min = mins.reduceLanes(VectorOperators.MIN);
+        for (; i < to; i++) {
+            min = Math.min(min, cents[i]);
+        }
+        return min;
+    }
+
+    @Override
+    long max(long[] cents, int from, int to) {
+        LongVector maxes = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+        int i = from;
+        for (int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            maxes = maxes.max(LongVector.fromArray(LONGS, cents, i));
+        }
+        long max = maxes.reduceLanes(VectorOperators.MAX);
+        for (; i < to; i++) {
+            max = Math.max(max, cents[i]);
+        }
+        return max;
+    }
+
+    @Override
+    int min(int[] days, int from, int to) {
+        IntVector mins = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            mins = mins.min(IntVector.fromArray(INTS, days, i));
+        }
+        int min = mins.reduceLanes(VectorOperators.MIN);
+        for (; i < to; i++) {
+            min = Math.min(min, days[i]);
+        }
+        return min;
+    }
+
+    @Override
+    int max(int[] days, int from, int to) {
+        IntVector maxes = IntVector.broadcast(INTS, Integer.MIN_VALUE);
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            maxes = maxes.max(IntVector.fromArray(INTS, days, i));
+        }
+        int max = maxes.reduceLanes(VectorOperators.MAX);
+        for (; i < to; i++) {
+            max = Math.max(max, days[i]);
+        }
+        return max;
+    }
+
+    @Override
+    void aggregate(long[] cents, int[] days, int[] categoryIds, int from, int to,
+                   int fromDay, int toDay, int category, Totals totals) {
+        LongVector sums = LongVector.zero(LONGS);
+        LongVector mins = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+        LongVector maxes = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+        int count = 0;
+        int i = from;
+        for (int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            IntVector day = IntVector.fromArray(LANE_INTS, days, i);
+            VectorMask<Integer> matches = day.compare(VectorOperators.GE, fromDay)
+                    .and(day.compare(VectorOperators.LE, toDay));
+            if (categoryIds != null) {
+                matches = matches.and(IntVector.fromArray(LANE_INTS, categoryIds, i).compare(VectorOperators.EQ, category));
+            }
+            VectorMask<Long> lanes = matches.cast(LONGS);
+            LongVector amounts = LongVector.fromArray(LONGS, cents, i);
+            sums = sums.add(amounts, lanes);
+            mins = mins.blend(mins.min(amounts), lanes);
+            maxes = maxes.blend(maxes.max(amounts), lanes);
+            count += lanes.trueCount();
+        }
+        totals.cents += sums.reduceLanes(VectorOperators.ADD);
+        totals.count += count;
+        totals.min = Math.min(totals.min, mins.reduceLanes(VectorOperators.MIN));
+        totals.max = Math.max(totals.max, maxes.reduceLanes(VectorOperators.MAX));
+        for (; i < to; i++) {
+            int day = days[i];
+            if (day < fromDay || day > toDay || categoryIds != null && categoryIds[i] != category) {
+                continue;
+            }
+            long amount = cents[i];
+            totals.cents += amount;
+            totals.count++;
+            totals.min = Math.min(totals.min, amount);
+            totals.max = Math.max(totals.max, amount);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.financetracker;
+
+/**
+ * When the background writer pushes queued journal entries to disk.
+ * Entries that arrive together are always coalesced into a single write; the policy
+ * decides how long they may wait and whether each write is forced to the device.
+ */
+public final class WritePolicy {
+    private final int maxRecords;
+    private final long maxDelayMillis;
+    private final boolean fsync;
+
+    private WritePolicy(int maxRecords, long maxDelayMillis, boolean fsync) {
+        this.maxRecords = maxRecords;
+        this.maxDelayMillis = maxDelayMillis;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Writes once the given number of records is pending or the oldest pending record has
+     * waited the given time, whichever comes first. Writes are not forced to the device.
+     */
+    public static WritePolicy batched(int maxRecords, long maxDelayMillis) {
+        return new WritePolicy(Math.max(1, maxRecords), Math.max(0, maxDelayMillis), false);
+    }
+
+    /**
+     * Writes every N records, however long that takes.
+     */
+    public static WritePolicy everyRecords(int maxRecords) {
+        return batched(maxRecords, Long.MAX_VALUE);
+    }
+
+    /**
+     * Writes every T milliseconds, however many records are pending.
+     */
+    public static WritePolicy everyMillis(long maxDelayMillis) {
+        return batched(Integer.MAX_VALUE, maxDelayMillis);
+    }
+
+    /**
+     * Writes and fsyncs as soon as the writer picks records up. A burst that queued up
+     * while the previous fsync ran is committed together as one group.
+     */
+    public static WritePolicy fsyncPerCommit() {
+        return new WritePolicy(1, 0, true);
+    }
+
+    public static WritePolicy defaultPolicy() {
+        return batched(1000, 200);
+    }
+
+    public int getMaxRecords() {
+        return maxRecords;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+}
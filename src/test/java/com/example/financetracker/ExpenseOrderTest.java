@@ -0,0 +1,96 @@
+package com.example.financetracker;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the sort orders of the virtual expense lists, which are package-private.
+ */
+public class ExpenseOrderTest extends TestCase
+{
+    private File dir;
+    private FinanceDataStorage storage;
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory( "finance-order" ).toFile();
+        storage = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), true );
+        storage.load();
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        storage.close();
+        File[] files = dir.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static List<String> categories( List<Expense> expenses )
+    {
+        List<String> categories = new ArrayList<>();
+        for ( Expense expense : expenses )
+        {
+            categories.add( expense.getCategory() );
+        }
+        return categories;
+    }
+
+    public void testCategoryOrderPutsUncategorizedFirst()
+    {
+        LocalDate date = LocalDate.of( 2024, 4, 1 );
+        storage.addExpense( new Expense( 1, "gas", date ) );
+        storage.addExpense( new Expense( 2, null, date ) );
+        storage.addExpense( new Expense( 3, "food", date ) );
+        storage.addExpense( new Expense( 4, null, date ) );
+
+        PagedTransactionList<Expense> view = storage.openExpenseView();
+        view.sortBy( storage.expenseCategoryOrder(), false );
+        assertEquals( Arrays.asList( null, null, "food", "gas" ), categories( view ) );
+        assertEquals( 2.0, view.get( 0 ).getAmount(), 0.0 );
+
+        storage.addExpense( new Expense( 5, null, date ) );
+        storage.addExpense( new Expense( 6, "bus", date ) );
+        assertEquals( Arrays.asList( null, null, null, "bus", "food", "gas" ), categories( view ) );
+        assertEquals( 5.0, view.get( 2 ).getAmount(), 0.0 );
+
+        view.sortBy( storage.expenseCategoryOrder(), true );
+        assertEquals( "gas", view.get( 0 ).getCategory() );
+        assertNull( view.get( 5 ).getCategory() );
+    }
+
+    public void testNullOrderRestoresInsertionOrder()
+    {
+        LocalDate date = LocalDate.of( 2024, 4, 1 );
+        storage.addExpense( new Expense( 1, "gas", date ) );
+        storage.addExpense( new Expense( 2, "bus", date ) );
+        storage.addExpense( new Expense( 3, "food", date ) );
+
+        PagedTransactionList<Expense> view = storage.openExpenseView();
+        view.sortBy( storage.expenseCategoryOrder(), false );
+        view.sortBy( null, false );
+        assertEquals( Arrays.asList( "gas", "bus", "food" ), categories( view ) );
+
+        storage.addExpense( new Expense( 4, "art", date ) );
+        assertEquals( Arrays.asList( "gas", "bus", "food", "art" ), categories( view ) );
+
+        view.sortBy( null, true );
+        assertEquals( Arrays.asList( "art", "food", "bus", "gas" ), categories( view ) );
+    }
+}
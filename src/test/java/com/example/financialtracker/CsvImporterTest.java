@@ -0,0 +1,120 @@
+package com.example.financialtracker;
+
+import com.example.financetracker.CsvImporter;
+import com.example.financetracker.Expense;
+import com.example.financetracker.FinanceDataStorage;
+import com.example.financetracker.ImportResult;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+/**
+ * Unit tests for the bulk CSV import.
+ */
+public class CsvImporterTest extends TestCase
+{
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory( "finance-import" ).toFile();
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        File[] files = dir.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private FinanceDataStorage open()
+    {
+        FinanceDataStorage storage = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), true );
+        storage.load();
+        return storage;
+    }
+
+    public void testImportsBatchesReportsErrorsAndSkipsReimports() throws IOException
+    {
+        StringBuilder csv = new StringBuilder( "Amount,Date,Description\r\n" );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            csv.append( -( i % 50 + 1 ) ).append( ".25," ).append( LocalDate.of( 2024, 1, 1 ).plusDays( i % 30 ) )
+                    .append( ",shop " ).append( i % 7 ).append( "\r\n" );
+        }
+        csv.append( "\"$1,200.00\",2024-02-01,salary\n" );
+        csv.append( "(4.50),2024-02-02,\"Cafe, \"\"corner\"\"\"\n" );
+        csv.append( "abc,2024-02-03,oops\n" );
+        csv.append( "-3.00,2024-02-30,bad date\n" );
+        csv.append( "-3.00,2024-02-04,\n" );
+        File file = new File( dir, "statement.csv" );
+        Files.write( file.toPath(), csv.toString().getBytes( StandardCharsets.UTF_8 ) );
+
+        FinanceDataStorage storage = open();
+        storage.addExpense( new Expense( 4.5, "Cafe, \"corner\"", LocalDate.of( 2024, 2, 2 ) ) );
+        CsvImporter importer = new CsvImporter( storage );
+        importer.setBatchSize( 64 );
+        importer.setThreads( 3 );
+        ImportResult result = importer.importFile( file );
+
+        // The generated lines only repeat after 1050, so none of them is a duplicate
+        assertEquals( 1000, result.getExpensesImported() );
+        assertEquals( 1, result.getIncomesImported() );
+        assertEquals( 1, result.getDuplicates() );
+        assertEquals( 3, result.getErrorCount() );
+        assertEquals( 1004, result.getErrors().get( 0 ).getLine() );
+        assertEquals( "Invalid amount: abc", result.getErrors().get( 0 ).getMessage() );
+        assertEquals( "Invalid date: 2024-02-30", result.getErrors().get( 1 ).getMessage() );
+        assertEquals( "Category cannot be empty", result.getErrors().get( 2 ).getMessage() );
+        assertEquals( 1001, storage.getExpenses().size() );
+        assertEquals( 1200.0, storage.getIncomes().get( 0 ).getAmount() );
+
+        ImportResult again = importer.importFile( file );
+        assertEquals( 0, again.getExpensesImported() + again.getIncomesImported() );
+        assertEquals( 1002, again.getDuplicates() );
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 1001, reopened.getExpenses().size() );
+        assertEquals( 1, reopened.getIncomes().size() );
+        reopened.close();
+    }
+
+    public void testReimportMatchesCategoriesWhateverTheirCase() throws IOException
+    {
+        File file = new File( dir, "mixed.csv" );
+        Files.write( file.toPath(), ( "2024-03-01,-10.00,gas\n2024-03-01,-10.00,GAS \n2024-03-02,-5.00,Food\n" )
+                .getBytes( StandardCharsets.UTF_8 ) );
+
+        FinanceDataStorage storage = open();
+        storage.addExpense( new Expense( 10.0, "Gas", LocalDate.of( 2024, 3, 1 ) ) );
+        CsvImporter importer = new CsvImporter( storage );
+        ImportResult result = importer.importFile( file );
+        assertEquals( 2, result.getExpensesImported() );
+        assertEquals( 1, result.getDuplicates() );
+        assertEquals( 3, storage.getExpenses().size() );
+
+        ImportResult again = importer.importFile( file );
+        assertEquals( 0, again.getExpensesImported() );
+        assertEquals( 3, again.getDuplicates() );
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 3, reopened.getExpenses().size() );
+        assertEquals( 0, new CsvImporter( reopened ).importFile( file ).getExpensesImported() );
+        reopened.close();
+    }
+}
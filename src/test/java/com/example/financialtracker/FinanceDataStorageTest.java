@@ -0,0 +1,843 @@
+package com.example.financialtracker;
+
+import com.example.financetracker.AggregateEngine;
+import com.example.financetracker.Alert;
+import com.example.financetracker.Expense;
+import com.example.financetracker.FinanceDataStorage;
+import com.example.financetracker.FinancialReport;
+import com.example.financetracker.Income;
+import com.example.financetracker.ReportGenerator;
+import com.example.financetracker.ReportQuery;
+import com.example.financetracker.StorageMetrics;
+import com.example.financetracker.TransactionListener;
+import com.example.financetracker.WritePolicy;
+import javafx.collections.ListChangeListener;
+import junit.framework.TestCase;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * Unit tests for the journaled FinanceDataStorage.
+ */
+public class FinanceDataStorageTest extends TestCase
+{
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory( "finance-storage" ).toFile();
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        delete( dir );
+    }
+
+    private static void delete( File file )
+    {
+        File[] files = file.listFiles();
+        if ( files != null )
+        {
+            for ( File child : files )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+    private FinanceDataStorage open()
+    {
+        return open( 0 );
+    }
+
+    private FinanceDataStorage open( int hotYears )
+    {
+        FinanceDataStorage storage = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), true );
+        storage.setHotYears( hotYears );
+        storage.load();
+        return storage;
+    }
+
+    public void testJournalIsReplayedOnStartup()
+    {
+        FinanceDataStorage storage = open();
+        LocalDate date = LocalDate.of( 2024, 6, 14 );
+        Expense gas = new Expense( 30.3, "gas", date );
+        storage.addExpense( gas );
+        storage.addExpense( new Expense( 12.0, "food", date ) );
+        storage.addIncome( new Income( 45.5, date ) );
+        storage.removeExpense( gas );
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 1, reopened.getExpenses().size() );
+        Expense food = reopened.getExpenses().get( 0 );
+        assertEquals( "food", food.getCategory() );
+        assertEquals( 12.0, food.getAmount(), 0.0 );
+        assertEquals( date, food.getDate() );
+        assertEquals( 1, reopened.getIncomes().size() );
+        reopened.close();
+    }
+
+    public void testCompactionWritesSnapshotAndKeepsTail()
+    {
+        FinanceDataStorage storage = open();
+        storage.setCompactionThreshold( 1 );
+        LocalDate date = LocalDate.of( 2024, 1, 1 );
+        for ( int i = 0; i < 50; i++ )
+        {
+            storage.addExpense( new Expense( i, "category" + ( i % 5 ), date.plusDays( i ) ) );
+        }
+        // The journal size is only known once the writer thread has caught up
+        storage.flush();
+        storage.addExpense( new Expense( 50, "category0", date.plusDays( 50 ) ) );
+        storage.close();
+
+        assertTrue( new File( dir, "expenses.json" ).length() > 0 );
+        FinanceDataStorage reopened = open();
+        assertEquals( 51, reopened.getExpenses().size() );
+        reopened.close();
+    }
+
+    public void testAggregatesFollowAddsAndRemoves()
+    {
+        FinanceDataStorage storage = open();
+        Expense rent = new Expense( 800.0, "rent", LocalDate.of( 2024, 3, 1 ) );
+        storage.addExpense( rent );
+        storage.addExpense( new Expense( 20.5, "gas", LocalDate.of( 2024, 3, 9 ) ) );
+        storage.addExpense( new Expense( 19.5, "gas", LocalDate.of( 2024, 4, 2 ) ) );
+        storage.addIncome( new Income( 1000.0, LocalDate.of( 2024, 3, 31 ) ) );
+        storage.removeExpense( rent );
+
+        AggregateEngine aggregates = storage.getAggregates();
+        assertEquals( 40.0, aggregates.getTotalExpenses(), 0.0 );
+        assertEquals( 1000.0, aggregates.getTotalIncome(), 0.0 );
+        assertEquals( 40.0, aggregates.getExpenses( "gas" ), 0.0 );
+        assertEquals( 0.0, aggregates.getExpenses( "rent" ), 0.0 );
+        assertEquals( 20.5, aggregates.getExpenses( YearMonth.of( 2024, 3 ) ), 0.0 );
+        assertEquals( 19.5, aggregates.getExpenses( "gas", YearMonth.of( 2024, 4 ) ), 0.0 );
+        assertFalse( aggregates.getExpensesByCategory().containsKey( "rent" ) );
+        storage.close();
+    }
+
+    public void testBalanceFollowsAddsRemovesAndArchive()
+    {
+        LocalDate today = LocalDate.now();
+        FinanceDataStorage storage = open();
+        storage.addIncome( new Income( 1000.0, LocalDate.of( 2015, 3, 1 ) ) );
+        storage.addExpense( new Expense( 200.0, "rent", LocalDate.of( 2015, 3, 10 ) ) );
+        Expense gas = new Expense( 50.0, "gas", LocalDate.of( 2015, 4, 2 ) );
+        storage.addExpense( gas );
+        // Earlier than anything so far, so the index has to move its origin back
+        storage.addIncome( new Income( 5.0, LocalDate.of( 1999, 12, 31 ) ) );
+        storage.addExpense( new Expense( 30.0, "food", today ) );
+        assertEquals( 0.0, storage.getBalance( LocalDate.of( 1999, 12, 30 ) ), 0.0 );
+        assertEquals( 5.0, storage.getBalance( LocalDate.of( 2015, 2, 28 ) ), 0.0 );
+        assertEquals( 805.0, storage.getBalance( LocalDate.of( 2015, 3, 10 ) ), 0.0 );
+        assertEquals( 725.0, storage.getBalance( today.plusYears( 1 ) ), 0.0 );
+        assertEquals( -250.0, storage.getNetFlow( LocalDate.of( 2015, 3, 2 ), LocalDate.of( 2015, 4, 30 ) ), 0.0 );
+        storage.removeExpense( gas );
+        assertEquals( 800.0, storage.getNetFlow( LocalDate.of( 2015, 3, 1 ), LocalDate.of( 2015, 4, 30 ) ), 0.0 );
+        NavigableMap<LocalDate, Double> chart = storage.getBalanceOverTime( null, null, 10 );
+        assertEquals( LocalDate.of( 1999, 12, 31 ), chart.firstKey() );
+        assertEquals( today, chart.lastKey() );
+        assertEquals( 775.0, chart.lastEntry().getValue(), 0.0 );
+        storage.close();
+
+        // Archived months are booked on their last day
+        FinanceDataStorage archived = open( 2 );
+        assertEquals( 775.0, archived.getBalance( today ), 0.0 );
+        assertEquals( 805.0, archived.getBalance( LocalDate.of( 2015, 3, 31 ) ), 0.0 );
+        assertEquals( 5.0, archived.getBalance( LocalDate.of( 2015, 3, 10 ) ), 0.0 );
+        archived.close();
+    }
+
+    public void testBudgetAndAnomalyAlertsOnInsert()
+    {
+        FinanceDataStorage storage = open();
+        List<Alert> raised = new ArrayList<>();
+        storage.getAlerts().addAlertListener( raised::add );
+        storage.getAlerts().setMonthlyBudget( "gas", 125 );
+        LocalDate date = LocalDate.of( 2024, 5, 1 );
+        for ( int i = 0; i < 12; i++ )
+        {
+            storage.addExpense( new Expense( 9 + i % 3, "gas", date.plusDays( i ) ) );
+        }
+        assertTrue( raised.isEmpty() );
+        storage.addExpense( new Expense( 10, "gas", date.plusDays( 12 ) ) );
+        assertEquals( 1, raised.size() );
+        assertEquals( Alert.Kind.BUDGET, raised.get( 0 ).getKind() );
+        // Already over budget, so only unusual
+        storage.addExpense( new Expense( 400, "gas", date.plusDays( 13 ) ) );
+        assertEquals( 2, raised.size() );
+        assertEquals( Alert.Kind.ANOMALY, raised.get( 1 ).getKind() );
+        assertEquals( 400.0, raised.get( 1 ).getAmount(), 0.0 );
+        // Another month starts from zero
+        storage.addExpense( new Expense( 10, "gas", date.plusMonths( 1 ) ) );
+        assertEquals( 2, raised.size() );
+        assertEquals( raised, storage.getAlerts().getRecentAlerts() );
+        storage.close();
+
+        // Replayed expenses restore the month totals without raising alerts again
+        FinanceDataStorage reopened = open();
+        assertTrue( reopened.getAlerts().getRecentAlerts().isEmpty() );
+        reopened.getAlerts().setMonthlyBudget( "gas", 150 );
+        reopened.addExpense( new Expense( 10, "gas", date.plusDays( 20 ) ) );
+        assertTrue( reopened.getAlerts().getRecentAlerts().isEmpty() );
+        reopened.addExpense( new Expense( 141, "gas", date.plusMonths( 1 ) ) );
+        assertEquals( Alert.Kind.BUDGET, reopened.getAlerts().getRecentAlerts().get( 0 ).getKind() );
+        reopened.close();
+    }
+
+    public void testCategorySpellingsShareOneCanonicalName()
+    {
+        FinanceDataStorage storage = open();
+        LocalDate date = LocalDate.of( 2024, 5, 1 );
+        storage.addExpense( new Expense( 10, "Gas", date ) );
+        storage.addExpense( new Expense( 20, "gas ", date ) );
+        storage.addExpense( new Expense( 30, " GAS", date ) );
+        storage.addExpense( new Expense( 5, "Gas  Station", date ) );
+        storage.addExpense( new Expense( 7, "groceries", date ) );
+
+        assertEquals( 3, storage.countExpensesInCategory( "gas" ) );
+        assertEquals( 60.0, storage.getAggregates().getExpenses( "gas" ), 0.0 );
+        assertEquals( 60.0, storage.getAggregates().getExpensesByCategory().get( "Gas" ), 0.0 );
+        assertEquals( 3, storage.getAggregates().getExpensesByCategory().size() );
+        for ( Expense expense : storage.getExpensesInCategory( "gas" ) )
+        {
+            assertEquals( "Gas", expense.getCategory() );
+        }
+
+        assertEquals( Arrays.asList( "Gas", "Gas Station", "groceries" ), storage.suggestCategories( "g", 5 ) );
+        assertEquals( Arrays.asList( "Gas", "Gas Station" ), storage.suggestCategories( "GA", 5 ) );
+        assertEquals( Arrays.asList( "Gas Station" ), storage.suggestCategories( "stat", 5 ) );
+        assertEquals( 1, storage.suggestCategories( "g", 1 ).size() );
+        assertTrue( storage.suggestCategories( "x", 5 ).isEmpty() );
+        storage.close();
+    }
+
+    public void testRangeQueryReturnsDateOrder()
+    {
+        FinanceDataStorage storage = open();
+        storage.addExpense( new Expense( 3.0, "c", LocalDate.of( 2024, 6, 1 ) ) );
+        storage.addExpense( new Expense( 1.0, "a", LocalDate.of( 2024, 2, 1 ) ) );
+        Expense april = new Expense( 2.0, "b", LocalDate.of( 2024, 4, 1 ) );
+        storage.addExpense( april );
+        storage.addExpense( new Expense( 4.0, "d", LocalDate.of( 2024, 7, 1 ) ) );
+
+        List<Double> amounts = new ArrayList<>();
+        for ( Expense expense : storage.getExpensesBetween( LocalDate.of( 2024, 3, 1 ), LocalDate.of( 2024, 6, 30 ) ) )
+        {
+            amounts.add( expense.getAmount() );
+        }
+        assertEquals( Arrays.asList( 2.0, 3.0 ), amounts );
+
+        Expense found = storage.getExpensesBetween( LocalDate.of( 2024, 4, 1 ), LocalDate.of( 2024, 4, 1 ) )
+                .iterator().next();
+        storage.removeExpense( found );
+        assertFalse( storage.getExpenses().contains( april ) );
+        assertFalse( storage.getExpensesBetween( LocalDate.of( 2024, 3, 1 ), LocalDate.of( 2024, 4, 30 ) )
+                .iterator().hasNext() );
+        storage.close();
+    }
+
+    public void testExpenseListReportsChangesAtInsertionPositions()
+    {
+        FinanceDataStorage storage = open();
+        for ( int i = 0; i < 300; i++ )
+        {
+            storage.addExpense( new Expense( i, "c" + ( i % 3 ), LocalDate.of( 2024, 1, 1 ).plusDays( i % 60 ) ) );
+        }
+        List<String> changes = new ArrayList<>();
+        storage.getExpenses().addListener( (ListChangeListener<Expense>) change ->
+        {
+            while ( change.next() )
+            {
+                changes.add( ( change.wasRemoved() ? "-" : "+" ) + change.getFrom() );
+            }
+        } );
+
+        storage.removeExpense( storage.getExpenses().get( 200 ) );
+        storage.addExpense( new Expense( 1000.0, "c0", LocalDate.of( 2024, 3, 1 ) ) );
+
+        assertEquals( Arrays.asList( "-200", "+299" ), changes );
+        assertEquals( 300, storage.getExpenses().size() );
+        assertEquals( 201.0, storage.getExpenses().get( 200 ).getAmount() );
+        assertEquals( 1000.0, storage.getExpenses().get( 299 ).getAmount() );
+        storage.close();
+    }
+
+    public void testAddAllTakesImmutableListsAndReturnsIds()
+    {
+        FinanceDataStorage storage = open();
+        LocalDate date = LocalDate.of( 2024, 5, 1 );
+        Expense expense = new Expense( 12.5, "food", date );
+        int[] ids = storage.addAll( List.of( expense ), List.of( new Income( 100, date ) ) );
+        assertEquals( 2, ids.length );
+        assertEquals( expense.getId(), ids[0] );
+        assertEquals( ids[1], storage.getIncomes().get( 0 ).getId() );
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 1, reopened.getExpenses().size() );
+        assertEquals( ids[0], reopened.getExpenses().get( 0 ).getId() );
+        assertEquals( 1, reopened.getIncomes().size() );
+        reopened.close();
+    }
+
+    public void testFailedChangeIsRolledBackAndNotJournaled()
+    {
+        FinanceDataStorage storage = open();
+        LocalDate date = LocalDate.of( 2024, 5, 1 );
+        storage.addTransactionListener( new TransactionListener()
+        {
+            @Override
+            public void expenseAdded( Expense expense )
+            {
+                if ( "refused".equals( expense.getCategory() ) )
+                {
+                    throw new IllegalArgumentException( "refused" );
+                }
+            }
+
+            @Override
+            public void expenseRemoved( Expense expense )
+            {
+            }
+
+            @Override
+            public void incomeAdded( Income income )
+            {
+            }
+        } );
+        storage.addExpense( new Expense( 10, "kept", date ) );
+        try
+        {
+            storage.addAll( Arrays.asList( new Expense( 20, "fine", date ), new Expense( 30, "refused", date ) ),
+                    Arrays.asList( new Income( 40, date ) ) );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertEquals( "refused", e.getMessage() );
+        }
+        storage.addExpense( new Expense( 50, "kept", date ) );
+
+        assertEquals( 2, storage.getExpenses().size() );
+        assertEquals( 0, storage.getIncomes().size() );
+        assertEquals( 60.0, storage.getAggregates().getTotalExpenses(), 0.0 );
+        assertEquals( 0, storage.countExpensesInCategory( "fine" ) );
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 2, reopened.getExpenses().size() );
+        assertEquals( 60.0, reopened.getAggregates().getTotalExpenses(), 0.0 );
+        reopened.close();
+    }
+
+    public void testQueuedListUpdatesArriveAsOneChange()
+    {
+        FinanceDataStorage storage = open();
+        for ( int i = 0; i < 10; i++ )
+        {
+            storage.addExpense( new Expense( i, "c", LocalDate.of( 2024, 1, 1 ) ) );
+        }
+        List<Runnable> scheduled = new ArrayList<>();
+        storage.setListExecutor( scheduled::add );
+        List<String> changes = new ArrayList<>();
+        storage.getExpenses().addListener( (ListChangeListener<Expense>) change ->
+        {
+            changes.add( "change" );
+            while ( change.next() )
+            {
+                changes.add( ( change.wasRemoved() ? "-" : "+" ) + change.getFrom() + "x"
+                        + ( change.wasRemoved() ? change.getRemovedSize() : change.getAddedSize() ) );
+            }
+        } );
+
+        Expense removed = storage.getExpenses().get( 3 );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            storage.addExpense( new Expense( 100 + i, "c", LocalDate.of( 2024, 2, 1 ) ) );
+        }
+        storage.removeExpense( removed );
+        Expense temporary = new Expense( 5000, "c", LocalDate.of( 2024, 3, 1 ) );
+        storage.addExpense( temporary );
+        storage.removeExpense( temporary );
+
+        assertEquals( 1, scheduled.size() );
+        assertTrue( changes.isEmpty() );
+        assertEquals( 10, storage.getExpenses().size() );
+        scheduled.get( 0 ).run();
+        assertEquals( Arrays.asList( "change", "-3x1", "+9x1000" ), changes );
+        assertEquals( 1009, storage.getExpenses().size() );
+        assertEquals( 1099.0, storage.getExpenses().get( 1008 ).getAmount() );
+
+        // Drained, so the next batch schedules again
+        storage.addExpense( new Expense( 1, "c", LocalDate.of( 2024, 4, 1 ) ) );
+        assertEquals( 2, scheduled.size() );
+        storage.close();
+    }
+
+    public void testMetricsFollowSavesMutationsAndReports() throws Exception
+    {
+        FinanceDataStorage storage = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), false );
+        storage.load();
+        StorageMetrics metrics = storage.getMetrics();
+        storage.addExpense( new Expense( 5.0, "gas", LocalDate.of( 2024, 5, 5 ) ) );
+        storage.addIncome( new Income( 10.0, LocalDate.of( 2024, 5, 6 ) ) );
+        new ReportGenerator( storage ).generate( ReportQuery.all() );
+
+        assertEquals( 2, metrics.getMutationCount() );
+        assertEquals( 2, metrics.getSaveCount() );
+        assertEquals( new File( dir, "expenses.json" ).length() + new File( dir, "incomes.json" ).length(),
+                metrics.getBytesWritten() );
+        assertEquals( 1, metrics.getReportCount() );
+        assertTrue( metrics.getReportP99Millis() > 0 );
+        assertTrue( metrics.getReportP99Millis() <= metrics.getReportMaxMillis() );
+
+        metrics.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals( 2L, server.getAttribute(
+                new ObjectName( "com.example.financetracker:type=StorageMetrics" ), "SaveCount" ) );
+        storage.close();
+        assertFalse( server.isRegistered( new ObjectName( "com.example.financetracker:type=StorageMetrics" ) ) );
+    }
+
+    public void testIdsSurviveRestartAndDriveCategoryIndex()
+    {
+        FinanceDataStorage storage = open();
+        LocalDate date = LocalDate.of( 2024, 5, 5 );
+        storage.addExpense( new Expense( 5.0, "gas", date ) );
+        Expense lunch = new Expense( 7.0, "food", date );
+        storage.addExpense( lunch );
+        storage.addExpense( new Expense( 9.0, "gas", date ) );
+        int lunchId = lunch.getId();
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 2, reopened.countExpensesInCategory( "gas" ) );
+        assertEquals( "food", reopened.getExpense( lunchId ).getCategory() );
+        assertTrue( reopened.removeExpense( lunchId ) );
+        assertFalse( reopened.removeExpense( lunchId ) );
+        assertEquals( 0, reopened.countExpensesInCategory( "food" ) );
+        assertEquals( 2, reopened.getExpenses().size() );
+        double total = 0;
+        for ( Expense gas : reopened.getExpensesInCategory( "gas" ) )
+        {
+            total += gas.getAmount();
+        }
+        assertEquals( 14.0, total, 0.0 );
+        reopened.close();
+    }
+
+    public void testConcurrentWritersKeepListsReportsAndFilesConsistent() throws Exception
+    {
+        FinanceDataStorage storage = open();
+        int[] listed = new int[1];
+        storage.getExpenses().addListener( (ListChangeListener<Expense>) change ->
+        {
+            while ( change.next() )
+            {
+                listed[0] += change.getAddedSize() - change.getRemovedSize();
+            }
+        } );
+        ReportGenerator reports = new ReportGenerator( storage );
+        List<Throwable> failures = new ArrayList<>();
+        Thread[] writers = new Thread[4];
+        for ( int t = 0; t < writers.length; t++ )
+        {
+            int writer = t;
+            writers[t] = new Thread( () ->
+            {
+                try
+                {
+                    for ( int i = 0; i < 500; i++ )
+                    {
+                        Expense expense = new Expense( 1.0 + writer, "w" + writer, LocalDate.of( 2024, 1, 1 + i % 28 ) );
+                        storage.addExpense( expense );
+                        if ( i % 10 == 0 )
+                        {
+                            assertTrue( storage.removeExpense( expense.getId() ) );
+                        }
+                        if ( i % 5 == 0 )
+                        {
+                            storage.addIncome( new Income( 2.0, LocalDate.of( 2024, 2, 1 ) ) );
+                        }
+                    }
+                }
+                catch ( Throwable e )
+                {
+                    synchronized ( failures )
+                    {
+                        failures.add( e );
+                    }
+                }
+            } );
+        }
+        for ( Thread writer : writers )
+        {
+            writer.start();
+        }
+        // Every report sees whole batches: its totals always match its own breakdown
+        for ( Thread writer : writers )
+        {
+            while ( writer.isAlive() )
+            {
+                double byCategory = 0;
+                FinancialReport report = reports.generate( ReportQuery.all() );
+                for ( double amount : report.getExpensesByCategory().values() )
+                {
+                    byCategory += amount;
+                }
+                assertEquals( report.getTotalExpenses(), byCategory, 1e-6 );
+            }
+            writer.join();
+        }
+        assertEquals( Arrays.asList(), failures );
+
+        assertEquals( 4 * 450, storage.getExpenses().size() );
+        assertEquals( 4 * 450, listed[0] );
+        assertEquals( 4 * 100, storage.getIncomes().size() );
+        assertEquals( 450 * ( 1 + 2 + 3 + 4 ), storage.getAggregates().getTotalExpenses(), 1e-6 );
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 4 * 450, reopened.getExpenses().size() );
+        assertEquals( 4 * 100, reopened.getIncomes().size() );
+        assertEquals( 450.0 * 3, reopened.getAggregates().getExpenses( "w2" ), 1e-6 );
+        reopened.close();
+    }
+
+    public void testFlushWritesQueuedEntries() throws InterruptedException
+    {
+        FinanceDataStorage storage = open();
+        storage.setWritePolicy( WritePolicy.everyMillis( 60_000 ) );
+        for ( int i = 0; i < 10; i++ )
+        {
+            storage.addIncome( new Income( 100 + i, LocalDate.of( 2024, 1, 1 + i ) ) );
+        }
+        // Written by the writer thread, but held back by the policy until the minute is up
+        while ( storage.getMetrics().getJournalBytesWritten() == 0 )
+        {
+            Thread.yield();
+        }
+        Thread.sleep( 50 );
+        assertEquals( 0, storage.getMetrics().getJournalFlushes() );
+        storage.flush();
+
+        FinanceDataStorage other = open();
+        assertEquals( 10, other.getIncomes().size() );
+        other.close();
+        storage.close();
+    }
+
+    public void testJournalBytesCountEncodedCategories()
+    {
+        FinanceDataStorage storage = open();
+        storage.addExpense( new Expense( 4.5, "Caf\u00e9 \u2615", LocalDate.of( 2024, 2, 1 ) ) );
+        storage.addExpense( new Expense( 3.0, "\u98df\u54c1", LocalDate.of( 2024, 2, 2 ) ) );
+        storage.flush();
+        assertEquals( new File( dir, "transactions.journal" ).length(),
+                storage.getMetrics().getJournalBytesWritten() );
+        storage.close();
+    }
+
+    public void testChangesBeforeLoadAreRefused()
+    {
+        FinanceDataStorage storage = open();
+        storage.addExpense( new Expense( 10.0, "food", LocalDate.of( 2024, 2, 1 ) ) );
+        storage.close();
+
+        FinanceDataStorage loading = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), true );
+        try
+        {
+            loading.addExpense( new Expense( 20.0, "food", LocalDate.of( 2024, 2, 2 ) ) );
+            fail();
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "The storage is still loading", e.getMessage() );
+        }
+        loading.load();
+        loading.addExpense( new Expense( 30.0, "food", LocalDate.of( 2024, 2, 3 ) ) );
+        loading.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 2, reopened.getExpenses().size() );
+        assertEquals( 40.0, reopened.getAggregates().getTotalExpenses(), 0.0 );
+        reopened.close();
+    }
+
+    public void testChangesAfterCloseAreRefused()
+    {
+        FinanceDataStorage storage = open();
+        LocalDate date = LocalDate.of( 2024, 2, 1 );
+        storage.addExpense( new Expense( 10.0, "food", date ) );
+        List<Expense> added = new ArrayList<>();
+        storage.addTransactionListener( new TransactionListener()
+        {
+            @Override
+            public void expenseAdded( Expense expense )
+            {
+                added.add( expense );
+            }
+
+            @Override
+            public void expenseRemoved( Expense expense )
+            {
+            }
+
+            @Override
+            public void incomeAdded( Income income )
+            {
+            }
+        } );
+        storage.close();
+        try
+        {
+            storage.addExpense( new Expense( 20.0, "food", date ) );
+            fail();
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "Journal is closed", e.getMessage() );
+        }
+        // Nothing was applied, so memory still matches the journal
+        assertTrue( added.isEmpty() );
+        assertEquals( 1, storage.getExpenses().size() );
+        assertEquals( 10.0, storage.getAggregates().getTotalExpenses(), 0.0 );
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 1, reopened.getExpenses().size() );
+        reopened.close();
+    }
+
+    public void testExpensesWithoutCategoryLoadAndChange() throws IOException
+    {
+        Files.writeString( new File( dir, "expenses.json" ).toPath(),
+                "[{\"amount\":4.0,\"date\":\"2024-02-01\"},"
+                        + "{\"amount\":3.0,\"category\":\"food\",\"date\":\"2024-02-02\"}]" );
+        FinanceDataStorage storage = open();
+        assertEquals( 2, storage.getExpenses().size() );
+        assertNull( storage.getExpenses().get( 0 ).getCategory() );
+        Expense uncategorized = new Expense( 5.0, null, LocalDate.of( 2024, 2, 3 ) );
+        storage.addExpense( uncategorized );
+        assertEquals( 1, storage.countExpensesInCategory( "food" ) );
+        assertEquals( 12.0, storage.getAggregates().getTotalExpenses(), 0.0 );
+        // Compacts on the next change, writing the rows without a category to the snapshot
+        storage.flush();
+        storage.setCompactionThreshold( 1 );
+        storage.removeExpense( uncategorized );
+        FinancialReport report = new ReportGenerator( storage ).generate( ReportQuery.all() );
+        assertEquals( 7.0, report.getTotalExpenses(), 0.0 );
+        assertEquals( 4.0, report.getExpensesByCategory().get( FinancialReport.UNCATEGORIZED ), 0.0 );
+        assertTrue( report.toText().contains( FinancialReport.UNCATEGORIZED ) );
+        assertTrue( report.toJson().contains( FinancialReport.UNCATEGORIZED ) );
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 2, reopened.getExpenses().size() );
+        reopened.close();
+    }
+
+    public void testReadsFilesWrittenByReflectiveGson() throws IOException
+    {
+        Files.writeString( new File( dir, "expenses.json" ).toPath(),
+                "[{\"amount\":10.5,\"category\":\"gas\",\"date\":\"2024-02-29\"},"
+                        + "{\"amount\":3.0,\"category\":\"food\",\"date\":\"1999-12-31\"}]" );
+        Files.writeString( new File( dir, "incomes.json" ).toPath(), "[{\"amount\":100.0,\"date\":\"2000-03-01\"}]" );
+        Files.writeString( new File( dir, "transactions.journal" ).toPath(),
+                "{\"seq\":1,\"op\":\"ADD_EXPENSE\",\"expense\":{\"id\":7,\"amount\":1.25,"
+                        + "\"category\":\"fun\",\"date\":\"1970-01-01\"}}\n" );
+
+        FinanceDataStorage storage = open();
+        assertEquals( 3, storage.getExpenses().size() );
+        assertEquals( LocalDate.of( 2024, 2, 29 ), storage.getExpenses().get( 0 ).getDate() );
+        assertEquals( LocalDate.of( 1999, 12, 31 ), storage.getExpenses().get( 1 ).getDate() );
+        assertEquals( LocalDate.of( 1970, 1, 1 ), storage.getExpense( 7 ).getDate() );
+        assertEquals( LocalDate.of( 2000, 3, 1 ), storage.getIncomes().get( 0 ).getDate() );
+        storage.setCompactionThreshold( 1 );
+        storage.addExpense( new Expense( 2.0, "gas", LocalDate.of( 2100, 12, 31 ) ) );
+        storage.close();
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 4, reopened.getExpenses().size() );
+        assertEquals( LocalDate.of( 2024, 2, 29 ), reopened.getExpenses().get( 0 ).getDate() );
+        assertEquals( LocalDate.of( 2100, 12, 31 ), reopened.getExpenses().get( 3 ).getDate() );
+        reopened.close();
+    }
+
+    public void testSegmentFilesRoundTripThroughJson() throws IOException
+    {
+        FinanceDataStorage storage = open();
+        File binaryDir = new File( dir, "binary" );
+        binaryDir.mkdir();
+        storage.addExpense( new Expense( 10.25, "gas", LocalDate.of( 2024, 3, 1 ) ) );
+        storage.addExpense( new Expense( 4.5, "caf\u00e9", LocalDate.of( 2023, 12, 31 ) ) );
+        storage.addIncome( new Income( 1200.0, LocalDate.of( 2024, 3, 1 ) ) );
+        String expensesSegment = new File( binaryDir, "expenses.seg" ).getPath();
+        String incomesSegment = new File( binaryDir, "incomes.seg" ).getPath();
+        storage.exportTo( expensesSegment, incomesSegment );
+        storage.close();
+
+        FinanceDataStorage binary = new FinanceDataStorage( expensesSegment, incomesSegment, true );
+        binary.load();
+        assertEquals( 2, binary.getExpenses().size() );
+        Expense cafe = binary.getExpenses().get( 1 );
+        assertEquals( "caf\u00e9", cafe.getCategory() );
+        assertEquals( 4.5, cafe.getAmount(), 0.0 );
+        assertEquals( LocalDate.of( 2023, 12, 31 ), cafe.getDate() );
+        assertEquals( 1200.0, binary.getAggregates().getTotalIncome(), 0.0 );
+        binary.setCompactionThreshold( 1 );
+        binary.addExpense( new Expense( 1.0, "gas", LocalDate.of( 2024, 3, 2 ) ) );
+        binary.flush();
+        binary.addExpense( new Expense( 2.0, "gas", LocalDate.of( 2024, 3, 3 ) ) );
+        binary.close();
+
+        FinanceDataStorage reopened = new FinanceDataStorage( expensesSegment, incomesSegment, true );
+        reopened.load();
+        assertEquals( 4, reopened.getExpenses().size() );
+        assertEquals( 3, reopened.countExpensesInCategory( "gas" ) );
+        String expensesJson = new File( dir, "export.json" ).getPath();
+        reopened.exportTo( expensesJson, new File( dir, "export-incomes.json" ).getPath() );
+        assertTrue( Files.readString( new File( expensesJson ).toPath() ).contains( "\"date\":\"2024-03-03\"" ) );
+        reopened.close();
+        for ( File file : binaryDir.listFiles() )
+        {
+            file.delete();
+        }
+        binaryDir.delete();
+    }
+
+    public void testOldYearsAreArchivedAndLoadedOnDemand()
+    {
+        LocalDate today = LocalDate.now();
+        FinanceDataStorage storage = open();
+        storage.addExpense( new Expense( 10.0, "gas", LocalDate.of( 2015, 3, 1 ) ) );
+        storage.addExpense( new Expense( 20.0, "food", LocalDate.of( 2015, 7, 1 ) ) );
+        storage.addExpense( new Expense( 5.0, "gas", LocalDate.of( 2016, 1, 5 ) ) );
+        storage.addExpense( new Expense( 1.0, "gas", today ) );
+        storage.addIncome( new Income( 100.0, LocalDate.of( 2015, 1, 1 ) ) );
+        storage.addIncome( new Income( 50.0, today ) );
+        storage.close();
+
+        FinanceDataStorage archived = open( 2 );
+        assertTrue( new File( dir, "archive/expenses-2015.seg.gz" ).exists() );
+        assertEquals( 1, archived.getExpenses().size() );
+        assertEquals( 1, archived.getIncomes().size() );
+        assertEquals( 36.0, archived.getAggregates().getTotalExpenses(), 0.0 );
+        assertEquals( 150.0, archived.getAggregates().getTotalIncome(), 0.0 );
+        archived.setArchiveMemoryBudget( 0 );
+        List<Double> amounts = new ArrayList<>();
+        for ( Expense expense : archived.getExpensesBetween( LocalDate.of( 2015, 1, 1 ), today ) )
+        {
+            amounts.add( expense.getAmount() );
+        }
+        assertEquals( Arrays.asList( 10.0, 20.0, 5.0, 1.0 ), amounts );
+        ReportGenerator reports = new ReportGenerator( archived );
+        assertEquals( 15.0, reports.generate( ReportQuery.between( LocalDate.of( 2015, 1, 1 ), LocalDate.of( 2016, 12, 31 ) )
+                .withCategory( "gas" ) ).getTotalExpenses(), 0.0 );
+        assertEquals( 4, reports.generate( ReportQuery.all() ).getExpenseCount() );
+        archived.addExpense( new Expense( 2.0, "food", today ) );
+        archived.close();
+
+        FinanceDataStorage reopened = open( 2 );
+        assertEquals( 2, reopened.getExpenses().size() );
+        assertEquals( 38.0, reopened.getAggregates().getTotalExpenses(), 0.0 );
+        Set<Integer> ids = new HashSet<>();
+        for ( Expense expense : reopened.getExpensesByDate() )
+        {
+            assertTrue( ids.add( expense.getId() ) );
+        }
+        assertEquals( 5, ids.size() );
+        reopened.close();
+    }
+
+    public void testHashCodeSurvivesBeingStored()
+    {
+        FinanceDataStorage storage = open();
+        Expense expense = new Expense( 12.5, "Food ", LocalDate.of( 2024, 5, 1 ) );
+        Income income = new Income( 100.0, LocalDate.of( 2024, 5, 1 ) );
+        Set<Object> held = new HashSet<>( Arrays.asList( expense, income ) );
+        storage.addExpense( expense );
+        storage.addIncome( income );
+        assertTrue( held.contains( expense ) );
+        assertTrue( held.contains( income ) );
+
+        Expense view = storage.getExpense( expense.getId() );
+        assertNotSame( expense, view );
+        assertEquals( expense, view );
+        assertEquals( expense.hashCode(), view.hashCode() );
+        Expense twin = new Expense( 12.5, "food", LocalDate.of( 2024, 5, 1 ) );
+        storage.addExpense( twin );
+        assertFalse( expense.equals( twin ) );
+        assertFalse( new Expense( 1.0, "gas", LocalDate.of( 2024, 5, 1 ) )
+                .equals( new Expense( 1.0, "gas", LocalDate.of( 2024, 5, 1 ) ) ) );
+        storage.close();
+    }
+
+    public void testArchivedTransactionsAreFoundButNotRemoved()
+    {
+        LocalDate today = LocalDate.now();
+        FinanceDataStorage storage = open();
+        Expense old = new Expense( 10.0, "gas", LocalDate.of( 2015, 3, 1 ) );
+        storage.addExpense( old );
+        Expense recent = new Expense( 1.0, "gas", today );
+        storage.addExpense( recent );
+        Income oldIncome = new Income( 100.0, LocalDate.of( 2015, 1, 1 ) );
+        storage.addIncome( oldIncome );
+        int oldId = old.getId();
+        int recentId = recent.getId();
+        int oldIncomeId = oldIncome.getId();
+        storage.close();
+
+        FinanceDataStorage archived = open( 2 );
+        Expense found = archived.getExpense( oldId );
+        assertEquals( 10.0, found.getAmount(), 0.0 );
+        assertEquals( "gas", found.getCategory() );
+        assertNull( archived.getExpense( 999 ) );
+        try
+        {
+            archived.removeAll( new int[]{ recentId, oldId }, new int[0] );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertEquals( "Expense " + oldId + " is archived and cannot be removed", e.getMessage() );
+        }
+        try
+        {
+            archived.removeIncome( oldIncomeId );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertEquals( "Income " + oldIncomeId + " is archived and cannot be removed", e.getMessage() );
+        }
+        assertNotNull( archived.getExpense( recentId ) );
+        assertEquals( 11.0, archived.getAggregates().getTotalExpenses(), 0.0 );
+        assertFalse( archived.removeExpense( 999 ) );
+        archived.close();
+    }
+}
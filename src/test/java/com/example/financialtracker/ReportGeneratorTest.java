@@ -0,0 +1,238 @@
+package com.example.financialtracker;
+
+import com.example.financetracker.BatchReport;
+import com.example.financetracker.Expense;
+import com.example.financetracker.FinanceDataStorage;
+import com.example.financetracker.FinancialReport;
+import com.example.financetracker.Income;
+import com.example.financetracker.ReportGenerator;
+import com.example.financetracker.ReportQuery;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the parallel report engine behind ReportGenerator.
+ */
+public class ReportGeneratorTest extends TestCase
+{
+    private File dir;
+    private FinanceDataStorage storage;
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory( "finance-report" ).toFile();
+        storage = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), true );
+        storage.load();
+        storage.setCompactionThreshold( Long.MAX_VALUE );
+        Random random = new Random( 1 );
+        LocalDate start = LocalDate.of( 2019, 1, 1 );
+        String[] categories = { "rent", "gas", "food", "fun" };
+        for ( int i = 0; i < 100_000; i++ )
+        {
+            storage.addExpense( new Expense( random.nextInt( 10_000 ) / 100.0,
+                    categories[random.nextInt( categories.length )], start.plusDays( random.nextInt( 5 * 365 ) ) ) );
+        }
+        for ( int i = 0; i < 60; i++ )
+        {
+            storage.addIncome( new Income( 2000, start.plusMonths( i ) ) );
+        }
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        storage.close();
+        File[] files = dir.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    public void testShardedScanMatchesAggregates()
+    {
+        ReportGenerator generator = new ReportGenerator( storage );
+        FinancialReport fromAggregates = generator.generate( ReportQuery.all() );
+        FinancialReport scanned = generator.generate(
+                ReportQuery.between( LocalDate.of( 1900, 1, 1 ), LocalDate.of( 2100, 1, 1 ) ) );
+
+        assertEquals( fromAggregates.getTotalExpenses(), scanned.getTotalExpenses() );
+        assertEquals( fromAggregates.getTotalIncome(), scanned.getTotalIncome() );
+        assertEquals( 100_000, scanned.getExpenseCount() );
+        assertEquals( fromAggregates.getExpensesByCategory(), scanned.getExpensesByCategory() );
+        assertEquals( fromAggregates.getExpensesByMonth(), scanned.getExpensesByMonth() );
+        assertEquals( fromAggregates.getNetByMonth(), scanned.getNetByMonth() );
+        assertEquals( fromAggregates.getExpensePercentiles(), scanned.getExpensePercentiles() );
+    }
+
+    public void testFiltersByRangeAndCategory()
+    {
+        ReportGenerator generator = new ReportGenerator( storage );
+        LocalDate from = LocalDate.of( 2020, 3, 1 );
+        LocalDate to = LocalDate.of( 2020, 6, 30 );
+        FinancialReport report = generator.generate( ReportQuery.between( from, to ).withCategory( "gas" ) );
+
+        double expected = 0;
+        for ( Expense expense : storage.getExpensesBetween( from, to ) )
+        {
+            if ( expense.getCategory().equals( "gas" ) )
+            {
+                expected += expense.getAmount();
+            }
+        }
+        assertEquals( expected, report.getTotalExpenses(), 0.001 );
+        assertEquals( 1, report.getExpensesByCategory().size() );
+        assertEquals( 4, report.getExpensesByMonth().size() );
+        assertEquals( 8000.0, report.getTotalIncome(), 0.0 );
+        assertEquals( 2000.0, report.getIncomeByMonth().get( YearMonth.of( 2020, 4 ) ), 0.0 );
+        assertEquals( "gas", report.getTopCategories( 3 ).get( 0 ).getKey() );
+    }
+
+    public void testDateOrderedRowsMatchRowByRowTotals()
+    {
+        // Appended in date order, a few per day, so each chunk of rows spans a month or two
+        LocalDate start = LocalDate.of( 2025, 1, 1 );
+        for ( int i = 0; i < 20_000; i++ )
+        {
+            storage.addExpense( new Expense( 1 + i % 997 / 10.0, i % 3 == 0 ? "gas" : "food", start.plusDays( i / 40 ) ) );
+        }
+        for ( int id = 100_001; id < 120_000; id += 37 )
+        {
+            assertTrue( storage.removeExpense( id ) );
+        }
+        ReportGenerator generator = new ReportGenerator( storage );
+        LocalDate from = LocalDate.of( 2025, 2, 10 );
+        LocalDate to = LocalDate.of( 2025, 4, 20 );
+        for ( String category : new String[] { null, "gas" } )
+        {
+            FinancialReport report = generator.generate( ReportQuery.between( from, to ).withCategory( category ) );
+            long cents = 0;
+            int count = 0;
+            for ( Expense expense : storage.getExpensesBetween( from, to ) )
+            {
+                if ( category == null || category.equals( expense.getCategory() ) )
+                {
+                    cents += Math.round( expense.getAmount() * 100 );
+                    count++;
+                }
+            }
+            assertEquals( cents / 100.0, report.getTotalExpenses(), 1e-9 );
+            assertEquals( count, report.getExpenseCount() );
+            double byMonth = 0;
+            for ( double total : report.getExpensesByMonth().values() )
+            {
+                byMonth += total;
+            }
+            assertEquals( report.getTotalExpenses(), byMonth, 1e-6 );
+            assertEquals( 3, report.getExpensesByMonth().size() );
+        }
+    }
+
+    public void testCachedReportsAreInvalidatedPerMonth()
+    {
+        ReportGenerator generator = new ReportGenerator( storage );
+        ReportQuery january = ReportQuery.between( LocalDate.of( 2020, 1, 1 ), LocalDate.of( 2020, 1, 31 ) );
+        ReportQuery june = ReportQuery.between( LocalDate.of( 2020, 6, 1 ), LocalDate.of( 2020, 6, 30 ) );
+        FinancialReport januaryReport = generator.generate( january );
+        FinancialReport juneReport = generator.generate( june );
+        FinancialReport all = generator.generate( ReportQuery.all() );
+        assertSame( januaryReport, generator.generate( january ) );
+        assertSame( all, new ReportGenerator( storage ).generate( ReportQuery.all() ) );
+        assertEquals( 2, storage.getMetrics().getReportCacheHits() );
+
+        storage.addExpense( new Expense( 1000, "gas", LocalDate.of( 2020, 6, 15 ) ) );
+        assertSame( januaryReport, generator.generate( january ) );
+        FinancialReport newJune = generator.generate( june );
+        assertNotSame( juneReport, newJune );
+        assertEquals( juneReport.getTotalExpenses() + 1000, newJune.getTotalExpenses(), 0.001 );
+        assertEquals( all.getTotalExpenses() + 1000, generator.generate( ReportQuery.all() ).getTotalExpenses(), 0.001 );
+
+        storage.addIncome( new Income( 10, LocalDate.of( 2020, 1, 31 ) ) );
+        assertEquals( januaryReport.getTotalIncome() + 10, generator.generate( january ).getTotalIncome(), 0.0 );
+
+        storage.setReportCacheCapacity( 2 );
+        FinancialReport cachedJune = generator.generate( june );
+        generator.generate( january );
+        generator.generate( ReportQuery.between( null, LocalDate.of( 2019, 12, 31 ) ) );
+        assertNotSame( cachedJune, generator.generate( june ) );
+    }
+
+    private FinanceDataStorage reopen( int hotYears )
+    {
+        storage.close();
+        storage = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), true );
+        storage.setHotYears( hotYears );
+        storage.load();
+        return storage;
+    }
+
+    public void testBatchReportStreamsSnapshotArchiveAndJournal() throws IOException
+    {
+        // 2019 and 2020 go to the archive, the rest to a new snapshot
+        int hotYears = LocalDate.now().getYear() - 2020;
+        reopen( hotYears );
+        for ( int i = 0; i < 100; i++ )
+        {
+            storage.addExpense( new Expense( 1 + i, "gas", LocalDate.of( 2022, 2, 1 + i % 28 ) ) );
+            // Archived years are read-only
+            Expense removed = storage.getExpense( 1000 + i );
+            if ( removed != null && removed.getDate().getYear() > 2020 )
+            {
+                assertTrue( storage.removeExpense( 1000 + i ) );
+            }
+        }
+        storage.addIncome( new Income( 500, LocalDate.of( 2022, 2, 1 ) ) );
+        assertTrue( storage.removeIncome( 30 ) );
+        reopen( hotYears );
+        storage.close();
+        assertTrue( new File( dir, "archive/expenses-2019.seg.gz" ).exists() );
+
+        File expensesFile = new File( dir, "expenses.json" );
+        File incomesFile = new File( dir, "incomes.json" );
+        ReportQuery[] queries = {
+                ReportQuery.all(),
+                ReportQuery.between( LocalDate.of( 2020, 6, 1 ), LocalDate.of( 2022, 3, 31 ) ).withCategory( "gas" ),
+                ReportQuery.between( null, LocalDate.of( 2019, 12, 31 ) ) };
+        FinancialReport[] batch = new FinancialReport[queries.length];
+        for ( int i = 0; i < queries.length; i++ )
+        {
+            batch[i] = BatchReport.generate( expensesFile, incomesFile, queries[i] );
+        }
+
+        ReportGenerator generator = new ReportGenerator( reopen( hotYears ) );
+        for ( int i = 0; i < queries.length; i++ )
+        {
+            FinancialReport expected = generator.generate( queries[i] );
+            assertEquals( expected.getExpenseCount(), batch[i].getExpenseCount() );
+            assertEquals( expected.getTotalExpenses(), batch[i].getTotalExpenses() );
+            assertEquals( expected.getIncomeCount(), batch[i].getIncomeCount() );
+            assertEquals( expected.getTotalIncome(), batch[i].getTotalIncome() );
+            assertEquals( expected.getExpensesByCategory(), batch[i].getExpensesByCategory() );
+            assertEquals( expected.getExpensesByMonth(), batch[i].getExpensesByMonth() );
+            assertEquals( expected.getIncomeByMonth(), batch[i].getIncomeByMonth() );
+            // Percentiles come from a histogram, within a tenth of a percent
+            for ( Map.Entry<Integer, Double> entry : expected.getExpensePercentiles().entrySet() )
+            {
+                assertEquals( entry.getValue(), batch[i].getExpensePercentiles().get( entry.getKey() ),
+                        entry.getValue() / 1000 );
+            }
+        }
+        // Removals of hot expenses count; archived ones cannot be removed
+        assertTrue( batch[0].getExpenseCount() < 100_100 );
+        assertEquals( 60, batch[0].getIncomeCount() );
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.financialtracker;
+
+import com.example.financetracker.Expense;
+import com.example.financetracker.FinanceDataStorage;
+import com.example.financetracker.TransactionServer;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+/**
+ * Unit tests for the headless HTTP server.
+ */
+public class TransactionServerTest extends TestCase
+{
+    private File dir;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory( "finance-server" ).toFile();
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        delete( dir );
+    }
+
+    private static void delete( File file )
+    {
+        File[] files = file.listFiles();
+        if ( files != null )
+        {
+            for ( File child : files )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+    private FinanceDataStorage open()
+    {
+        FinanceDataStorage storage = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), true );
+        storage.load();
+        return storage;
+    }
+
+    private HttpResponse<String> send( int port, String method, String path, String body ) throws Exception
+    {
+        HttpRequest request = HttpRequest.newBuilder( URI.create( "http://localhost:" + port + path ) )
+                .method( method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString( body ) )
+                .build();
+        return client.send( request, HttpResponse.BodyHandlers.ofString() );
+    }
+
+    public void testBatchesRangesAndReports() throws Exception
+    {
+        FinanceDataStorage storage = open();
+        TransactionServer server = new TransactionServer( storage,
+                new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ) );
+        server.start();
+        int port = server.getPort();
+        try
+        {
+            HttpResponse<String> added = send( port, "POST", "/expenses",
+                    "[{\"amount\":12.5,\"category\":\"food\",\"date\":\"2024-05-02\"},"
+                            + "{\"amount\":40,\"category\":\"gas\",\"date\":\"2024-05-01\"},"
+                            + "{\"amount\":7.25,\"category\":\"food\",\"date\":\"2024-06-01\"}]" );
+            assertEquals( 200, added.statusCode() );
+            assertEquals( "{\"added\":3,\"ids\":[1,2,3]}", added.body() );
+            assertEquals( "{\"added\":1,\"ids\":[1]}", send( port, "POST", "/incomes",
+                    "[{\"amount\":1000,\"date\":\"2024-05-01\"}]" ).body() );
+
+            HttpResponse<String> rejected = send( port, "POST", "/expenses",
+                    "[{\"amount\":5,\"category\":\"food\",\"date\":\"2024-05-03\"},{\"amount\":-1,\"category\":\"x\",\"date\":\"2024-05-03\"}]" );
+            assertEquals( 400, rejected.statusCode() );
+            assertEquals( "{\"error\":\"Record 1: Amount must be positive\"}", rejected.body() );
+            assertEquals( 400, send( port, "POST", "/expenses", "[{\"amount\":5," ).statusCode() );
+            assertEquals( 404, send( port, "GET", "/expenses/nothing", null ).statusCode() );
+            assertEquals( 3, storage.getExpenses().size() );
+
+            assertEquals( "[{\"id\":2,\"amount\":40.0,\"category\":\"gas\",\"date\":\"2024-05-01\"},"
+                            + "{\"id\":1,\"amount\":12.5,\"category\":\"food\",\"date\":\"2024-05-02\"}]",
+                    send( port, "GET", "/expenses?from=2024-05-01&to=2024-05-31", null ).body() );
+            assertEquals( "[{\"id\":3,\"amount\":7.25,\"category\":\"food\",\"date\":\"2024-06-01\"}]",
+                    send( port, "GET", "/expenses?category=food&from=2024-05-03", null ).body() );
+            assertEquals( "[{\"id\":1,\"amount\":12.5,\"category\":\"food\",\"date\":\"2024-05-02\"},"
+                            + "{\"id\":3,\"amount\":7.25,\"category\":\"food\",\"date\":\"2024-06-01\"}]",
+                    send( port, "GET", "/expenses?category=Food", null ).body() );
+            assertEquals( "[]", send( port, "GET", "/expenses?category=rent", null ).body() );
+
+            assertEquals( "{\"removed\":1}", send( port, "POST", "/expenses/delete", "[1, 99]" ).body() );
+            String report = send( port, "GET", "/report?to=2024-05-31", null ).body();
+            assertTrue( report, report.contains( "\"totalExpenses\":40.0" ) );
+            assertTrue( report, report.contains( "\"totalIncome\":1000.0" ) );
+            assertTrue( report, report.contains( "\"expensesByMonth\":{\"2024-05\":40.0}" ) );
+            assertEquals( "{\"removed\":1}", send( port, "POST", "/incomes/delete", "[1]" ).body() );
+        }
+        finally
+        {
+            server.stop();
+            storage.close();
+        }
+
+        FinanceDataStorage reopened = open();
+        assertEquals( 2, reopened.getExpenses().size() );
+        assertEquals( 0, reopened.getIncomes().size() );
+        reopened.close();
+    }
+
+    public void testFailureWhileStreamingCutsTheAnswerShort() throws Exception
+    {
+        FinanceDataStorage storage = open();
+        storage.addExpense( new Expense( 10.0, "gas", LocalDate.of( 2015, 3, 1 ) ) );
+        storage.addExpense( new Expense( 1.0, "gas", LocalDate.now() ) );
+        storage.close();
+
+        storage = new FinanceDataStorage( new File( dir, "expenses.json" ).getPath(),
+                new File( dir, "incomes.json" ).getPath(), true );
+        storage.setHotYears( 2 );
+        storage.load();
+        storage.setArchiveMemoryBudget( 0 );
+        assertTrue( new File( dir, "archive/expenses-2015.seg.gz" ).delete() );
+        TransactionServer server = new TransactionServer( storage,
+                new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ) );
+        server.start();
+        try
+        {
+            // The archived year is only read once the array is under way
+            HttpResponse<String> answer = send( server.getPort(), "GET", "/expenses", null );
+            assertEquals( 200, answer.statusCode() );
+            assertFalse( answer.body(), answer.body().endsWith( "]" ) );
+            assertEquals( 200, send( server.getPort(), "GET", "/expenses?from=2020-01-01", null ).statusCode() );
+        }
+        finally
+        {
+            server.stop();
+            storage.close();
+        }
+    }
+}